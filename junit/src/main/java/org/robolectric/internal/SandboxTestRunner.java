@@ -23,6 +23,7 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
+import org.robolectric.TestMetadata;
 import org.robolectric.internal.bytecode.ClassHandler;
 import org.robolectric.internal.bytecode.ClassHandlerBuilder;
 import org.robolectric.internal.bytecode.ClassInstrumentor;
@@ -238,10 +239,12 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
         PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
         perfStatsCollector.reset();
         perfStatsCollector.setEnabled(!perfStatsReporters.isEmpty());
+        perfStatsCollector.putMetadata(
+            TestMetadata.class, new TestMetadata(getTestClass().getName(), method.getName()));
 
         Event initialization = perfStatsCollector.startEvent("initialization");
 
-        final Sandbox sandbox = getSandbox(method);
+        final Sandbox sandbox = perfStatsCollector.measure("get sandbox", () -> getSandbox(method));
 
         // Configure sandbox *BEFORE* setting the ClassLoader. This is necessary because
         // creating the ShadowMap loads all ShadowProviders via ServiceLoader and this is
@@ -282,9 +285,13 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
                     helperTestRunner.methodBlock(new FrameworkMethod(bootstrappedMethod));
 
                 // todo: this try/finally probably isn't right -- should mimic RunAfters? [xw]
+                Event testBody = perfStatsCollector.startEvent("run test");
+                boolean success = false;
                 try {
                   statement.evaluate();
+                  success = true;
                 } finally {
+                  testBody.finished(success);
                   afterTest(method, bootstrappedMethod);
                 }
               } catch (Throwable throwable) {
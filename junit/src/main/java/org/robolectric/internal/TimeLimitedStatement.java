@@ -1,15 +1,21 @@
 package org.robolectric.internal;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestTimedOutException;
 
 /**
  * Similar to JUnit's {@link org.junit.internal.runners.statements.FailOnTimeout}, but runs the
- * test on the current thread (with a timer on a new thread) rather than the other way around.
+ * test on the current thread (with a timer on a shared background thread) rather than the other way
+ * around.
  */
 class TimeLimitedStatement extends Statement {
 
+  private static final ScheduledExecutorService TIMER = createTimer();
+
   private final long timeout;
   private final Statement delegate;
 
@@ -21,18 +27,20 @@ class TimeLimitedStatement extends Statement {
   @Override
   public void evaluate() throws Throwable {
     Thread testThread = Thread.currentThread();
-    Thread timeoutThread =
-        new Thread(
+    Object lock = new Object();
+    boolean[] finished = new boolean[1];
+    ScheduledFuture<?> timeoutFuture =
+        TIMER.schedule(
             () -> {
-              try {
-                Thread.sleep(timeout);
-                testThread.interrupt();
-              } catch (InterruptedException e) {
-                // ok
+              // Don't interrupt the test thread once it has moved on to something else.
+              synchronized (lock) {
+                if (!finished[0]) {
+                  testThread.interrupt();
+                }
               }
             },
-            "Robolectric time-limited test");
-    timeoutThread.start();
+            timeout,
+            TimeUnit.MILLISECONDS);
 
     try {
       delegate.evaluate();
@@ -41,8 +49,24 @@ class TimeLimitedStatement extends Statement {
       e2.setStackTrace(e.getStackTrace());
       throw e2;
     } finally {
-      timeoutThread.interrupt();
-      timeoutThread.join();
+      synchronized (lock) {
+        finished[0] = true;
+      }
+      timeoutFuture.cancel(false);
     }
   }
+
+  private static ScheduledExecutorService createTimer() {
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            r -> {
+              Thread thread = new Thread(r, "Robolectric time-limited test");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // Tests usually finish well before their timeout, so don't keep cancelled timers queued.
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
 }
@@ -0,0 +1,135 @@
+package org.robolectric.pluginapi.perf;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of event durations for perf stats collection.
+ *
+ * <p>Durations are counted in log-linear buckets: each power of two is split into {@code 2^}{@link
+ * #SUB_BUCKET_BITS} equally sized buckets, so percentiles are accurate to within 25%.
+ */
+public class Histogram {
+  public static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  public static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+  private final long[] counts;
+
+  /**
+   * Creates a histogram from bucket counts.
+   *
+   * @param counts the number of values in each bucket, indexed by {@link #bucketIndex(long)}.
+   */
+  public Histogram(long[] counts) {
+    if (counts.length != BUCKET_COUNT) {
+      throw new IllegalArgumentException(
+          "expected " + BUCKET_COUNT + " buckets but got " + counts.length);
+    }
+    this.counts = counts.clone();
+  }
+
+  /** Returns a histogram containing {@code valuesNs}. */
+  public static Histogram of(long... valuesNs) {
+    long[] counts = new long[BUCKET_COUNT];
+    for (long valueNs : valuesNs) {
+      counts[bucketIndex(valueNs)]++;
+    }
+    return new Histogram(counts);
+  }
+
+  /** Returns the index of the bucket that {@code valueNs} is counted in. */
+  public static int bucketIndex(long valueNs) {
+    if (valueNs < SUB_BUCKET_COUNT) {
+      return (int) Math.max(0, valueNs);
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(valueNs) - SUB_BUCKET_BITS;
+    int subBucket = (int) (valueNs >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return ((shift + 1) << SUB_BUCKET_BITS) | subBucket;
+  }
+
+  /** Returns the largest value that is counted in bucket {@code index}. */
+  public static long bucketUpperBoundNs(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_BITS) - 1;
+    long lowerBound = (long) (SUB_BUCKET_COUNT | (index & (SUB_BUCKET_COUNT - 1))) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (long bucketCount : counts) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  /**
+   * Returns an estimate of the given percentile, e.g. {@code 99} for the 99th percentile. The
+   * estimate is the upper bound of the bucket containing the percentile, so it is never smaller
+   * than the actual value.
+   */
+  public long getPercentileNs(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+    }
+
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return bucketUpperBoundNs(i);
+      }
+    }
+    return bucketUpperBoundNs(counts.length - 1);
+  }
+
+  /** Adds this histogram's bucket counts to {@code counts}, which is indexed the same way. */
+  void addCountsTo(long[] counts) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += this.counts[i];
+    }
+  }
+
+  /** Returns a histogram containing the values of this histogram and {@code other}. */
+  public Histogram merge(Histogram other) {
+    long[] merged = counts.clone();
+    for (int i = 0; i < merged.length; i++) {
+      merged[i] += other.counts[i];
+    }
+    return new Histogram(merged);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Histogram)) {
+      return false;
+    }
+    return Arrays.equals(counts, ((Histogram) o).counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram{"
+        + "count=" + getCount()
+        + ", p50Ns=" + getPercentileNs(50)
+        + ", p90Ns=" + getPercentileNs(90)
+        + ", p99Ns=" + getPercentileNs(99)
+        + '}';
+  }
+}
@@ -1,5 +1,7 @@
 package org.robolectric.pluginapi.perf;
 
+import javax.annotation.Nullable;
+
 /**
  * Metric for perf stats collection.
  */
@@ -9,12 +11,36 @@ public class Metric {
   private long elapsedNs;
   private long minNs;
   private long maxNs;
+  // Bucket counts of the elapsed times, indexed by Histogram.bucketIndex(), or null for metrics
+  // that are only counted. Kept as an array so recording an event doesn't allocate.
+  @Nullable private long[] histogramCounts;
   private final boolean success;
 
   public Metric(String name, int count, int elapsedNs, boolean success) {
     this.name = name;
     this.count = count;
     this.elapsedNs = elapsedNs;
+    this.histogramCounts = null;
+    this.success = success;
+  }
+
+  public Metric(
+      String name,
+      int count,
+      long elapsedNs,
+      long minNs,
+      long maxNs,
+      @Nullable Histogram histogram,
+      boolean success) {
+    this.name = name;
+    this.count = count;
+    this.elapsedNs = elapsedNs;
+    this.minNs = minNs;
+    this.maxNs = maxNs;
+    if (histogram != null) {
+      this.histogramCounts = new long[Histogram.BUCKET_COUNT];
+      histogram.addCountsTo(histogramCounts);
+    }
     this.success = success;
   }
 
@@ -42,6 +68,15 @@ public class Metric {
     return maxNs;
   }
 
+  /**
+   * Returns the distribution of elapsed times for timed events, or null for metrics that are only
+   * counted.
+   */
+  @Nullable
+  public Histogram getHistogram() {
+    return histogramCounts == null ? null : new Histogram(histogramCounts);
+  }
+
   public boolean isSuccess() {
     return success;
   }
@@ -56,10 +91,44 @@ public class Metric {
     }
 
     this.elapsedNs += elapsedNs;
+    if (histogramCounts == null) {
+      histogramCounts = new long[Histogram.BUCKET_COUNT];
+    }
+    histogramCounts[Histogram.bucketIndex(elapsedNs)]++;
 
     count++;
   }
 
+  /**
+   * Adds the events in {@code other} to this metric. Their distributions are merged too, so
+   * percentiles include the events from both metrics.
+   */
+  public void merge(Metric other) {
+    if (other.count == 0) {
+      return;
+    }
+
+    if (count == 0 || other.minNs < minNs) {
+      minNs = other.minNs;
+    }
+
+    if (other.maxNs > maxNs) {
+      maxNs = other.maxNs;
+    }
+
+    elapsedNs += other.elapsedNs;
+    if (other.histogramCounts != null) {
+      if (histogramCounts == null) {
+        histogramCounts = new long[Histogram.BUCKET_COUNT];
+      }
+      for (int i = 0; i < histogramCounts.length; i++) {
+        histogramCounts[i] += other.histogramCounts[i];
+      }
+    }
+
+    count += other.count;
+  }
+
   public void incrementCount() {
     this.count++;
   }
@@ -96,6 +165,7 @@ public class Metric {
         + ", minNs=" + minNs
         + ", maxNs=" + maxNs
         + ", elapsedNs=" + elapsedNs
+        + (histogramCounts == null ? "" : ", histogram=" + getHistogram())
         + ", success=" + success
         + '}';
   }
@@ -0,0 +1,61 @@
+package org.robolectric.pluginapi.perf;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HistogramTest {
+
+  @Test
+  public void bucketUpperBounds_containTheirValues() {
+    for (long value = 0; value < 100_000; value++) {
+      int index = Histogram.bucketIndex(value);
+      assertThat(Histogram.bucketUpperBoundNs(index)).isAtLeast(value);
+      if (index > 0) {
+        assertThat(Histogram.bucketUpperBoundNs(index - 1)).isLessThan(value);
+      }
+    }
+    assertThat(Histogram.bucketUpperBoundNs(Histogram.bucketIndex(Long.MAX_VALUE)))
+        .isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void getPercentileNs_shouldBeWithinBucketPrecision() {
+    long[] counts = new long[Histogram.BUCKET_COUNT];
+    for (long value = 1; value <= 1000; value++) {
+      counts[Histogram.bucketIndex(value * 1000)]++;
+    }
+    Histogram histogram = new Histogram(counts);
+
+    assertThat(histogram.getCount()).isEqualTo(1000);
+    assertThat(histogram.getPercentileNs(50)).isIn(Range.closed(500_000L, 625_000L));
+    assertThat(histogram.getPercentileNs(99)).isIn(Range.closed(990_000L, 1_237_500L));
+    assertThat(histogram.getPercentileNs(100)).isAtLeast(1_000_000L);
+  }
+
+  @Test
+  public void merge_shouldAddCounts() {
+    long[] counts = new long[Histogram.BUCKET_COUNT];
+    counts[Histogram.bucketIndex(10)] = 2;
+    Histogram histogram = new Histogram(counts);
+
+    Histogram merged = histogram.merge(histogram);
+
+    assertThat(merged.getCount()).isEqualTo(4);
+    assertThat(histogram.getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void of_shouldCountValues() {
+    Histogram histogram = Histogram.of(10, 10, 1000);
+
+    assertThat(histogram.getCount()).isEqualTo(3);
+    assertThat(histogram.getPercentileNs(50))
+        .isEqualTo(Histogram.bucketUpperBoundNs(Histogram.bucketIndex(10)));
+    assertThat(histogram.getPercentileNs(100)).isAtLeast(1000L);
+  }
+}
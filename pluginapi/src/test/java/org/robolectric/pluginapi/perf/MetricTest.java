@@ -0,0 +1,74 @@
+package org.robolectric.pluginapi.perf;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetricTest {
+
+  @Test
+  public void record_shouldAddToHistogram() {
+    Metric metric = new Metric("event", true);
+
+    metric.record(10);
+    metric.record(1000);
+
+    assertThat(metric.getCount()).isEqualTo(2);
+    assertThat(metric.getHistogram()).isEqualTo(Histogram.of(10, 1000));
+  }
+
+  @Test
+  public void merge_shouldIncludeOtherMetricsSamples() {
+    Metric metric = new Metric("event", 2, 30, 10, 20, Histogram.of(10, 20), true);
+    Metric other = new Metric("event", 1, 5, 5, 5, Histogram.of(5), true);
+
+    metric.merge(other);
+
+    assertThat(metric.getCount()).isEqualTo(3);
+    assertThat(metric.getElapsedNs()).isEqualTo(35);
+    assertThat(metric.getMinNs()).isEqualTo(5);
+    assertThat(metric.getMaxNs()).isEqualTo(20);
+    assertThat(metric.getHistogram()).isEqualTo(Histogram.of(5, 10, 20));
+  }
+
+  @Test
+  public void merge_intoEmptyMetric_shouldCopyOtherMetric() {
+    Metric metric = new Metric("event", true);
+    Metric other = new Metric("event", 2, 30, 10, 20, Histogram.of(10, 20), true);
+
+    metric.merge(other);
+
+    assertThat(metric.getCount()).isEqualTo(2);
+    assertThat(metric.getMinNs()).isEqualTo(10);
+    assertThat(metric.getMaxNs()).isEqualTo(20);
+    assertThat(metric.getHistogram()).isEqualTo(Histogram.of(10, 20));
+  }
+
+  @Test
+  public void record_afterMerge_shouldNotChangeOtherMetric() {
+    Metric metric = new Metric("event", true);
+    Metric other = new Metric("event", 1, 10, 10, 10, Histogram.of(10), true);
+    metric.merge(other);
+
+    metric.record(1000);
+
+    assertThat(metric.getHistogram()).isEqualTo(Histogram.of(10, 1000));
+    assertThat(other.getHistogram()).isEqualTo(Histogram.of(10));
+  }
+
+  @Test
+  public void merge_counters_shouldNotHaveHistogram() {
+    Metric metric = new Metric("counter", true);
+    metric.incrementCount();
+    Metric other = new Metric("counter", true);
+    other.incrementCount();
+
+    metric.merge(other);
+
+    assertThat(metric.getCount()).isEqualTo(2);
+    assertThat(metric.getHistogram()).isNull();
+  }
+}
@@ -5,6 +5,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import com.google.common.base.Strings;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.AsyncCallable;
@@ -13,21 +14,27 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.robolectric.util.Logger;
 
 /**
- * Class responsible for fetching artifacts from Maven. This uses a thread pool of size two in order
- * to parallelize downloads. It uses the Sun JSSE provider for downloading due to its seamless
+ * Class responsible for fetching artifacts from Maven. This uses a thread pool in order to
+ * parallelize downloads. It uses the Sun JSSE provider for downloading due to its seamless
  * integration with HTTPUrlConnection.
+ *
+ * <p>Files are hashed as they are downloaded, so checksums can be validated without reading them
+ * again. It is safe to fetch several artifacts concurrently.
  */
 @SuppressWarnings("UnstableApiUsage")
 public class MavenArtifactFetcher {
@@ -36,15 +43,20 @@ public class MavenArtifactFetcher {
   private final String repositoryPassword;
   private final File localRepositoryDir;
   private final ExecutorService executorService;
-  private File stagingRepositoryDir;
+  /** SHA-1 hashes of staged files, computed while they were downloaded. */
+  private final Map<File, HashCode> stagedFileHashes = new ConcurrentHashMap<>();
 
+  /**
+   * @param repositoryUrl the URL of the remote repository, or the path of a local directory that
+   *     mirrors it.
+   */
   public MavenArtifactFetcher(
       String repositoryUrl,
       String repositoryUserName,
       String repositoryPassword,
       File localRepositoryDir,
       ExecutorService executorService) {
-    this.repositoryUrl = repositoryUrl;
+    this.repositoryUrl = toRepositoryUrl(repositoryUrl);
     this.repositoryUserName = repositoryUserName;
     this.repositoryPassword = repositoryPassword;
     this.localRepositoryDir = localRepositoryDir;
@@ -57,15 +69,15 @@ public class MavenArtifactFetcher {
       Logger.info(String.format("Found %s in local maven repository", artifact));
       return;
     }
-    this.stagingRepositoryDir = Files.createTempDir();
-    this.stagingRepositoryDir.deleteOnExit();
+    File stagingRepositoryDir = Files.createTempDir();
+    stagingRepositoryDir.deleteOnExit();
     try {
       createArtifactSubdirectory(artifact, stagingRepositoryDir);
       Futures.whenAllSucceed(
-              fetchToStagingRepository(artifact.pomSha1Path()),
-              fetchToStagingRepository(artifact.pomPath()),
-              fetchToStagingRepository(artifact.jarSha1Path()),
-              fetchToStagingRepository(artifact.jarPath()))
+              fetchToStagingRepository(stagingRepositoryDir, artifact.pomSha1Path()),
+              fetchToStagingRepository(stagingRepositoryDir, artifact.pomPath()),
+              fetchToStagingRepository(stagingRepositoryDir, artifact.jarSha1Path()),
+              fetchToStagingRepository(stagingRepositoryDir, artifact.jarPath()))
           .callAsync(
               () -> {
                 // double check that the artifact has not been installed
@@ -74,11 +86,15 @@ public class MavenArtifactFetcher {
                   return Futures.immediateFuture(null);
                 }
                 createArtifactSubdirectory(artifact, localRepositoryDir);
-                boolean pomValid = validateStagedFiles(artifact.pomPath(), artifact.pomSha1Path());
+                boolean pomValid =
+                    validateStagedFiles(
+                        stagingRepositoryDir, artifact.pomPath(), artifact.pomSha1Path());
                 if (!pomValid) {
                   throw new AssertionError("SHA1 mismatch for POM file fetched in " + artifact);
                 }
-                boolean jarValid = validateStagedFiles(artifact.jarPath(), artifact.jarSha1Path());
+                boolean jarValid =
+                    validateStagedFiles(
+                        stagingRepositoryDir, artifact.jarPath(), artifact.jarSha1Path());
                 if (!jarValid) {
                   throw new AssertionError("SHA1 mismatch for JAR file fetched in " + artifact);
                 }
@@ -86,10 +102,10 @@ public class MavenArtifactFetcher {
                     String.format(
                         "Checksums validated, moving artifact %s to local maven directory",
                         artifact));
-                commitFromStaging(artifact.pomSha1Path());
-                commitFromStaging(artifact.pomPath());
-                commitFromStaging(artifact.jarSha1Path());
-                commitFromStaging(artifact.jarPath());
+                commitFromStaging(stagingRepositoryDir, artifact.pomSha1Path());
+                commitFromStaging(stagingRepositoryDir, artifact.pomPath());
+                commitFromStaging(stagingRepositoryDir, artifact.jarSha1Path());
+                commitFromStaging(stagingRepositoryDir, artifact.jarPath());
                 removeArtifactFiles(stagingRepositoryDir, artifact);
                 return Futures.immediateFuture(null);
               },
@@ -103,6 +119,8 @@ public class MavenArtifactFetcher {
       removeArtifactFiles(localRepositoryDir, artifact);
       Logger.error("Failed to fetch maven artifact " + artifact, e);
       throw new AssertionError("Failed to fetch maven artifact " + artifact, e);
+    } finally {
+      forgetStagedFileHashes(stagingRepositoryDir, artifact);
     }
   }
 
@@ -113,13 +131,26 @@ public class MavenArtifactFetcher {
     new File(repositoryDir, artifact.pomSha1Path()).delete();
   }
 
-  private boolean validateStagedFiles(String filePath, String sha1Path) throws IOException {
-    File tempFile = new File(this.stagingRepositoryDir, filePath);
-    File sha1File = new File(this.stagingRepositoryDir, sha1Path);
+  private void forgetStagedFileHashes(File stagingRepositoryDir, MavenJarArtifact artifact) {
+    stagedFileHashes.remove(new File(stagingRepositoryDir, artifact.jarPath()));
+    stagedFileHashes.remove(new File(stagingRepositoryDir, artifact.jarSha1Path()));
+    stagedFileHashes.remove(new File(stagingRepositoryDir, artifact.pomPath()));
+    stagedFileHashes.remove(new File(stagingRepositoryDir, artifact.pomSha1Path()));
+  }
+
+  private boolean validateStagedFiles(File stagingRepositoryDir, String filePath, String sha1Path)
+      throws IOException {
+    File tempFile = new File(stagingRepositoryDir, filePath);
+    File sha1File = new File(stagingRepositoryDir, sha1Path);
 
-    HashCode expected = HashCode.fromString(new String(Files.asByteSource(sha1File).read(), UTF_8));
+    HashCode expected =
+        HashCode.fromString(new String(Files.asByteSource(sha1File).read(), UTF_8).trim());
 
-    HashCode actual = Files.asByteSource(tempFile).hash(Hashing.sha1());
+    HashCode actual = stagedFileHashes.get(tempFile);
+    if (actual == null) {
+      // Not hashed during download, e.g. if a subclass fetched it.
+      actual = Files.asByteSource(tempFile).hash(Hashing.sha1());
+    }
     return expected.equals(actual);
   }
 
@@ -141,20 +172,33 @@ public class MavenArtifactFetcher {
     }
   }
 
-  private ListenableFuture<Void> fetchToStagingRepository(String path) {
+  /** Converts the path of a local mirror directory to a URL; other URLs are returned as is. */
+  private static String toRepositoryUrl(String repositoryUrl) {
+    if (repositoryUrl.contains("://") || repositoryUrl.startsWith("file:")) {
+      return repositoryUrl;
+    }
+    return new File(repositoryUrl).toURI().toString();
+  }
+
+  private ListenableFuture<Void> fetchToStagingRepository(File stagingRepositoryDir, String path) {
     URL remoteUrl = getRemoteUrl(path);
-    File destination = new File(this.stagingRepositoryDir, path);
+    File destination = new File(stagingRepositoryDir, path);
     return createFetchToFileTask(remoteUrl, destination);
   }
 
   protected ListenableFuture<Void> createFetchToFileTask(URL remoteUrl, File tempFile) {
     return Futures.submitAsync(
-        new FetchToFileTask(remoteUrl, tempFile, repositoryUserName, repositoryPassword),
+        new FetchToFileTask(
+            remoteUrl,
+            tempFile,
+            repositoryUserName,
+            repositoryPassword,
+            sha1 -> stagedFileHashes.put(tempFile, sha1)),
         this.executorService);
   }
 
-  private void commitFromStaging(String path) throws IOException {
-    File source = new File(this.stagingRepositoryDir, path);
+  private void commitFromStaging(File stagingRepositoryDir, String path) throws IOException {
+    File source = new File(stagingRepositoryDir, path);
     File destination = new File(this.localRepositoryDir, path);
     Files.move(source, destination);
   }
@@ -165,13 +209,28 @@ public class MavenArtifactFetcher {
     private final File localFile;
     private String repositoryUserName;
     private String repositoryPassword;
+    @Nullable private final Consumer<HashCode> sha1Consumer;
 
     public FetchToFileTask(
         URL remoteURL, File localFile, String repositoryUserName, String repositoryPassword) {
+      this(remoteURL, localFile, repositoryUserName, repositoryPassword, null);
+    }
+
+    /**
+     * @param sha1Consumer if not null, is passed the SHA-1 hash of the file, computed while it was
+     *     downloaded.
+     */
+    public FetchToFileTask(
+        URL remoteURL,
+        File localFile,
+        String repositoryUserName,
+        String repositoryPassword,
+        @Nullable Consumer<HashCode> sha1Consumer) {
       this.remoteURL = remoteURL;
       this.localFile = localFile;
       this.repositoryUserName = repositoryUserName;
       this.repositoryPassword = repositoryPassword;
+      this.sha1Consumer = sha1Consumer;
     }
 
     @Override
@@ -187,9 +246,13 @@ public class MavenArtifactFetcher {
       }
 
       Logger.info("Transferring " + remoteURL);
-      try (InputStream inputStream = connection.getInputStream();
+      try (HashingInputStream inputStream =
+              new HashingInputStream(Hashing.sha1(), connection.getInputStream());
           FileOutputStream outputStream = new FileOutputStream(localFile)) {
         ByteStreams.copy(inputStream, outputStream);
+        if (sha1Consumer != null) {
+          sha1Consumer.accept(inputStream.hash());
+        }
       }
       return Futures.immediateFuture(null);
     }
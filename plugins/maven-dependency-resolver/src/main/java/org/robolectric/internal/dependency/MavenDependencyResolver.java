@@ -10,8 +10,11 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -34,11 +37,25 @@ import org.xml.sax.SAXException;
  * <p>This uses only basic {@link java.net.HttpURLConnection} for fetching. In general using an HTTP
  * client library here could create conflicts with the ones in the Android system.
  *
+ * <p>Each artifact is fetched while holding a lock specific to it, so processes (and threads)
+ * fetching different artifacts don't block each other. Artifacts can be fetched ahead of time with
+ * {@link #main(String...)}.
+ *
  * @see <a href="https://maven.apache.org/ant-tasks/">maven-ant-tasks</a>
  * @see <a href="https://maven.apache.org/resolver/index.html">Maven Resolver</a></a>
  */
 public class MavenDependencyResolver implements DependencyResolver {
 
+  /** The most artifacts fetched at once by {@link #getLocalArtifactUrls(DependencyJar...)}. */
+  private static final int MAX_CONCURRENT_ARTIFACTS = 4;
+
+  /**
+   * File locks are held by the whole JVM, so threads fetching the same artifact must also hold an
+   * in-process lock to avoid {@link java.nio.channels.OverlappingFileLockException}s.
+   */
+  private static final ConcurrentHashMap<String, Object> IN_PROCESS_LOCKS =
+      new ConcurrentHashMap<>();
+
   private final ExecutorService executorService;
   private final MavenArtifactFetcher mavenArtifactFetcher;
   private final File localRepositoryDir;
@@ -68,18 +85,21 @@ public class MavenDependencyResolver implements DependencyResolver {
   /**
    * Get an array of local artifact URLs for the given dependencies. The order of the URLs is guaranteed to be the
    * same as the input order of dependencies, i.e., urls[i] is the local artifact URL for dependencies[i].
+   *
+   * <p>Missing artifacts are fetched concurrently.
    */
   @SuppressWarnings("NewApi")
   public URL[] getLocalArtifactUrls(DependencyJar... dependencies) {
     List<MavenJarArtifact> artifacts = new ArrayList<>(dependencies.length);
-    whileLocked(
-        () -> {
-          for (DependencyJar dependencyJar : dependencies) {
-            MavenJarArtifact artifact = new MavenJarArtifact(dependencyJar);
-            artifacts.add(artifact);
-            mavenArtifactFetcher.fetchArtifact(artifact);
-          }
-        });
+    for (DependencyJar dependencyJar : dependencies) {
+      artifacts.add(new MavenJarArtifact(dependencyJar));
+    }
+    if (artifacts.size() == 1) {
+      fetchArtifact(artifacts.get(0));
+    } else if (!artifacts.isEmpty()) {
+      fetchArtifacts(artifacts);
+    }
+
     URL[] urls = new URL[dependencies.length];
     try {
       for (int i = 0; i < artifacts.size(); i++) {
@@ -92,25 +112,78 @@ public class MavenDependencyResolver implements DependencyResolver {
     return urls;
   }
 
-  private void whileLocked(Runnable runnable) {
-    File lockFile = createLockFile();
-    try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw")) {
-      try (FileChannel channel = raf.getChannel()) {
-        try (FileLock ignored = channel.lock()) {
-          runnable.run();
-        }
+  private void fetchArtifacts(List<MavenJarArtifact> artifacts) {
+    ExecutorService artifactExecutor =
+        Executors.newFixedThreadPool(
+            Math.min(artifacts.size(), MAX_CONCURRENT_ARTIFACTS),
+            r -> {
+              Thread thread = new Thread(r, "Robolectric artifact fetcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<Future<?>> futures = new ArrayList<>(artifacts.size());
+      for (MavenJarArtifact artifact : artifacts) {
+        futures.add(artifactExecutor.submit(() -> fetchArtifact(artifact)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
       }
-    } catch (IOException e) {
-      throw new IllegalStateException("Couldn't create lock file " + lockFile, e);
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
     } finally {
-      lockFile.delete();
+      artifactExecutor.shutdownNow();
+    }
+  }
+
+  private void fetchArtifact(MavenJarArtifact artifact) {
+    whileLocked(createLockFile(artifact), () -> mavenArtifactFetcher.fetchArtifact(artifact));
+  }
+
+  private static void whileLocked(File lockFile, Runnable runnable) {
+    Object inProcessLock =
+        IN_PROCESS_LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), path -> new Object());
+    synchronized (inProcessLock) {
+      // The lock file isn't deleted afterwards: another process could be waiting to lock it, and
+      // would then hold a lock on a file that a third process could no longer see.
+      lockFile.getParentFile().mkdirs();
+      try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw")) {
+        try (FileChannel channel = raf.getChannel()) {
+          try (FileLock ignored = channel.lock()) {
+            runnable.run();
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Couldn't create lock file " + lockFile, e);
+      }
     }
   }
 
+  /**
+   * Returns the file that was locked while any artifact was being fetched.
+   *
+   * @deprecated artifacts are now locked individually; override {@link
+   *     #createLockFile(MavenJarArtifact)} instead. Overriding this still moves the per-artifact
+   *     lock files, which are kept in a directory alongside it.
+   */
+  @Deprecated
   protected File createLockFile() {
     return new File(System.getProperty("user.home"), ".robolectric-download-lock");
   }
 
+  /** Returns the file that is locked while {@code artifact} is being fetched. */
+  @SuppressWarnings("deprecation")
+  protected File createLockFile(MavenJarArtifact artifact) {
+    return new File(createLockFile().getPath() + ".d", artifact.jarPath() + ".lock");
+  }
+
   @Override
   public URL getLocalArtifactUrl(DependencyJar dependency) {
     URL[] urls = getLocalArtifactUrls(dependency);
@@ -170,6 +243,45 @@ public class MavenDependencyResolver implements DependencyResolver {
   }
 
   protected ExecutorService createExecutorService() {
-    return Executors.newFixedThreadPool(2);
+    // Four files are downloaded per artifact.
+    return Executors.newFixedThreadPool(4 * MAX_CONCURRENT_ARTIFACTS);
+  }
+
+  /**
+   * Fetches artifacts into the local Maven repository ahead of time, e.g. to warm up a CI cache.
+   * Artifacts are given as {@code groupId:artifactId:version} coordinates, e.g. {@code
+   * org.robolectric:android-all-instrumented:12.1-robolectric-8229987-i4}.
+   *
+   * <p>The repository is configured with the usual {@code robolectric.dependency.repo.*} system
+   * properties; {@code robolectric.dependency.repo.url} may be the path of a local mirror
+   * directory.
+   */
+  public static void main(String... args) {
+    if (args.length == 0) {
+      System.err.println(
+          "Usage: "
+              + MavenDependencyResolver.class.getName()
+              + " groupId:artifactId:version [groupId:artifactId:version ...]");
+      System.exit(1);
+    }
+
+    DependencyJar[] dependencies = new DependencyJar[args.length];
+    for (int i = 0; i < args.length; i++) {
+      String[] coordinates = args[i].split(":", -1);
+      if (coordinates.length != 3) {
+        throw new IllegalArgumentException("expected groupId:artifactId:version but got " + args[i]);
+      }
+      dependencies[i] = new DependencyJar(coordinates[0], coordinates[1], coordinates[2]);
+    }
+
+    MavenDependencyResolver resolver = new MavenDependencyResolver();
+    try {
+      URL[] urls = resolver.getLocalArtifactUrls(dependencies);
+      for (URL url : urls) {
+        System.out.println(url);
+      }
+    } finally {
+      resolver.executorService.shutdown();
+    }
   }
 }
@@ -1,6 +1,7 @@
 package org.robolectric.internal.dependency;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertThrows;
 
 import com.google.common.hash.HashFunction;
@@ -9,12 +10,17 @@ import com.google.common.io.Files;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.sun.net.httpserver.HttpServer;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -160,6 +166,103 @@ public class MavenDependencyResolverTest {
         AssertionError.class, () -> mavenDependencyResolver.getLocalArtifactUrl(dependencyJar));
   }
 
+  @Test
+  public void getLocalArtifactUrls_fetchesConcurrentlyOverHttp() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    AtomicInteger numRequests = new AtomicInteger();
+    AtomicInteger inFlightRequests = new AtomicInteger();
+    AtomicInteger maxInFlightRequests = new AtomicInteger();
+    // Each request waits for another to arrive, so fetches that run concurrently overlap.
+    CountDownLatch overlappingRequests = new CountDownLatch(2);
+    server.createContext(
+        "/",
+        exchange -> {
+          numRequests.incrementAndGet();
+          maxInFlightRequests.accumulateAndGet(inFlightRequests.incrementAndGet(), Math::max);
+          try {
+            overlappingRequests.countDown();
+            overlappingRequests.await(10, SECONDS);
+            File file = new File(REPOSITORY_DIR, exchange.getRequestURI().getPath().substring(1));
+            if (!file.isFile()) {
+              exchange.sendResponseHeaders(404, -1);
+            } else {
+              byte[] contents = Files.toByteArray(file);
+              exchange.sendResponseHeaders(200, contents.length);
+              exchange.getResponseBody().write(contents);
+            }
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          } finally {
+            inFlightRequests.decrementAndGet();
+            exchange.close();
+          }
+        });
+    ExecutorService serverExecutorService = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutorService);
+    server.start();
+    ExecutorService fetchExecutorService = Executors.newFixedThreadPool(4);
+    try {
+      String repositoryUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+      MavenDependencyResolver resolver =
+          new MavenDependencyResolver(repositoryUrl, "test", null, null) {
+            @Override
+            protected File getLocalRepositoryDir() {
+              return localRepositoryDir;
+            }
+
+            @Override
+            protected ExecutorService createExecutorService() {
+              return fetchExecutorService;
+            }
+
+            @Override
+            protected File createLockFile(MavenJarArtifact artifact) {
+              return tempLockFile();
+            }
+          };
+
+      URL[] urls = resolver.getLocalArtifactUrls(successCases);
+
+      assertThat(numRequests.get()).isEqualTo(4 * successCases.length);
+      assertThat(maxInFlightRequests.get()).isGreaterThan(1);
+      for (int i = 0; i < successCases.length; i++) {
+        MavenJarArtifact artifact = new MavenJarArtifact(successCases[i]);
+        assertThat(urls[i])
+            .isEqualTo(new File(localRepositoryDir, artifact.jarPath()).toURI().toURL());
+        checkJarArtifact(artifact);
+      }
+    } finally {
+      fetchExecutorService.shutdown();
+      server.stop(0);
+      serverExecutorService.shutdown();
+    }
+  }
+
+  @Test
+  public void getLocalArtifactUrl_acceptsLocalMirrorDirectory() throws Exception {
+    MavenDependencyResolver resolver =
+        new MavenDependencyResolver(REPOSITORY_DIR.getAbsolutePath(), "mirror", null, null) {
+          @Override
+          protected File getLocalRepositoryDir() {
+            return localRepositoryDir;
+          }
+
+          @Override
+          protected ExecutorService createExecutorService() {
+            return executorService;
+          }
+
+          @Override
+          protected File createLockFile(MavenJarArtifact artifact) {
+            return tempLockFile();
+          }
+        };
+
+    resolver.getLocalArtifactUrl(successCases[1]);
+
+    checkJarArtifact(new MavenJarArtifact(successCases[1]));
+  }
+
   class TestMavenDependencyResolver extends MavenDependencyResolver {
 
     @Override
@@ -183,12 +286,16 @@ public class MavenDependencyResolverTest {
     }
 
     @Override
-    protected File createLockFile() {
-      try {
-        return File.createTempFile("MavenDependencyResolverTest", null);
-      } catch (IOException e) {
-        throw new AssertionError(e);
-      }
+    protected File createLockFile(MavenJarArtifact artifact) {
+      return tempLockFile();
+    }
+  }
+
+  private static File tempLockFile() {
+    try {
+      return File.createTempFile("MavenDependencyResolverTest", null);
+    } catch (IOException e) {
+      throw new AssertionError(e);
     }
   }
 
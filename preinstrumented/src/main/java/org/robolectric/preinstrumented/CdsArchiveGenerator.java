@@ -0,0 +1,162 @@
+package org.robolectric.preinstrumented;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates a dynamic class data sharing (AppCDS) archive for a Robolectric test classpath.
+ *
+ * <p>The archive is recorded by running a training command (typically a few Robolectric tests) with
+ * {@code -XX:ArchiveClassesAtExit}. It holds the parsed metadata of the classes loaded by that run:
+ * Robolectric's runtime classes and, when the classpath uses the preinstrumented android-all jars,
+ * the android classes loaded by the sandboxes too, since those are defined from unmodified jar
+ * bytes. The JVM only archives classes defined by a custom class loader if they have a code source,
+ * so the training command runs with {@code -Drobolectric.cds=true}, which makes SandboxClassLoader
+ * define each class with one for the jar it was read from. Test JVMs launched with {@code
+ * -XX:SharedArchiveFile=<archive>} and that property map that metadata rather than parsing the
+ * classes again. Classes instrumented at runtime still have to be instrumented.
+ *
+ * <p>The archive is only valid for the JVM that created it and the exact classpath it was created
+ * with; otherwise the JVM ignores it (with a warning). Requires JDK 13 or later.
+ */
+public class CdsArchiveGenerator {
+
+  private static final int DEFAULT_MEASUREMENT_RUNS = 3;
+  // Makes SandboxClassLoader define classes with a code source, so the JVM can archive them.
+  private static final String CLASS_DATA_SHARING_ARG = "-Drobolectric.cds=true";
+
+  private final String javaExecutable;
+  private final File archiveFile;
+  private final String classpath;
+  private final List<String> command;
+
+  public CdsArchiveGenerator(File archiveFile, String classpath, List<String> command) {
+    this.javaExecutable =
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    this.archiveFile = archiveFile;
+    this.classpath = classpath;
+    this.command = command;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 3) {
+      System.err.println(
+          "Usage: CdsArchiveGenerator <archive file> <classpath> <main class> [args...]\n"
+              + "  e.g. CdsArchiveGenerator robolectric.jsa <test classpath>"
+              + " org.junit.runner.JUnitCore com.example.MyRobolectricTest\n"
+              + "Set -Drobolectric.cds.measurementRuns=<n> to change the number of timed runs.");
+      System.exit(1);
+    }
+    if (!isSupported()) {
+      System.err.println("Dynamic CDS archives require JDK 13 or later");
+      System.exit(1);
+    }
+
+    CdsArchiveGenerator generator =
+        new CdsArchiveGenerator(
+            new File(args[0]), args[1], Arrays.asList(args).subList(2, args.length));
+    generator.generate();
+    generator.measure(
+        Integer.getInteger("robolectric.cds.measurementRuns", DEFAULT_MEASUREMENT_RUNS));
+  }
+
+  /** Records the archive by running the training command. */
+  public void generate() throws IOException, InterruptedException {
+    File parentDir = archiveFile.getAbsoluteFile().getParentFile();
+    if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+      throw new IOException("couldn't create " + parentDir);
+    }
+    if (archiveFile.exists() && !archiveFile.delete()) {
+      throw new IOException("couldn't delete " + archiveFile);
+    }
+
+    long elapsedNs =
+        run(
+            Arrays.asList(
+                CLASS_DATA_SHARING_ARG,
+                "-XX:ArchiveClassesAtExit=" + archiveFile.getAbsolutePath()));
+    if (!archiveFile.exists()) {
+      throw new IOException("the JVM didn't write " + archiveFile);
+    }
+    System.out.println(
+        String.format(
+            Locale.getDefault(),
+            "Wrote %s (%d KB) in %1.2f seconds",
+            archiveFile,
+            archiveFile.length() / 1024,
+            elapsedNs / 1000000000.0));
+  }
+
+  /** Times the training command with and without the archive. */
+  public void measure(int runs) throws IOException, InterruptedException {
+    if (runs <= 0) {
+      return;
+    }
+    List<String> withoutArchive = Collections.singletonList("-Xshare:auto");
+    List<String> withArchive =
+        Arrays.asList(
+            "-Xshare:auto",
+            CLASS_DATA_SHARING_ARG,
+            "-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath());
+    // Warm up the OS file cache so the first timed run isn't penalized.
+    run(withoutArchive);
+
+    long[] withoutArchiveNs = new long[runs];
+    long[] withArchiveNs = new long[runs];
+    for (int i = 0; i < runs; i++) {
+      // Interleave the runs so that noise on the machine affects both equally.
+      withoutArchiveNs[i] = run(withoutArchive);
+      withArchiveNs[i] = run(withArchive);
+    }
+    long medianWithoutNs = median(withoutArchiveNs);
+    long medianWithNs = median(withArchiveNs);
+    System.out.println(
+        String.format(
+            Locale.getDefault(),
+            "Median of %d runs: %1.2f seconds without the archive, %1.2f seconds with it"
+                + " (%+1.1f%%)",
+            runs,
+            medianWithoutNs / 1000000000.0,
+            medianWithNs / 1000000000.0,
+            (medianWithNs - medianWithoutNs) * 100.0 / medianWithoutNs));
+  }
+
+  private long run(List<String> jvmArgs) throws IOException, InterruptedException {
+    List<String> processCommand = new ArrayList<>();
+    processCommand.add(javaExecutable);
+    processCommand.addAll(jvmArgs);
+    processCommand.add("-cp");
+    processCommand.add(classpath);
+    processCommand.addAll(command);
+
+    long startNs = System.nanoTime();
+    Process process =
+        new ProcessBuilder(processCommand)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    int exitCode = process.waitFor();
+    long elapsedNs = System.nanoTime() - startNs;
+    if (exitCode != 0) {
+      throw new IOException("training command failed with exit code " + exitCode);
+    }
+    return elapsedNs;
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static boolean isSupported() {
+    String specVersion = System.getProperty("java.specification.version");
+    // Versions before 9 are of the form "1.8".
+    return !specVersion.startsWith("1.") && Integer.parseInt(specVersion) >= 13;
+  }
+}
@@ -15,8 +15,10 @@ import javax.annotation.processing.SupportedOptions;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
 import org.robolectric.annotation.processing.generator.Generator;
 import org.robolectric.annotation.processing.generator.JavadocJsonGenerator;
+import org.robolectric.annotation.processing.generator.ReflectorGenerator;
 import org.robolectric.annotation.processing.generator.ServiceLoaderGenerator;
 import org.robolectric.annotation.processing.generator.ShadowProviderGenerator;
 import org.robolectric.annotation.processing.validator.ImplementationValidator;
@@ -33,7 +35,7 @@ import org.robolectric.annotation.processing.validator.Validator;
 @SupportedOptions({
   RobolectricProcessor.PACKAGE_OPT, 
   RobolectricProcessor.SHOULD_INSTRUMENT_PKG_OPT})
-@SupportedAnnotationTypes("org.robolectric.annotation.*")
+@SupportedAnnotationTypes({"org.robolectric.annotation.*", ReflectorGenerator.FOR_TYPE})
 public class RobolectricProcessor extends AbstractProcessor {
   static final String PACKAGE_OPT = "org.robolectric.annotation.processing.shadowPackage";
   static final String SHOULD_INSTRUMENT_PKG_OPT = 
@@ -54,6 +56,7 @@ public class RobolectricProcessor extends AbstractProcessor {
   private boolean generated = false;
   private final List<Generator> generators = new ArrayList<>();
   private final Map<TypeElement, Validator> elementValidators = new HashMap<>(13);
+  private final List<TypeElement> reflectorInterfaces = new ArrayList<>();
   private File jsonDocsDir;
   private boolean jsonDocsEnabled;
 
@@ -99,6 +102,10 @@ public class RobolectricProcessor extends AbstractProcessor {
           validator.visit(elem, elem.getEnclosingElement());
         }
       }
+      if (annotation.getQualifiedName().contentEquals(ReflectorGenerator.FOR_TYPE)) {
+        reflectorInterfaces.addAll(
+            ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation)));
+      }
     }
 
     if (!generated) {
@@ -108,6 +115,7 @@ public class RobolectricProcessor extends AbstractProcessor {
           new ShadowProviderGenerator(
               model, processingEnv, shadowPackage, shouldInstrumentPackages, priority));
       generators.add(new ServiceLoaderGenerator(processingEnv, shadowPackage));
+      generators.add(new ReflectorGenerator(processingEnv, reflectorInterfaces));
       if (jsonDocsEnabled) {
         generators.add(new JavadocJsonGenerator(model, processingEnv, jsonDocsDir));
       }
@@ -0,0 +1,476 @@
+package org.robolectric.annotation.processing.generator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.robolectric.annotation.processing.Helpers;
+
+/**
+ * Generator that creates implementations of {@code @ForType} reflector interfaces, so that {@code
+ * Reflector} doesn't need to generate them at runtime.
+ *
+ * <p>The generated class for an interface is named after the interface's binary name with a {@code
+ * $$Reflector} suffix, which is where {@code Reflector} looks for it. It makes the same reflective
+ * calls as the runtime-generated class would. Interfaces that the generated class couldn't
+ * implement (private interfaces, generic methods, inaccessible parameter types, etc.) are skipped,
+ * and are implemented at runtime as before.
+ */
+public class ReflectorGenerator extends Generator {
+  public static final String FOR_TYPE = "org.robolectric.util.reflector.ForType";
+  private static final String ACCESSOR = "org.robolectric.util.reflector.Accessor";
+  private static final String DIRECT = "org.robolectric.util.reflector.Direct";
+  private static final String STATIC = "org.robolectric.util.reflector.Static";
+  private static final String WITH_TYPE = "org.robolectric.util.reflector.WithType";
+  private static final String SUFFIX = "$$Reflector";
+
+  private final Filer filer;
+  private final Messager messager;
+  private final Elements elements;
+  private final Types types;
+  private final List<TypeElement> reflectorInterfaces;
+
+  public ReflectorGenerator(
+      ProcessingEnvironment environment, List<TypeElement> reflectorInterfaces) {
+    this.filer = environment.getFiler();
+    this.messager = environment.getMessager();
+    this.elements = environment.getElementUtils();
+    this.types = environment.getTypeUtils();
+    this.reflectorInterfaces = reflectorInterfaces;
+  }
+
+  @Override
+  public void generate() {
+    for (TypeElement iface : reflectorInterfaces) {
+      ReflectorInfo info = getReflectorInfo(iface);
+      if (info == null) {
+        continue;
+      }
+
+      String className = getReflectorClassName(iface);
+      try {
+        JavaFileObject jfo = filer.createSourceFile(className, iface);
+        try (PrintWriter writer = new PrintWriter(jfo.openWriter())) {
+          generate(writer, info);
+        }
+      } catch (IOException e) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write reflector class file: " + e);
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  String getReflectorClassName(TypeElement iface) {
+    return elements.getBinaryName(iface) + SUFFIX;
+  }
+
+  void generate(PrintWriter writer, ReflectorInfo info) {
+    TypeElement iface = info.iface;
+    String packageName = elements.getPackageOf(iface).getQualifiedName().toString();
+    String binaryName = elements.getBinaryName(iface).toString();
+    String simpleName = binaryName.substring(binaryName.lastIndexOf('.') + 1) + SUFFIX;
+    String ifaceName = iface.getQualifiedName().toString();
+
+    if (!packageName.isEmpty()) {
+      writer.println("package " + packageName + ";");
+      writer.println();
+    }
+    writer.println("/**");
+    writer.println(" * Reflector for {@link " + ifaceName + "}.");
+    writer.println(" * Automatically generated by the Robolectric Annotation Processor.");
+    writer.println(" */");
+    writer.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+    writer.println("final class " + simpleName + " implements " + ifaceName + " {");
+    writer.println(
+        "  private static final java.lang.Class<?> TARGET_CLASS = loadTargetClass(\""
+            + info.targetClassName
+            + "\");");
+    writer.println();
+    for (int i = 0; i < info.methods.size(); i++) {
+      writer.println("  private static java.lang.reflect.Method method" + i + ";");
+    }
+    for (String fieldName : info.fieldNames) {
+      writer.println("  private static java.lang.reflect.Field field$" + fieldName + ";");
+    }
+    writer.println();
+    writer.println("  private final java.lang.Object target;");
+    writer.println();
+    writer.println("  public " + simpleName + "(java.lang.Object target) {");
+    writer.println("    this.target = target;");
+    writer.println("  }");
+
+    for (int i = 0; i < info.methods.size(); i++) {
+      writer.println();
+      writeMethod(writer, info, info.methods.get(i), i);
+    }
+    for (ExecutableElement accessor : info.accessors) {
+      writer.println();
+      writeAccessor(writer, accessor);
+    }
+    for (String fieldName : info.fieldNames) {
+      writer.println();
+      writer.println(
+          "  private static java.lang.reflect.Field field$"
+              + fieldName
+              + "() throws java.lang.ReflectiveOperationException {");
+      writer.println("    if (field$" + fieldName + " == null) {");
+      writer.println(
+          "      java.lang.reflect.Field field = TARGET_CLASS.getDeclaredField(\""
+              + fieldName
+              + "\");");
+      writer.println("      field.setAccessible(true);");
+      writer.println("      field$" + fieldName + " = field;");
+      writer.println("    }");
+      writer.println("    return field$" + fieldName + ";");
+      writer.println("  }");
+    }
+
+    writer.println();
+    writer.println("  private static java.lang.Class<?> loadTargetClass(java.lang.String name) {");
+    writer.println("    try {");
+    writer.println(
+        "      return java.lang.Class.forName(name, false, "
+            + ifaceName
+            + ".class.getClassLoader());");
+    writer.println("    } catch (java.lang.ClassNotFoundException e) {");
+    writer.println(
+        "      throw new java.lang.IllegalArgumentException("
+            + "\"failed to resolve @ForType class for "
+            + ifaceName
+            + "\", e);");
+    writer.println("    }");
+    writer.println("  }");
+    writer.println();
+    writer.println(
+        "  private static java.lang.Class<?> withType("
+            + "java.lang.String name, java.lang.Class<?> declaredType) {");
+    writer.println("    try {");
+    writer.println(
+        "      return java.lang.Class.forName(name, true, "
+            + ifaceName
+            + ".class.getClassLoader());");
+    writer.println("    } catch (java.lang.ClassNotFoundException e) {");
+    writer.println("      return declaredType;");
+    writer.println("    }");
+    writer.println("  }");
+    writer.println();
+    writer.println(
+        "  private static <T extends java.lang.Throwable> java.lang.RuntimeException sneakyThrow(");
+    writer.println("      java.lang.Throwable t) throws T {");
+    writer.println("    throw (T) t;");
+    writer.println("  }");
+    writer.println("}");
+  }
+
+  private void writeMethod(
+      PrintWriter writer, ReflectorInfo info, ExecutableElement method, int number) {
+    String methodRef = "method" + number;
+    List<? extends VariableElement> params = method.getParameters();
+    writeSignature(writer, method);
+    writer.println("    try {");
+    writer.println("      if (" + methodRef + " == null) {");
+    StringBuilder paramTypes = new StringBuilder();
+    for (VariableElement param : params) {
+      paramTypes.append(", ");
+      AnnotationMirror withType = getAnnotationMirror(param, WITH_TYPE);
+      if (withType == null) {
+        paramTypes.append(getErasedName(param.asType())).append(".class");
+      } else {
+        String withTypeName =
+            Helpers.getAnnotationStringValue(
+                Helpers.getAnnotationTypeMirrorValue(withType, "value"));
+        paramTypes
+            .append("withType(\"")
+            .append(withTypeName)
+            .append("\", ")
+            .append(getErasedName(param.asType()))
+            .append(".class)");
+      }
+    }
+    writer.println(
+        "        java.lang.reflect.Method method = TARGET_CLASS.getDeclaredMethod(\""
+            + getTargetMethodName(info, method)
+            + "\""
+            + paramTypes
+            + ");");
+    writer.println("        method.setAccessible(true);");
+    writer.println("        " + methodRef + " = method;");
+    writer.println("      }");
+    String invocation = methodRef + ".invoke(" + getTarget(method) + ", " + getArgArray(method) + ")";
+    writer.println("      " + getReturnPrefix(method) + invocation + ";");
+    writer.println("    } catch (java.lang.reflect.InvocationTargetException e) {");
+    writer.println("      throw sneakyThrow(e.getCause());");
+    writer.println("    } catch (java.lang.ReflectiveOperationException e) {");
+    writer.println("      throw new java.lang.AssertionError(");
+    writer.println(
+        "          \"Error invoking reflector method in ClassLoader \""
+            + " + TARGET_CLASS.getClassLoader(), e);");
+    writer.println("    }");
+    writer.println("  }");
+  }
+
+  private void writeAccessor(PrintWriter writer, ExecutableElement accessor) {
+    String fieldRef = "field$" + getAccessorFieldName(accessor) + "()";
+    writeSignature(writer, accessor);
+    writer.println("    try {");
+    if (accessor.getParameters().isEmpty()) {
+      writer.println(
+          "      " + getReturnPrefix(accessor) + fieldRef + ".get(" + getTarget(accessor) + ");");
+    } else {
+      writer.println("      " + fieldRef + ".set(" + getTarget(accessor) + ", arg0);");
+    }
+    writer.println("    } catch (java.lang.ReflectiveOperationException e) {");
+    writer.println("      throw sneakyThrow(e);");
+    writer.println("    }");
+    writer.println("  }");
+  }
+
+  private void writeSignature(PrintWriter writer, ExecutableElement method) {
+    StringBuilder params = new StringBuilder();
+    List<? extends VariableElement> parameters = method.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        params.append(", ");
+      }
+      params.append(getErasedName(parameters.get(i).asType())).append(" arg").append(i);
+    }
+    writer.println("  @java.lang.Override");
+    writer.println(
+        "  public "
+            + getErasedName(method.getReturnType())
+            + " "
+            + method.getSimpleName()
+            + "("
+            + params
+            + ") {");
+  }
+
+  private String getTarget(ExecutableElement method) {
+    return getAnnotationMirror(method, STATIC) == null ? "target" : "null";
+  }
+
+  private static String getArgArray(ExecutableElement method) {
+    StringBuilder args = new StringBuilder("new java.lang.Object[] {");
+    for (int i = 0; i < method.getParameters().size(); i++) {
+      args.append(i == 0 ? "" : ", ").append("arg").append(i);
+    }
+    return args.append("}").toString();
+  }
+
+  private String getReturnPrefix(ExecutableElement method) {
+    TypeMirror returnType = method.getReturnType();
+    if (returnType.getKind() == TypeKind.VOID) {
+      return "";
+    }
+    return "return (" + getErasedName(returnType) + ") ";
+  }
+
+  private String getTargetMethodName(ReflectorInfo info, ExecutableElement method) {
+    String methodName = method.getSimpleName().toString();
+    if (info.direct || getAnnotationMirror(method, DIRECT) != null) {
+      methodName =
+          "$$robo$$"
+              + info.targetClassName.replace('.', '_').replace('$', '_')
+              + "$"
+              + methodName;
+    }
+    return methodName;
+  }
+
+  /** Returns what's needed to generate a reflector, or null if it can't be generated. */
+  ReflectorInfo getReflectorInfo(TypeElement iface) {
+    AnnotationMirror forType = getAnnotationMirror(iface, FOR_TYPE);
+    if (forType == null
+        || iface.getKind() != ElementKind.INTERFACE
+        || !iface.getTypeParameters().isEmpty()
+        || !isAccessible(iface, elements.getPackageOf(iface))) {
+      return null;
+    }
+
+    ReflectorInfo info = new ReflectorInfo(iface);
+    AnnotationValue value = Helpers.getAnnotationTypeMirrorValue(forType, "value");
+    AnnotationValue className = Helpers.getAnnotationTypeMirrorValue(forType, "className");
+    AnnotationValue direct = Helpers.getAnnotationTypeMirrorValue(forType, "direct");
+    TypeMirror valueType = value == null ? null : Helpers.getAnnotationTypeMirrorValue(value);
+    if (valueType != null && valueType.getKind() == TypeKind.DECLARED) {
+      info.targetClassName =
+          elements.getBinaryName((TypeElement) types.asElement(valueType)).toString();
+    } else if (className != null) {
+      info.targetClassName = Helpers.getAnnotationStringValue(className);
+    }
+    if (info.targetClassName == null || info.targetClassName.isEmpty()) {
+      return null;
+    }
+    info.direct = direct != null && Boolean.TRUE.equals(direct.getValue());
+
+    PackageElement packageElement = elements.getPackageOf(iface);
+    Set<String> signatures = new HashSet<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(iface))) {
+      if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue;
+      }
+      if (!method.getTypeParameters().isEmpty()
+          || !isAccessible(method.getReturnType(), packageElement)) {
+        return null;
+      }
+      StringBuilder signature = new StringBuilder(method.getSimpleName());
+      for (VariableElement param : method.getParameters()) {
+        if (!isAccessible(param.asType(), packageElement)) {
+          return null;
+        }
+        signature.append(',').append(getErasedName(param.asType()));
+      }
+      if (!signatures.add(signature.toString())) {
+        // Inherited from several interfaces; let the runtime sort it out.
+        return null;
+      }
+
+      if (getAnnotationMirror(method, ACCESSOR) != null) {
+        if (!isValidAccessor(method)) {
+          // Report the problem at runtime, as before.
+          return null;
+        }
+        info.accessors.add(method);
+        String fieldName = getAccessorFieldName(method);
+        if (!info.fieldNames.contains(fieldName)) {
+          info.fieldNames.add(fieldName);
+        }
+      } else {
+        info.methods.add(method);
+      }
+    }
+    return info;
+  }
+
+  private String getAccessorFieldName(ExecutableElement accessor) {
+    return Helpers.getAnnotationStringValue(
+        Helpers.getAnnotationTypeMirrorValue(getAnnotationMirror(accessor, ACCESSOR), "value"));
+  }
+
+  private boolean isValidAccessor(ExecutableElement accessor) {
+    String name = accessor.getSimpleName().toString();
+    boolean isVoid = accessor.getReturnType().getKind() == TypeKind.VOID;
+    int paramCount = accessor.getParameters().size();
+    String fieldName = getAccessorFieldName(accessor);
+    if (fieldName == null || !isJavaIdentifier(fieldName)) {
+      return false;
+    }
+    if (name.startsWith("get")) {
+      return !isVoid && paramCount == 0;
+    } else if (name.startsWith("set")) {
+      return isVoid && paramCount == 1;
+    }
+    return false;
+  }
+
+  private static boolean isJavaIdentifier(String name) {
+    if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether {@code type} can be named in source in {@code packageElement}. */
+  private boolean isAccessible(TypeMirror type, PackageElement packageElement) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case CHAR:
+      case FLOAT:
+      case DOUBLE:
+      case VOID:
+        return true;
+      case ARRAY:
+        return isAccessible(((ArrayType) type).getComponentType(), packageElement);
+      case DECLARED:
+        return isAccessible(
+            (TypeElement) ((DeclaredType) type).asElement(), packageElement);
+      default:
+        // Type variables, unresolvable types, etc.
+        return false;
+    }
+  }
+
+  private boolean isAccessible(TypeElement typeElement, PackageElement packageElement) {
+    for (Element element = typeElement;
+        element instanceof TypeElement;
+        element = element.getEnclosingElement()) {
+      Set<Modifier> modifiers = element.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE)) {
+        return false;
+      }
+      if (!modifiers.contains(Modifier.PUBLIC)
+          && !elements.getPackageOf(element).equals(packageElement)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String getErasedName(TypeMirror type) {
+    TypeMirror erased = types.erasure(type);
+    switch (erased.getKind()) {
+      case ARRAY:
+        return getErasedName(((ArrayType) erased).getComponentType()) + "[]";
+      case DECLARED:
+        return ((TypeElement) ((DeclaredType) erased).asElement()).getQualifiedName().toString();
+      default:
+        return erased.getKind().name().toLowerCase(java.util.Locale.ROOT);
+    }
+  }
+
+  private static AnnotationMirror getAnnotationMirror(Element element, String annotationName) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+      if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  /** A reflector interface for which an implementation can be generated. */
+  static class ReflectorInfo {
+    private final TypeElement iface;
+    private final List<ExecutableElement> methods = new ArrayList<>();
+    private final List<ExecutableElement> accessors = new ArrayList<>();
+    private final List<String> fieldNames = new ArrayList<>();
+    private String targetClassName;
+    private boolean direct;
+
+    ReflectorInfo(TypeElement iface) {
+      this.iface = iface;
+    }
+  }
+}
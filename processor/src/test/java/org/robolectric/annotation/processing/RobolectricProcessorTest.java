@@ -207,4 +207,20 @@ public class RobolectricProcessorTest {
     .and()
     .generatesSources(forResource("org/robolectric/Robolectric_EmptyProvidedPackageNames.java"));
   }
+
+  @Test
+  public void generatedFile_shouldGenerateReflectorImplementations() {
+    assertAbout(javaSources())
+        .that(ImmutableList.of(
+            SHADOW_PROVIDER_SOURCE,
+            SHADOW_EXTRACTOR_SOURCE,
+            forResource("mock-source/org/robolectric/util/reflector/Accessor.java"),
+            forResource("mock-source/org/robolectric/util/reflector/ForType.java"),
+            forResource("mock-source/org/robolectric/util/reflector/Static.java"),
+            forResource("org/robolectric/annotation/processing/shadows/ShadowWithReflectors.java")))
+        .processedWith(new RobolectricProcessor(DEFAULT_OPTS))
+        .compilesWithoutError()
+        .and()
+        .generatesSources(forResource("org/robolectric/Reflector_ShadowWithReflectors.java"));
+  }
 }
@@ -0,0 +1,5 @@
+package org.robolectric.util.reflector;
+
+public @interface Accessor {
+  String value();
+}
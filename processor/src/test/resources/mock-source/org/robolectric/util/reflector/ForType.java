@@ -0,0 +1,9 @@
+package org.robolectric.util.reflector;
+
+public @interface ForType {
+  Class<?> value() default void.class;
+
+  String className() default "";
+
+  boolean direct() default false;
+}
@@ -0,0 +1,3 @@
+package org.robolectric.util.reflector;
+
+public @interface Static {}
@@ -0,0 +1,102 @@
+package org.robolectric.annotation.processing.shadows;
+
+/**
+ * Reflector for {@link org.robolectric.annotation.processing.shadows.ShadowWithReflectors.DummyReflector}.
+ * Automatically generated by the Robolectric Annotation Processor.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class ShadowWithReflectors$DummyReflector$$Reflector implements org.robolectric.annotation.processing.shadows.ShadowWithReflectors.DummyReflector {
+  private static final java.lang.Class<?> TARGET_CLASS = loadTargetClass("com.example.objects.Dummy");
+
+  private static java.lang.reflect.Method method0;
+  private static java.lang.reflect.Method method1;
+  private static java.lang.reflect.Field field$count;
+
+  private final java.lang.Object target;
+
+  public ShadowWithReflectors$DummyReflector$$Reflector(java.lang.Object target) {
+    this.target = target;
+  }
+
+  @java.lang.Override
+  public java.lang.String getName(int arg0) {
+    try {
+      if (method0 == null) {
+        java.lang.reflect.Method method = TARGET_CLASS.getDeclaredMethod("getName", int.class);
+        method.setAccessible(true);
+        method0 = method;
+      }
+      return (java.lang.String) method0.invoke(target, new java.lang.Object[] {arg0});
+    } catch (java.lang.reflect.InvocationTargetException e) {
+      throw sneakyThrow(e.getCause());
+    } catch (java.lang.ReflectiveOperationException e) {
+      throw new java.lang.AssertionError(
+          "Error invoking reflector method in ClassLoader " + TARGET_CLASS.getClassLoader(), e);
+    }
+  }
+
+  @java.lang.Override
+  public void reset() {
+    try {
+      if (method1 == null) {
+        java.lang.reflect.Method method = TARGET_CLASS.getDeclaredMethod("reset");
+        method.setAccessible(true);
+        method1 = method;
+      }
+      method1.invoke(null, new java.lang.Object[] {});
+    } catch (java.lang.reflect.InvocationTargetException e) {
+      throw sneakyThrow(e.getCause());
+    } catch (java.lang.ReflectiveOperationException e) {
+      throw new java.lang.AssertionError(
+          "Error invoking reflector method in ClassLoader " + TARGET_CLASS.getClassLoader(), e);
+    }
+  }
+
+  @java.lang.Override
+  public int getCount() {
+    try {
+      return (int) field$count().get(target);
+    } catch (java.lang.ReflectiveOperationException e) {
+      throw sneakyThrow(e);
+    }
+  }
+
+  @java.lang.Override
+  public void setCount(int arg0) {
+    try {
+      field$count().set(target, arg0);
+    } catch (java.lang.ReflectiveOperationException e) {
+      throw sneakyThrow(e);
+    }
+  }
+
+  private static java.lang.reflect.Field field$count() throws java.lang.ReflectiveOperationException {
+    if (field$count == null) {
+      java.lang.reflect.Field field = TARGET_CLASS.getDeclaredField("count");
+      field.setAccessible(true);
+      field$count = field;
+    }
+    return field$count;
+  }
+
+  private static java.lang.Class<?> loadTargetClass(java.lang.String name) {
+    try {
+      return java.lang.Class.forName(name, false, org.robolectric.annotation.processing.shadows.ShadowWithReflectors.DummyReflector.class.getClassLoader());
+    } catch (java.lang.ClassNotFoundException e) {
+      throw new java.lang.IllegalArgumentException("failed to resolve @ForType class for org.robolectric.annotation.processing.shadows.ShadowWithReflectors.DummyReflector", e);
+    }
+  }
+
+  private static java.lang.Class<?> withType(java.lang.String name, java.lang.Class<?> declaredType) {
+    try {
+      return java.lang.Class.forName(name, true, org.robolectric.annotation.processing.shadows.ShadowWithReflectors.DummyReflector.class.getClassLoader());
+    } catch (java.lang.ClassNotFoundException e) {
+      return declaredType;
+    }
+  }
+
+  private static <T extends java.lang.Throwable> java.lang.RuntimeException sneakyThrow(
+      java.lang.Throwable t) throws T {
+    throw (T) t;
+  }
+}
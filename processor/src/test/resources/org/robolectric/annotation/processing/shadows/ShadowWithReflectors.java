@@ -0,0 +1,31 @@
+package org.robolectric.annotation.processing.shadows;
+
+import com.example.objects.Dummy;
+import org.robolectric.annotation.Implements;
+import org.robolectric.util.reflector.Accessor;
+import org.robolectric.util.reflector.ForType;
+import org.robolectric.util.reflector.Static;
+
+@Implements(Dummy.class)
+public class ShadowWithReflectors {
+
+  @ForType(Dummy.class)
+  interface DummyReflector {
+    String getName(int index);
+
+    @Static
+    void reset();
+
+    @Accessor("count")
+    int getCount();
+
+    @Accessor("count")
+    void setCount(int count);
+  }
+
+  /** Private, so the generated class couldn't implement it. */
+  @ForType(Dummy.class)
+  private interface PrivateDummyReflector {
+    void reset();
+  }
+}
@@ -17,6 +17,9 @@ public class AttributeResource {
   public final @Nonnull String trimmedValue;
   public final @Nonnull String contextPackageName;
   private final Integer referenceResId;
+  // Lazily qualified, since themes and styles dereference the same attributes over and over.
+  private ResName resourceReference;
+  private ResName styleReference;
 
   public AttributeResource(@Nonnull ResName resName, @Nonnull String value, @Nonnull String contextPackageName) {
     this(resName, value, contextPackageName, null);
@@ -38,7 +41,11 @@ public class AttributeResource {
 
   public @Nonnull ResName getResourceReference() {
     if (!isResourceReference()) throw new RuntimeException("not a resource reference: " + this);
-    return ResName.qualifyResName(deref(trimmedValue).replace("+", ""), contextPackageName, "style");
+    if (resourceReference == null) {
+      resourceReference =
+          ResName.qualifyResName(deref(trimmedValue).replace("+", ""), contextPackageName, "style");
+    }
+    return resourceReference;
   }
 
   public boolean isStyleReference() {
@@ -47,7 +54,10 @@ public class AttributeResource {
 
   public ResName getStyleReference() {
     if (!isStyleReference()) throw new RuntimeException("not a style reference: " + this);
-    return ResName.qualifyResName(value.substring(1), contextPackageName, "attr");
+    if (styleReference == null) {
+      styleReference = ResName.qualifyResName(value.substring(1), contextPackageName, "attr");
+    }
+    return styleReference;
   }
 
   public boolean isNull() {
@@ -3,6 +3,8 @@ package org.robolectric.res;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.robolectric.util.Logger;
 
 @SuppressWarnings("NewApi")
@@ -16,12 +18,14 @@ public abstract class DocumentLoader {
   }
 
   public void load(String folderBaseName) throws IOException {
+    List<XmlContext> xmlContexts = new ArrayList<>();
     for (Path dir : Fs.listFiles(resourceBase, new DirBaseNameFilter(folderBaseName))) {
-      loadFile(dir);
+      findFiles(dir, xmlContexts);
     }
+    loadResourceXmlFiles(xmlContexts);
   }
 
-  private void loadFile(Path dir) throws IOException {
+  private void findFiles(Path dir, List<XmlContext> xmlContexts) throws IOException {
     if (!Files.exists(dir)) {
       throw new RuntimeException("no such directory " + dir);
     }
@@ -38,7 +42,14 @@ public abstract class DocumentLoader {
     }
 
     for (Path file : Fs.listFiles(dir, path -> path.getFileName().toString().endsWith(".xml"))) {
-      loadResourceXmlFile(new XmlContext(packageName, file, qualifiers));
+      xmlContexts.add(new XmlContext(packageName, file, qualifiers));
+    }
+  }
+
+  /** Loads the given files, in order. */
+  protected void loadResourceXmlFiles(List<XmlContext> xmlContexts) {
+    for (XmlContext xmlContext : xmlContexts) {
+      loadResourceXmlFile(xmlContext);
     }
   }
 
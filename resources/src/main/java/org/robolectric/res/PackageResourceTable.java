@@ -110,7 +110,7 @@ public class PackageResourceTable implements ResourceTable {
       if (ResourceIds.isFrameworkResource(resId)) {
         androidResourceIdGenerator.record(resId, type, name);
       }
-      ResName resName = new ResName(packageName, type, name);
+      ResName resName = new ResName(packageName, type, name).intern();
       int resIdPackageIdentifier = ResourceIds.getPackageIdentifier(resId);
       if (getPackageIdentifier() == 0) {
         this.packageIdentifier = resIdPackageIdentifier;
@@ -125,7 +125,7 @@ public class PackageResourceTable implements ResourceTable {
   }
 
   void addResource(String type, String name, TypedResource value) {
-    ResName resName = new ResName(packageName, type, name);
+    ResName resName = new ResName(packageName, type, name).intern();
 
     // compound style names were previously registered with underscores (TextAppearance_Small)
     // because they came from R.style; re-register with dots.
@@ -3,7 +3,6 @@ package org.robolectric.res;
 import java.nio.file.Path;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.robolectric.res.android.ConfigDescription;
 import org.robolectric.res.android.ResTable_config;
 
 /**
@@ -12,8 +11,6 @@ import org.robolectric.res.android.ResTable_config;
  */
 @SuppressWarnings("NewApi")
 public class Qualifiers {
-  private static final Pattern DIR_QUALIFIER_PATTERN = Pattern.compile("^[^-]+(?:-([^/]*))?/?$");
-
   // Matches a version qualifier like "v14". Parentheses capture the numeric
   // part for easy retrieval with Matcher.group(2).
   private static final Pattern SCREEN_WIDTH_PATTERN = Pattern.compile("^w([0-9]+)dp");
@@ -29,9 +26,11 @@ public class Qualifiers {
   }
 
   public static Qualifiers parse(String qualifiers, boolean applyVersionForCompat) {
-    final ResTable_config config = new ResTable_config();
-    if (!qualifiers.isEmpty()
-        && !ConfigDescription.parse(qualifiers, config, applyVersionForCompat)) {
+    final ResTable_config config =
+        qualifiers.isEmpty()
+            ? new ResTable_config()
+            : ResTable_config.fromQualifiers(qualifiers, applyVersionForCompat);
+    if (config == null) {
       throw new IllegalArgumentException(
           "failed to parse qualifiers '"
               + qualifiers
@@ -62,12 +61,20 @@ public class Qualifiers {
       return parse("");
     } else {
       String parentDirName = parentDir.getFileName().toString();
-      Matcher matcher = DIR_QUALIFIER_PATTERN.matcher(parentDirName);
-      if (!matcher.find()) {
+      // Equivalent to matching "^[^-]+(?:-([^/]*))?/?$", without a regex.
+      int dash = parentDirName.indexOf('-');
+      if (dash < 0) {
+        if (parentDirName.isEmpty()) {
+          throw new IllegalStateException(parentDirName);
+        }
+        return parse("");
+      }
+      int end = parentDirName.endsWith("/") ? parentDirName.length() - 1 : parentDirName.length();
+      int slash = parentDirName.indexOf('/', dash);
+      if (dash == 0 || (slash >= 0 && slash < end)) {
         throw new IllegalStateException(parentDirName);
       }
-      String qualifiers = matcher.group(1);
-      return parse(qualifiers != null ? qualifiers : "");
+      return parse(parentDirName.substring(dash + 1, end));
     }
   }
 
@@ -0,0 +1,40 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PackageResourceTable} that only records the resources added to it, so that they can be
+ * loaded on another thread and later added to the real table in a deterministic order.
+ */
+final class RecordingResourceTable extends PackageResourceTable {
+  private final List<Entry> entries = new ArrayList<>();
+
+  RecordingResourceTable(String packageName) {
+    super(packageName);
+  }
+
+  @Override
+  void addResource(String type, String name, TypedResource value) {
+    entries.add(new Entry(type, name, value));
+  }
+
+  /** Adds the recorded resources to {@code resourceTable}, in the order they were recorded. */
+  void addTo(PackageResourceTable resourceTable) {
+    for (Entry entry : entries) {
+      resourceTable.addResource(entry.type, entry.name, entry.value);
+    }
+  }
+
+  private static class Entry {
+    final String type;
+    final String name;
+    final TypedResource value;
+
+    Entry(String type, String name, TypedResource value) {
+      this.type = type;
+      this.name = name;
+      this.value = value;
+    }
+  }
+}
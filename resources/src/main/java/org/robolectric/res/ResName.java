@@ -1,18 +1,15 @@
 package org.robolectric.res;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 
 @SuppressWarnings("NewApi")
 public class ResName {
   public static final String ID_TYPE = "id";
 
-  private static final Pattern FQN_PATTERN = Pattern.compile("^([^:]*):([^/]+)/(.+)$");
-  private static final int NAMESPACE = 1;
-  private static final int TYPE = 2;
-  private static final int NAME = 3;
+  private static final Interner<ResName> INTERNER = Interners.newWeakInterner();
 
   public final @Nonnull String packageName;
   public final @Nonnull String type;
@@ -29,13 +26,16 @@ public class ResName {
   }
 
   public ResName(@Nonnull String fullyQualifiedName) {
-    Matcher matcher = FQN_PATTERN.matcher(fullyQualifiedName.trim());
-    if (!matcher.find()) {
+    // Parses "package:type/name", where the type and name must be non-empty.
+    String trimmed = fullyQualifiedName.trim();
+    int indexOfColon = trimmed.indexOf(':');
+    int indexOfSlash = indexOfColon < 0 ? -1 : trimmed.indexOf('/', indexOfColon + 1);
+    if (indexOfSlash <= indexOfColon + 1 || indexOfSlash == trimmed.length() - 1) {
       throw new IllegalStateException("\"" + fullyQualifiedName + "\" is not fully qualified");
     }
-    packageName = matcher.group(NAMESPACE);
-    type = matcher.group(TYPE).trim();
-    name = matcher.group(NAME).trim();
+    packageName = trimmed.substring(0, indexOfColon);
+    type = trimmed.substring(indexOfColon + 1, indexOfSlash).trim();
+    name = trimmed.substring(indexOfSlash + 1).trim();
 
     hashCode = computeHashCode();
     if (packageName.equals("xmlns"))
@@ -85,7 +85,7 @@ public class ResName {
       packageName = "android";
     }
 
-    return new ResName(packageName, type == null ? defaultType : type, name);
+    return new ResName(packageName, type == null ? defaultType : type, name).intern();
   }
 
   public static String qualifyResName(String possiblyQualifiedResourceName, String contextPackageName) {
@@ -140,6 +140,14 @@ public class ResName {
     return "ResName{" + getFullyQualifiedName() + "}";
   }
 
+  /**
+   * Returns a canonical instance equal to this one. Interned names compare equal by identity, and
+   * names that are created repeatedly don't each keep their own copy.
+   */
+  public ResName intern() {
+    return INTERNER.intern(this);
+  }
+
   public String getFullyQualifiedName() {
     return packageName + ":" + type + "/" + name;
   }
@@ -3,6 +3,9 @@ package org.robolectric.res;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
 
@@ -47,8 +50,21 @@ public class ResourceTableFactory {
                 }
               }
 
-              for (ResourcePath resourcePath : resourcePaths) {
-                parseResourceFiles(resourcePath, resourceTable);
+              // Resource libraries are parsed in parallel, then added in order, since the
+              // resources added first win when several libraries define the same one.
+              List<RecordingResourceTable> libraryResourceTables =
+                  Arrays.stream(resourcePaths)
+                      .parallel()
+                      .map(
+                          resourcePath -> {
+                            RecordingResourceTable libraryResourceTable =
+                                new RecordingResourceTable(packageName);
+                            parseResourceFiles(resourcePath, libraryResourceTable);
+                            return libraryResourceTable;
+                          })
+                      .collect(Collectors.toList());
+              for (RecordingResourceTable libraryResourceTable : libraryResourceTables) {
+                libraryResourceTable.addTo(resourceTable);
               }
 
               return resourceTable;
@@ -128,89 +144,8 @@ public class ResourceTableFactory {
       new StaxDocumentLoader(
               resourceTable.getPackageName(),
               resourcePath.getResourceBase(),
-              new NodeHandler()
-                  .addHandler(
-                      "resources",
-                      new NodeHandler()
-                          .addHandler(
-                              "bool", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
-                          .addHandler(
-                              "item[@type='bool']",
-                              new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
-                          .addHandler(
-                              "color", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
-                          .addHandler(
-                              "item[@type='color']",
-                              new StaxValueLoader(resourceTable, "color", ResType.COLOR))
-                          .addHandler(
-                              "drawable",
-                              new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
-                          .addHandler(
-                              "item[@type='drawable']",
-                              new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
-                          .addHandler(
-                              "item[@type='mipmap']",
-                              new StaxValueLoader(resourceTable, "mipmap", ResType.DRAWABLE))
-                          .addHandler(
-                              "dimen", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
-                          .addHandler(
-                              "item[@type='dimen']",
-                              new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
-                          .addHandler(
-                              "integer",
-                              new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
-                          .addHandler(
-                              "item[@type='integer']",
-                              new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
-                          .addHandler(
-                              "integer-array",
-                              new StaxArrayLoader(
-                                  resourceTable, "array", ResType.INTEGER_ARRAY, ResType.INTEGER))
-                          .addHandler(
-                              "fraction",
-                              new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
-                          .addHandler(
-                              "item[@type='fraction']",
-                              new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
-                          .addHandler(
-                              "item[@type='layout']",
-                              new StaxValueLoader(resourceTable, "layout", ResType.LAYOUT))
-                          .addHandler(
-                              "plurals",
-                              new StaxPluralsLoader(
-                                  resourceTable, "plurals", ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "string",
-                              new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "item[@type='string']",
-                              new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "string-array",
-                              new StaxArrayLoader(
-                                  resourceTable,
-                                  "array",
-                                  ResType.CHAR_SEQUENCE_ARRAY,
-                                  ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "array",
-                              new StaxArrayLoader(
-                                  resourceTable, "array", ResType.TYPED_ARRAY, null))
-                          .addHandler(
-                              "id", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "item[@type='id']",
-                              new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
-                          .addHandler(
-                              "attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
-                          .addHandler(
-                              "declare-styleable",
-                              new NodeHandler()
-                                  .addHandler(
-                                      "attr",
-                                      new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA)))
-                          .addHandler(
-                              "style", new StaxStyleLoader(resourceTable, "style", ResType.STYLE))))
+              resourceTable,
+              ResourceTableFactory::newValuesNodeHandler)
           .load("values");
 
       loadOpaque(resourcePath, resourceTable, "layout", ResType.LAYOUT);
@@ -231,6 +166,76 @@ public class ResourceTableFactory {
     }
   }
 
+  /** Creates handlers that add the resources in a values file to {@code resourceTable}. */
+  private static NodeHandler newValuesNodeHandler(PackageResourceTable resourceTable) {
+    return new NodeHandler()
+        .addHandler(
+            "resources",
+            new NodeHandler()
+                .addHandler("bool", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
+                .addHandler(
+                    "item[@type='bool']",
+                    new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
+                .addHandler("color", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
+                .addHandler(
+                    "item[@type='color']",
+                    new StaxValueLoader(resourceTable, "color", ResType.COLOR))
+                .addHandler(
+                    "drawable", new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
+                .addHandler(
+                    "item[@type='drawable']",
+                    new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
+                .addHandler(
+                    "item[@type='mipmap']",
+                    new StaxValueLoader(resourceTable, "mipmap", ResType.DRAWABLE))
+                .addHandler("dimen", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
+                .addHandler(
+                    "item[@type='dimen']",
+                    new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
+                .addHandler(
+                    "integer", new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
+                .addHandler(
+                    "item[@type='integer']",
+                    new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
+                .addHandler(
+                    "integer-array",
+                    new StaxArrayLoader(
+                        resourceTable, "array", ResType.INTEGER_ARRAY, ResType.INTEGER))
+                .addHandler(
+                    "fraction", new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
+                .addHandler(
+                    "item[@type='fraction']",
+                    new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
+                .addHandler(
+                    "item[@type='layout']",
+                    new StaxValueLoader(resourceTable, "layout", ResType.LAYOUT))
+                .addHandler(
+                    "plurals",
+                    new StaxPluralsLoader(resourceTable, "plurals", ResType.CHAR_SEQUENCE))
+                .addHandler(
+                    "string", new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
+                .addHandler(
+                    "item[@type='string']",
+                    new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
+                .addHandler(
+                    "string-array",
+                    new StaxArrayLoader(
+                        resourceTable, "array", ResType.CHAR_SEQUENCE_ARRAY, ResType.CHAR_SEQUENCE))
+                .addHandler(
+                    "array", new StaxArrayLoader(resourceTable, "array", ResType.TYPED_ARRAY, null))
+                .addHandler("id", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
+                .addHandler(
+                    "item[@type='id']",
+                    new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
+                .addHandler("attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
+                .addHandler(
+                    "declare-styleable",
+                    new NodeHandler()
+                        .addHandler(
+                            "attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA)))
+                .addHandler("style", new StaxStyleLoader(resourceTable, "style", ResType.STYLE)));
+  }
+
   private void loadOpaque(
       ResourcePath resourcePath,
       final PackageResourceTable resourceTable,
@@ -3,6 +3,9 @@ package org.robolectric.res;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -11,25 +14,83 @@ import javax.xml.stream.XMLStreamReader;
 public class StaxDocumentLoader extends DocumentLoader {
   private static final NodeHandler NO_OP_HANDLER = new NodeHandler();
 
+  // Factories are expensive to create and aren't guaranteed to be thread-safe, so each thread that
+  // parses files keeps its own.
+  private static final ThreadLocal<XMLInputFactory> FACTORY =
+      ThreadLocal.withInitial(XMLInputFactory::newFactory);
+
   private final NodeHandler topLevelNodeHandler;
-  private final XMLInputFactory factory;
+  private final PackageResourceTable resourceTable;
+  private final Function<PackageResourceTable, NodeHandler> topLevelNodeHandlerFactory;
 
   public StaxDocumentLoader(
       String packageName, Path resourceBase, NodeHandler topLevelNodeHandler) {
     super(packageName, resourceBase);
 
     this.topLevelNodeHandler = topLevelNodeHandler;
-    factory = XMLInputFactory.newFactory();
+    this.resourceTable = null;
+    this.topLevelNodeHandlerFactory = null;
+  }
+
+  /**
+   * Creates a loader that parses files in parallel.
+   *
+   * <p>Node handlers keep state while parsing, so each file is parsed by handlers that {@code
+   * topLevelNodeHandlerFactory} creates for a table of the file's own. The resources of each file
+   * are then added to {@code resourceTable} in the order the files were found, which gives the same
+   * result as parsing them one at a time.
+   */
+  public StaxDocumentLoader(
+      String packageName,
+      Path resourceBase,
+      PackageResourceTable resourceTable,
+      Function<PackageResourceTable, NodeHandler> topLevelNodeHandlerFactory) {
+    super(packageName, resourceBase);
+
+    this.topLevelNodeHandler = null;
+    this.resourceTable = resourceTable;
+    this.topLevelNodeHandlerFactory = topLevelNodeHandlerFactory;
+  }
+
+  @Override
+  protected void loadResourceXmlFiles(List<XmlContext> xmlContexts) {
+    if (topLevelNodeHandlerFactory == null || xmlContexts.size() < 2) {
+      super.loadResourceXmlFiles(xmlContexts);
+      return;
+    }
+
+    List<RecordingResourceTable> fileResourceTables =
+        xmlContexts.parallelStream()
+            .map(
+                xmlContext -> {
+                  RecordingResourceTable fileResourceTable =
+                      new RecordingResourceTable(packageName);
+                  loadResourceXmlFile(
+                      xmlContext, topLevelNodeHandlerFactory.apply(fileResourceTable));
+                  return fileResourceTable;
+                })
+            .collect(Collectors.toList());
+    for (RecordingResourceTable fileResourceTable : fileResourceTables) {
+      fileResourceTable.addTo(resourceTable);
+    }
   }
 
   @Override
   protected void loadResourceXmlFile(XmlContext xmlContext) {
+    loadResourceXmlFile(
+        xmlContext,
+        topLevelNodeHandlerFactory == null
+            ? topLevelNodeHandler
+            : topLevelNodeHandlerFactory.apply(resourceTable));
+  }
+
+  private void loadResourceXmlFile(XmlContext xmlContext, NodeHandler topLevelNodeHandler) {
     Path xmlFile = xmlContext.getXmlFile();
 
     XMLStreamReader xmlStreamReader;
     try {
-      xmlStreamReader = factory.createXMLStreamReader(Fs.getInputStream(xmlFile));
-      doParse(xmlStreamReader, xmlContext);
+      xmlStreamReader = FACTORY.get().createXMLStreamReader(Fs.getInputStream(xmlFile));
+      doParse(xmlStreamReader, xmlContext, topLevelNodeHandler);
     } catch (Exception e) {
       throw new RuntimeException("error parsing " + xmlFile, e);
     }
@@ -43,7 +104,13 @@ public class StaxDocumentLoader extends DocumentLoader {
   }
 
   protected void doParse(XMLStreamReader reader, XmlContext xmlContext) throws XMLStreamException {
-    NodeHandler nodeHandler = this.topLevelNodeHandler;
+    doParse(reader, xmlContext, topLevelNodeHandler);
+  }
+
+  private static void doParse(
+      XMLStreamReader reader, XmlContext xmlContext, NodeHandler topLevelNodeHandler)
+      throws XMLStreamException {
+    NodeHandler nodeHandler = topLevelNodeHandler;
     Deque<NodeHandler> nodeHandlerStack = new ArrayDeque<>();
 
     while (reader.hasNext()) {
@@ -2,7 +2,10 @@ package org.robolectric.res;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import org.robolectric.res.android.ResTable_config;
 
 public class StyleResolver implements Style {
@@ -13,6 +16,12 @@ public class StyleResolver implements Style {
   private final ResName myResName;
   private final ResTable_config config;
 
+  // The value found in this style or its parents for each attribute. Values from the theme aren't
+  // included, since it may change. Resolvers are cached per theme and shared between threads, so
+  // this is concurrent, and the style chain is only walked while synchronized.
+  private final Map<ResName, Optional<AttributeResource>> styleAttrValues =
+      new ConcurrentHashMap<>();
+
   public StyleResolver(ResourceTable appResourceTable, ResourceTable systemResourceTable, StyleData styleData,
                        Style theme, ResName myResName, ResTable_config config) {
     this.appResourceTable = appResourceTable;
@@ -24,6 +33,25 @@ public class StyleResolver implements Style {
   }
 
   @Override public AttributeResource getAttrValue(ResName resName) {
+    Optional<AttributeResource> styleAttrValue = styleAttrValues.get(resName);
+    if (styleAttrValue == null) {
+      styleAttrValue = Optional.ofNullable(getStyleAttrValue(resName));
+      styleAttrValues.putIfAbsent(resName, styleAttrValue);
+    }
+    if (styleAttrValue.isPresent()) {
+      return styleAttrValue.get();
+    }
+
+    // todo: is this tested?
+    if (theme != null) {
+      AttributeResource value = theme.getAttrValue(resName);
+      if (value != null) return value;
+    }
+
+    return null;
+  }
+
+  private synchronized AttributeResource getStyleAttrValue(ResName resName) {
     for (StyleData style : styles) {
       AttributeResource value = style.getAttrValue(resName);
       if (value != null) return value;
@@ -43,12 +71,6 @@ public class StyleResolver implements Style {
       if (value != null) return value;
     }
 
-    // todo: is this tested?
-    if (theme != null) {
-      AttributeResource value = theme.getAttrValue(resName);
-      if (value != null) return value;
-    }
-
     return null;
   }
 
@@ -2,6 +2,9 @@ package org.robolectric.res;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents the list of styles applied to a Theme.
@@ -10,7 +13,22 @@ public class ThemeStyleSet implements Style {
 
   private List<OverlayedStyle> styles = new ArrayList<>();
 
+  // The value found for each attribute since a style was last applied; the applied styles are
+  // assumed not to change. Themes may be used from several threads, so this is concurrent; it's
+  // replaced rather than cleared by apply(), so a racing lookup can't cache a stale value.
+  private volatile Map<ResName, Optional<AttributeResource>> attrValues = new ConcurrentHashMap<>();
+
   @Override public AttributeResource getAttrValue(ResName attrName) {
+    Map<ResName, Optional<AttributeResource>> attrValues = this.attrValues;
+    Optional<AttributeResource> attrValue = attrValues.get(attrName);
+    if (attrValue == null) {
+      attrValue = Optional.ofNullable(findAttrValue(attrName));
+      attrValues.putIfAbsent(attrName, attrValue);
+    }
+    return attrValue.orElse(null);
+  }
+
+  private AttributeResource findAttrValue(ResName attrName) {
     AttributeResource attribute = null;
 
     for (OverlayedStyle overlayedStyle : styles) {
@@ -32,11 +50,13 @@ public class ThemeStyleSet implements Style {
       }
     }
     styles.add(styleToAdd);
+    attrValues = new ConcurrentHashMap<>();
   }
 
   public ThemeStyleSet copy() {
     ThemeStyleSet themeStyleSet = new ThemeStyleSet();
     themeStyleSet.styles.addAll(this.styles);
+    themeStyleSet.attrValues.putAll(this.attrValues);
     return themeStyleSet;
   }
 
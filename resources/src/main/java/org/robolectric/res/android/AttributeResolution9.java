@@ -4,7 +4,6 @@ import static org.robolectric.res.android.ApkAssetsCookie.K_INVALID_COOKIE;
 import static org.robolectric.res.android.ApkAssetsCookie.kInvalidCookie;
 import static org.robolectric.res.android.Util.ALOGI;
 
-import java.util.Arrays;
 import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
 import org.robolectric.res.android.CppAssetManager2.ResolvedBag.Entry;
 import org.robolectric.res.android.CppAssetManager2.Theme;
@@ -63,17 +62,27 @@ public class AttributeResolution9 {
       this.bagEntries = bag == null ? null : bag.entries;
     }
 
-    // Robolectric: unoptimized relative to Android impl
+    // Robolectric: a binary search on the keys, which the entries are sorted by, so that lookups
+    // don't allocate.
     Entry Find(int ident) {
-      Entry needle = new Entry();
-      needle.key = ident;
-
       if (bagEntries == null) {
         return null;
       }
 
-      int i = Arrays.binarySearch(bagEntries, needle, (o1, o2) -> o1.key - o2.key);
-      return i < 0 ? null : bagEntries[i];
+      int low = 0;
+      int high = bagEntries.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int key = bagEntries[mid].key;
+        if (key < ident) {
+          low = mid + 1;
+        } else if (key > ident) {
+          high = mid - 1;
+        } else {
+          return bagEntries[mid];
+        }
+      }
+      return null;
     }
   }
 
@@ -123,6 +132,12 @@ public class AttributeResolution9 {
     }
     BagAttributeFinder def_style_attr_finder = new BagAttributeFinder(default_style_bag);
 
+    // Robolectric-custom: reused for each attribute, to avoid allocating.
+    final Ref<Res_value> valueRef = new Ref<>(null);
+    final Ref<Integer> residRef = new Ref<>(0);
+    final Ref<Integer> type_set_flagsRef = new Ref<>(0);
+    final Ref<ResTable_config> configRef = new Ref<>(null);
+
     // Now iterate through all of the attributes that the client has requested,
     // filling in each with whatever data we can find.
     int destOffset = 0;
@@ -162,10 +177,10 @@ public class AttributeResolution9 {
       }
 
       int resid = 0;
-      final Ref<Res_value> valueRef = new Ref<>(value);
-      final Ref<Integer> residRef = new Ref<>(resid);
-      final Ref<Integer> type_set_flagsRef = new Ref<>(type_set_flags);
-      final Ref<ResTable_config> configRef = new Ref<>(config);
+      valueRef.set(value);
+      residRef.set(resid);
+      type_set_flagsRef.set(type_set_flags);
+      configRef.set(config);
       if (value.dataType != Res_value.TYPE_NULL) {
         // Take care of resolving the found resource to its final value.
         ApkAssetsCookie new_cookie =
@@ -302,6 +317,15 @@ public class AttributeResolution9 {
     // Retrieve the XML attributes, if requested.
     XmlAttributeFinder xml_attr_finder = new XmlAttributeFinder(xml_parser);
 
+    // Robolectric-custom: values that don't come from the XML attributes only depend on the theme
+    // and styles, so they are memoized.
+    StyleAttributeCache.Values style_values = theme.GetStyleAttributeValues(attrs, attrs_length,
+        def_style_resid, def_style_flags.get(), style_resid, style_flags.get(), STYLE_NUM_ENTRIES);
+
+    // Robolectric-custom: reused for each attribute, to avoid allocating.
+    final Ref<Integer> type_set_flags = new Ref<>(0);
+    final Ref<Integer> resid = new Ref<>(0);
+
     // Now iterate through all of the attributes that the client has requested,
     // filling in each with whatever data we can find.
     for (int ii = 0; ii < attrs_length; ii++) {
@@ -311,8 +335,19 @@ public class AttributeResolution9 {
         ALOGI("RETRIEVING ATTR 0x%08x...", cur_ident);
       }
 
+      int xml_attr_idx = xml_attr_finder.Find(cur_ident);
+      if (xml_attr_idx == -1 && style_values.copyTo(ii, out_values)) {
+        int destIndex = ii * STYLE_NUM_ENTRIES;
+        if (out_values[destIndex + STYLE_TYPE] != DataType.NULL.code()
+            || out_values[destIndex + STYLE_DATA] == Res_value.DATA_NULL_EMPTY) {
+          indices_idx++;
+          out_indices[indices_idx] = ii;
+        }
+        continue;
+      }
+
       ApkAssetsCookie cookie = K_INVALID_COOKIE;
-      final Ref<Integer> type_set_flags = new Ref<>(0);
+      type_set_flags.set(0);
 
       value.set(Res_value.NULL_VALUE);
       config.get().density = 0;
@@ -322,7 +357,6 @@ public class AttributeResolution9 {
       // style, and finally the theme.
 
       // Walk through the xml attributes looking for the requested attribute.
-      int xml_attr_idx = xml_attr_finder.Find(cur_ident);
       if (xml_attr_idx != -1) {
         // We found the attribute we were looking for.
         xml_parser.getAttributeValue(xml_attr_idx, value);
@@ -361,7 +395,7 @@ public class AttributeResolution9 {
         }
       }
 
-      final Ref<Integer> resid = new Ref<>(0);
+      resid.set(0);
       if (value.get().dataType != DataType.NULL.code()) {
         // Take care of resolving the found resource to its final value.
         ApkAssetsCookie new_cookie =
@@ -414,6 +448,9 @@ public class AttributeResolution9 {
       out_values[destIndex + STYLE_RESOURCE_ID] = resid.get();
       out_values[destIndex + STYLE_CHANGING_CONFIGURATIONS] = type_set_flags.get();
       out_values[destIndex + STYLE_DENSITY] = config.get().density;
+      if (xml_attr_idx == -1) {
+        style_values.copyFrom(ii, out_values);
+      }
 
       if (res_value.dataType != DataType.NULL.code() || res_value.data == Res_value.DATA_NULL_EMPTY) {
         indices_idx++;
@@ -453,13 +490,17 @@ public class AttributeResolution9 {
     int ix = 0;
     int cur_xml_attr = xml_parser.getAttributeNameResID(ix);
 
+    // Robolectric-custom: reused for each attribute, to avoid allocating.
+    final Ref<Integer> type_set_flags = new Ref<>(0);
+    final Ref<Integer> resid = new Ref<>(0);
+
     // Now iterate through all of the attributes that the client has requested,
     // filling in each with whatever data we can find.
     int baseDest = 0;
     for (int ii = 0; ii < attrs_length; ii++) {
       final int cur_ident = attrs[ii];
       ApkAssetsCookie cookie = K_INVALID_COOKIE;
-      final Ref<Integer> type_set_flags = new Ref<>(0);
+      type_set_flags.set(0);
 
       value.set(Res_value.NULL_VALUE);
       config.get().density = 0;
@@ -477,7 +518,7 @@ public class AttributeResolution9 {
         cur_xml_attr = xml_parser.getAttributeNameResID(ix);
       }
 
-      final Ref<Integer> resid = new Ref<>(0);
+      resid.set(0);
       if (value.get().dataType != Res_value.TYPE_NULL) {
         // Take care of resolving the found resource to its final value.
         ApkAssetsCookie new_cookie =
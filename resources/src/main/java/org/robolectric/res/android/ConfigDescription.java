@@ -7,8 +7,6 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * transliterated from
@@ -48,15 +46,6 @@ public class ConfigDescription {
 
   private static final String kWildcardName = "any";
 
-  private static final Pattern MCC_PATTERN = Pattern.compile("mcc([\\d]+)");
-  private static final Pattern MNC_PATTERN = Pattern.compile("mnc([\\d]+)");
-  private static final Pattern SMALLEST_SCREEN_WIDTH_PATTERN = Pattern.compile("^sw([0-9]+)dp");
-  private static final Pattern SCREEN_WIDTH_PATTERN = Pattern.compile("^w([0-9]+)dp");
-  private static final Pattern SCREEN_HEIGHT_PATTERN = Pattern.compile("^h([0-9]+)dp");
-  private static final Pattern DENSITY_PATTERN = Pattern.compile("^([0-9]+)dpi");
-  private static final Pattern HEIGHT_WIDTH_PATTERN = Pattern.compile("^([0-9]+)x([0-9]+)");
-  private static final Pattern VERSION_QUALIFIER_PATTERN = Pattern.compile("v([0-9]+)$");
-
   public static class LocaleValue {
 
     String language;
@@ -417,9 +406,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SMALLEST_SCREEN_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.smallestScreenWidthDp = Integer.parseInt(matcher.group(1));
+    int smallestScreenWidthDp = parseNumber(name, "sw", "dp");
+    if (smallestScreenWidthDp >= 0) {
+      out.smallestScreenWidthDp = smallestScreenWidthDp;
       return true;
     }
     return false;
@@ -433,9 +422,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SCREEN_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.screenWidthDp = Integer.parseInt(matcher.group(1));
+    int screenWidthDp = parseNumber(name, "w", "dp");
+    if (screenWidthDp >= 0) {
+      out.screenWidthDp = screenWidthDp;
       return true;
     }
     return false;
@@ -449,9 +438,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SCREEN_HEIGHT_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.screenHeightDp = Integer.parseInt(matcher.group(1));
+    int screenHeightDp = parseNumber(name, "h", "dp");
+    if (screenHeightDp >= 0) {
+      out.screenHeightDp = screenHeightDp;
       return true;
     }
     return false;
@@ -762,9 +751,9 @@ public class ConfigDescription {
     }
 
     // check that we have 'dpi' after the last digit.
-    Matcher matcher = DENSITY_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.density = Integer.parseInt(matcher.group(1));
+    int density = parseNumber(name, "", "dpi");
+    if (density >= 0) {
+      out.density = density;
       return true;
     }
     return false;
@@ -913,10 +902,10 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = HEIGHT_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      int w = Integer.parseInt(matcher.group(1));
-      int h = Integer.parseInt(matcher.group(2));
+    int separator = name.indexOf('x');
+    int w = separator < 0 ? -1 : parseNumber(name.substring(0, separator), "", "");
+    int h = separator < 0 ? -1 : parseNumber(name.substring(separator + 1), "", "");
+    if (w >= 0 && h >= 0) {
       if (w < h) {
         return false;
       }
@@ -936,9 +925,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = VERSION_QUALIFIER_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.sdkVersion = Integer.parseInt(matcher.group(1));
+    int sdkVersion = parseNumber(name, "v", "");
+    if (sdkVersion >= 0) {
+      out.sdkVersion = sdkVersion;
       out.minorVersion = 0;
       return true;
     }
@@ -953,9 +942,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = MNC_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.mnc = Integer.parseInt(matcher.group(1));
+    int mnc = parseNumber(name, "mnc", "");
+    if (mnc >= 0) {
+      out.mnc = mnc;
       if (out.mnc == 0) {
         out.mnc = ACONFIGURATION_MNC_ZERO;
       }
@@ -972,14 +961,34 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = MCC_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.mcc = Integer.parseInt(matcher.group(1));
+    int mcc = parseNumber(name, "mcc", "");
+    if (mcc >= 0) {
+      out.mcc = mcc;
       return true;
     }
     return false;
   }
 
+  /**
+   * Returns the number between {@code prefix} and {@code suffix} in {@code name}, or -1 if {@code
+   * name} isn't {@code prefix}, one or more digits, and {@code suffix}. This is used instead of
+   * regular expressions since qualifiers are parsed for every resource directory.
+   */
+  private static int parseNumber(String name, String prefix, String suffix) {
+    int start = prefix.length();
+    int end = name.length() - suffix.length();
+    if (end <= start || !name.startsWith(prefix) || !name.endsWith(suffix)) {
+      return -1;
+    }
+    for (int i = start; i < end; i++) {
+      char c = name.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+    }
+    return Integer.parseInt(name.substring(start, end));
+  }
+
   // transliterated from https://android.googlesource.com/platform/frameworks/base/+/android-9.0.0_r12/tools/aapt/AaptConfig.cpp
   private static void applyVersionForCompatibility(ResTable_config config) {
     if (config == null) {
@@ -5,14 +5,18 @@ package org.robolectric.res.android;
 
 import static org.robolectric.res.android.CppAssetManager.FileType.kFileTypeDirectory;
 import static org.robolectric.res.android.CppAssetManager.FileType.kFileTypeRegular;
+import static org.robolectric.res.android.Errors.NO_ERROR;
 import static org.robolectric.res.android.Util.CHECK;
 import static org.robolectric.res.android.ZipFileRO.OpenArchive;
 import static org.robolectric.res.android.ZipFileRO.kCompressDeflated;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import org.robolectric.res.android.Asset.AccessMode;
@@ -87,6 +91,17 @@ public class CppApkAssets {
   Asset resources_asset_;
   Asset idmap_asset_;
   private LoadedArsc loaded_arsc_;
+  // Robolectric-custom: the most recently opened compiled XML files that have been parsed, by path.
+  // Bounded, since an APK such as the framework's can hold thousands of XML files.
+  private static final int MAX_CACHED_XML_TREES = 256;
+  private final Map<String, ResXMLTree> xml_trees_ =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, ResXMLTree>(16, 0.75f, /* accessOrder= */ true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResXMLTree> eldest) {
+              return size() > MAX_CACHED_XML_TREES;
+            }
+          });
   // };
 //
 // }  // namespace android
@@ -327,6 +342,36 @@ public class CppApkAssets {
     }
   }
 
+  /**
+   * Robolectric-custom: opens the compiled XML file at {@code path}, or returns null if there is no
+   * such file. Check the tree's {@link ResXMLTree#getError()} to see if the file was corrupt.
+   *
+   * <p>Files are read and parsed the first time they are opened, e.g. when a layout is first
+   * inflated; the trees returned later for the same path share that parsed data instead, unless
+   * it has since been evicted by {@value #MAX_CACHED_XML_TREES} more recently opened files.
+   */
+  public ResXMLTree OpenXml(String path, DynamicRefTable dynamic_ref_table) {
+    ResXMLTree parsed_tree = xml_trees_.get(path);
+    if (parsed_tree == null) {
+      Asset asset = Open(path, AccessMode.ACCESS_RANDOM);
+      if (asset == null) {
+        return null;
+      }
+      parsed_tree = new ResXMLTree(null);
+      if (parsed_tree.setTo(asset.getBuffer(true), (int) asset.getLength(), true) != NO_ERROR) {
+        return parsed_tree;
+      }
+      ResXMLTree previous = xml_trees_.putIfAbsent(path, parsed_tree);
+      if (previous != null) {
+        parsed_tree = previous;
+      }
+    }
+
+    ResXMLTree xml_tree = new ResXMLTree(dynamic_ref_table);
+    xml_tree.setTo(parsed_tree);
+    return xml_tree;
+  }
+
   interface ForEachFileCallback {
     void callback(String string, FileType fileType);
   }
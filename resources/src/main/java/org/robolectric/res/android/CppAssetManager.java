@@ -617,34 +617,38 @@ public class CppAssetManager {
     int nextEntryIdx = mResources.getTableCount();
     ALOGV("Looking for resource asset in '%s'\n", ap.path.string());
     if (ap.type != kFileTypeDirectory /*&& ap.rawFd < 0*/) {
-      if (nextEntryIdx == 0) {
-        // The first item is typically the framework resources,
-        // which we want to avoid parsing every time.
-        sharedRes = mZipSet.getZipResourceTable(ap.path);
-        if (sharedRes != null) {
-          // skip ahead the number of system overlay packages preloaded
-          nextEntryIdx = sharedRes.getTableCount();
-        }
-      }
-      if (sharedRes == null) {
-        ass = mZipSet.getZipResourceTableAsset(ap.path);
-        if (ass == null) {
-          ALOGV("loading resource table %s\n", ap.path.string());
-          ass = openNonAssetInPathLocked("resources.arsc",
-              AccessMode.ACCESS_BUFFER,
-              ap);
-          if (ass != null && ass != kExcludedAsset) {
-            ass = mZipSet.setZipResourceTableAsset(ap.path, ass);
+      // Robolectric: mZipSet is shared by all sandboxes, so hold the zip's lock while looking up
+      // and building its shared table. Otherwise sandboxes for the same SDK that start at the same
+      // time would each parse the framework resources, and all but one copy would be discarded.
+      synchronized (mZipSet.getSharedZip(ap.path)) {
+        if (nextEntryIdx == 0) {
+          // The first item is typically the framework resources,
+          // which we want to avoid parsing every time.
+          sharedRes = mZipSet.getZipResourceTable(ap.path);
+          if (sharedRes != null) {
+            // skip ahead the number of system overlay packages preloaded
+            nextEntryIdx = sharedRes.getTableCount();
           }
         }
+        if (sharedRes == null) {
+          ass = mZipSet.getZipResourceTableAsset(ap.path);
+          if (ass == null) {
+            ALOGV("loading resource table %s\n", ap.path.string());
+            ass = openNonAssetInPathLocked("resources.arsc",
+                AccessMode.ACCESS_BUFFER,
+                ap);
+            if (ass != null && ass != kExcludedAsset) {
+              ass = mZipSet.setZipResourceTableAsset(ap.path, ass);
+            }
+          }
 
-        if (nextEntryIdx == 0 && ass != null) {
-          // If this is the first resource table in the asset
-          // manager, then we are going to cache it so that we
-          // can quickly copy it out for others.
-          ALOGV("Creating shared resources for %s", ap.path.string());
-          sharedRes = new ResTable();
-          sharedRes.add(ass, idmap, nextEntryIdx + 1, false, false, false);
+          if (nextEntryIdx == 0 && ass != null) {
+            // If this is the first resource table in the asset
+            // manager, then we are going to cache it so that we
+            // can quickly copy it out for others.
+            ALOGV("Creating shared resources for %s", ap.path.string());
+            sharedRes = new ResTable();
+            sharedRes.add(ass, idmap, nextEntryIdx + 1, false, false, false);
 //  #ifdef __ANDROID__
 //                  final char* data = getenv("ANDROID_DATA");
 //                  LOG_ALWAYS_FATAL_IF(data == null, "ANDROID_DATA not set");
@@ -653,7 +657,8 @@ public class CppAssetManager {
 //                  overlaysListPath.appendPath("overlays.list");
 //                  addSystemOverlays(overlaysListPath.string(), ap.path, sharedRes, nextEntryIdx);
 //  #endif
-          sharedRes = mZipSet.setZipResourceTable(ap.path, sharedRes);
+            sharedRes = mZipSet.setZipResourceTable(ap.path, sharedRes);
+          }
         }
       }
     } else {
@@ -1661,6 +1666,16 @@ public class CppAssetManager {
       return zip.getZip();
     }
 
+    synchronized SharedZip getSharedZip(final String8 path) {
+      int idx = getIndex(path.string());
+      SharedZip zip = mZipFile.get(idx);
+      if (zip == null) {
+        zip = SharedZip.get(path);
+        mZipFile.set(idx, zip);
+      }
+      return zip;
+    }
+
     synchronized Asset getZipResourceTableAsset(final String8 path) {
       int idx = getIndex(path.string());
       SharedZip zip = mZipFile.get(idx);
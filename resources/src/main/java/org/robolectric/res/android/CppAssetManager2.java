@@ -19,10 +19,8 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.robolectric.res.Fs;
@@ -204,7 +202,20 @@ public class CppAssetManager2 {
   // Cached set of bags. These are cached because they can inherit keys from parent bags,
   // which involves some calculation.
 //  private std.unordered_map<int, util.unique_cptr<ResolvedBag>> cached_bags_;
-  final private Map<Integer, ResolvedBag> cached_bags_ = new HashMap<>();
+  final private ResolvedBagCache cached_bags_ = new ResolvedBagCache();
+
+  // Bags from the framework for the current configuration, shared with other AssetManagers that
+  // use the same framework. Null if the framework's bags can't be shared, e.g. if it's overlaid.
+  private ResolvedBagCache framework_bags_;
+
+  // Incremented whenever the assets or the configuration change, so that caches of resolved
+  // values outside this AssetManager (e.g. themes' StyleAttributeCaches) know to drop them.
+  private int cache_generation_;
+
+  // Robolectric-custom: the entries that FindEntry() selected for the current configuration, by
+  // resource ID, so that looking up a resource again doesn't have to compare all of its
+  // configurations again. Cleared whenever the filtered configurations are rebuilt.
+  private final ResourceIdMap<FindEntryResult> cached_entries_ = new ResourceIdMap<>();
 //  };
 
 //final ResolvedBag.Entry* begin(final ResolvedBag* bag) { return bag.entries; }
@@ -258,6 +269,9 @@ public class CppAssetManager2 {
     // The string pool reference to the entry's name. This uses a different string pool than
     // the global string pool, but this is hidden from the caller.
     StringPoolRef entry_string_ref;
+
+    // Robolectric-custom: the cookie of the ApkAssets the entry was found in.
+    ApkAssetsCookie cookie;
   }
 
 //  AssetManager2() { memset(&configuration_, 0, sizeof(configuration_)); }
@@ -271,15 +285,38 @@ public class CppAssetManager2 {
 //  boolean SetApkAssets(final List<ApkAssets> apk_assets, boolean invalidate_caches = true);
   public boolean SetApkAssets(final List<CppApkAssets> apk_assets, boolean invalidate_caches) {
     apk_assets_ = apk_assets;
+    cache_generation_++;
     BuildDynamicRefTable();
     RebuildFilterList();
     if (invalidate_caches) {
 //      InvalidateCaches(static_cast<int>(-1));
       InvalidateCaches(-1);
     }
+    UpdateFrameworkBagCache();
     return true;
   }
 
+  // Looks up the shared cache of framework bags for the current configuration. Framework bags
+  // only depend on the framework and the configuration if it's the first ApkAssets (so the
+  // bag entries' cookies are the same everywhere) and the only package with the framework's ID.
+  private void UpdateFrameworkBagCache() {
+    framework_bags_ = null;
+    if (apk_assets_ == null || apk_assets_.isEmpty()) {
+      return;
+    }
+    byte idx = package_ids_[0x01];
+    if (idx == (byte) 0xff) {
+      return;
+    }
+    PackageGroup package_group = package_groups_.get(idx);
+    if (package_group.packages_.size() == 1
+        && package_group.cookies_.get(0).intValue() == 0
+        && package_group.packages_.get(0).loaded_package_.IsSystem()) {
+      framework_bags_ =
+          ResolvedBagCache.forFramework(apk_assets_.get(0).GetLoadedArsc(), configuration_);
+    }
+  }
+
   // Assigns package IDs to all shared library ApkAssets.
   // Should be called whenever the ApkAssets are changed.
 //  void BuildDynamicRefTable();
@@ -430,6 +467,7 @@ public class CppAssetManager2 {
       RebuildFilterList();
 //      InvalidateCaches(static_cast<int>(diff));
       InvalidateCaches(diff);
+      UpdateFrameworkBagCache();
     }
   }
 
@@ -582,6 +620,34 @@ public class CppAssetManager2 {
     return apk_assets_.get(cookie.intValue()).Open(filename, mode);
   }
 
+  // Robolectric-custom: opens the compiled XML file `filename` in the APK specified by `cookie`,
+  // reusing the data parsed by earlier calls for the same file. Returns null if the file doesn't
+  // exist.
+  public ResXMLTree OpenXml(final String filename, ApkAssetsCookie cookie) {
+    if (cookie.intValue() < 0 || cookie.intValue() >= apk_assets_.size()) {
+      return null;
+    }
+    return apk_assets_.get(cookie.intValue())
+        .OpenXml(filename, GetDynamicRefTableForCookie(cookie));
+  }
+
+  // Robolectric-custom: like OpenXml(filename, cookie), but searches the loaded APKs in reverse
+  // order like OpenNonAsset(), setting `out_cookie` to the APK the file was found in. Files are only
+  // read from the APK that has them, and not at all if they've already been parsed.
+  public ResXMLTree OpenXml(final String filename, Ref<ApkAssetsCookie> out_cookie) {
+    for (int i = apk_assets_.size() - 1; i >= 0; i--) {
+      ApkAssetsCookie cookie = ApkAssetsCookie.forInt(i);
+      ResXMLTree xml_tree = OpenXml(filename, cookie);
+      if (xml_tree != null) {
+        out_cookie.set(cookie);
+        return xml_tree;
+      }
+    }
+
+    out_cookie.set(K_INVALID_COOKIE);
+    return null;
+  }
+
   // template <typename Func>
   public interface PackageFunc {
     void apply(String package_name, byte package_id);
@@ -622,7 +688,8 @@ public class CppAssetManager2 {
     // Select our configuration or generate a density override configuration.
     ResTable_config desired_config = configuration_;
     if (density_override != 0 && density_override != configuration_.density) {
-      density_override_config = configuration_;
+      // Robolectric: copy it, like the C++ assignment does, so configuration_ isn't modified.
+      density_override_config = new ResTable_config(configuration_);
       density_override_config.density = density_override;
       desired_config = density_override_config;
     }
@@ -632,6 +699,18 @@ public class CppAssetManager2 {
       return K_INVALID_COOKIE;
     }
 
+    // If desired_config is the same as the set configuration, then we can use our filtered list
+    // and we don't need to match the configurations, since they already matched.
+    boolean use_fast_path = desired_config == configuration_;
+
+    if (use_fast_path) {
+      FindEntryResult cached_entry = cached_entries_.get(resid);
+      if (cached_entry != null) {
+        out_entry.set(cached_entry);
+        return cached_entry.cookie;
+      }
+    }
+
     final int package_id = get_package_id(resid);
     final int type_idx = (byte) (get_type_id(resid) - 1);
     final int entry_idx = get_entry_id(resid);
@@ -654,10 +733,6 @@ public class CppAssetManager2 {
     int best_offset = 0;
     int type_flags = 0;
 
-    // If desired_config is the same as the set configuration, then we can use our filtered list
-    // and we don't need to match the configurations, since they already matched.
-    boolean use_fast_path = desired_config == configuration_;
-
     for (int pi = 0; pi < package_count; pi++) {
       ConfiguredPackage loaded_package_impl = package_group.packages_.get(pi);
       LoadedPackage loaded_package = loaded_package_impl.loaded_package_;
@@ -762,6 +837,10 @@ public class CppAssetManager2 {
     out_entry_.entry_string_ref =
         new StringPoolRef(best_package.GetKeyStringPool(), best_entry.key.index);
     out_entry_.dynamic_ref_table = package_group.dynamic_ref_table;
+    out_entry_.cookie = best_cookie;
+    if (use_fast_path) {
+      cached_entries_.put(resid, out_entry_);
+    }
     out_entry.set(out_entry_);
     return best_cookie;
   }
@@ -904,11 +983,12 @@ public class CppAssetManager2 {
       final Ref<Integer> out_last_reference) {
     final int kMaxIterations = 20;
 
+    final Ref<Integer> new_flags = new Ref<>(0);
     for (int iteration = 0; in_out_value.get().dataType == Res_value.TYPE_REFERENCE &&
         in_out_value.get().data != 0 && iteration < kMaxIterations;
         iteration++) {
       out_last_reference.set(in_out_value.get().data);
-      final Ref<Integer> new_flags = new Ref<>(0);
+      new_flags.set(0);
       cookie = GetResource(in_out_value.get().data, true /*may_be_bag*/, (short) 0 /*density_override*/,
           in_out_value, in_out_selected_config, new_flags);
       if (cookie.intValue() == kInvalidCookie) {
@@ -950,6 +1030,14 @@ public class CppAssetManager2 {
     if (cached_iter != null) {
       return cached_iter;
     }
+    ResolvedBagCache framework_bags = get_package_id(resid) == 0x01 ? framework_bags_ : null;
+    if (framework_bags != null) {
+      cached_iter = framework_bags.get(resid);
+      if (cached_iter != null) {
+        cached_bags_.put(resid, cached_iter);
+        return cached_iter;
+      }
+    }
 
     final Ref<FindEntryResult> entryRef = new Ref<>(null);
     ApkAssetsCookie cookie =
@@ -1037,6 +1125,9 @@ public class CppAssetManager2 {
       new_bag.entry_count = entry_count;
       ResolvedBag result = new_bag;
       cached_bags_.put(resid, new_bag);
+      if (framework_bags != null) {
+        framework_bags.put(resid, new_bag);
+      }
       return result;
     }
 
@@ -1192,6 +1283,9 @@ public class CppAssetManager2 {
     ResolvedBag result2 = new_bag;
     // cached_bags_[resid] = std::move(new_bag);
     cached_bags_.put(resid, new_bag);
+    if (framework_bags != null) {
+      framework_bags.put(resid, new_bag);
+    }
     return result2;
   }
 
@@ -1318,12 +1412,14 @@ public class CppAssetManager2 {
         });
       }
     }
+    cached_entries_.clear();
   }
 
   // Purge all resources that are cached and vary by the configuration axis denoted by the
   // bitmask `diff`.
 //  void InvalidateCaches(int diff);
   private void InvalidateCaches(int diff) {
+    cache_generation_++;
     if (diff == 0xffffffff) {
       // Everything must go.
       cached_bags_.clear();
@@ -1333,13 +1429,9 @@ public class CppAssetManager2 {
     // Be more conservative with what gets purged. Only if the bag has other possible
     // variations with respect to what changed (diff) should we remove it.
     // for (auto iter = cached_bags_.cbegin(); iter != cached_bags_.cend();) {
-    for (Integer key : new ArrayList<>(cached_bags_.keySet())) {
-      // if (diff & iter.second.type_spec_flags) {
-      if (isTruthy(diff & cached_bags_.get(key).type_spec_flags)) {
-        // iter = cached_bags_.erase(iter);
-        cached_bags_.remove(key);
-      }
-    }
+    //   if (diff & iter.second.type_spec_flags) {
+    //     iter = cached_bags_.erase(iter);
+    cached_bags_.removeIf(bag -> isTruthy(diff & bag.type_spec_flags));
   }
 
   // Creates a new Theme from this AssetManager.
@@ -1374,10 +1466,21 @@ public class CppAssetManager2 {
     //  std.array<std.unique_ptr<Package>, kPackageCount> packages_;
     private Package[] packages_ = new Package[kPackageCount];
 
+    // Robolectric-custom: memoized style attribute values, see AttributeResolution.ApplyStyle().
+    private final StyleAttributeCache style_attribute_cache_ = new StyleAttributeCache();
+
     public Theme(CppAssetManager2 cppAssetManager2) {
       asset_manager_ = cppAssetManager2;
     }
 
+    // Robolectric-custom: returns the values this theme and the given styles give to `attrs`.
+    StyleAttributeCache.Values GetStyleAttributeValues(int[] attrs, int attrs_length,
+        int def_style_resid, int def_style_flags, int style_resid, int style_flags,
+        int values_per_attribute) {
+      return style_attribute_cache_.get(asset_manager_.cache_generation_, attrs, attrs_length,
+          def_style_resid, def_style_flags, style_resid, style_flags, values_per_attribute);
+    }
+
     private static class ThemeEntry {
       static final int SIZEOF = 8 + Res_value.SIZEOF;
 
@@ -1419,6 +1522,7 @@ public class CppAssetManager2 {
       if (bag == null) {
         return false;
       }
+      style_attribute_cache_.clear();
 
       // Merge the flags from this style.
       type_spec_flags_ |= bag.type_spec_flags;
@@ -1537,8 +1641,8 @@ public class CppAssetManager2 {
             if (entry_idx < type.entry_count) {
               ThemeEntry entry = type.entries[entry_idx];
               if (entry == null) {
-                entry = new ThemeEntry();
-                entry.value = new Res_value();
+                // Robolectric: an unset entry is @null, so don't bother allocating one.
+                return K_INVALID_COOKIE;
               }
               type_spec_flags |= entry.type_spec_flags;
 
@@ -1596,6 +1700,7 @@ public class CppAssetManager2 {
 
     //  void Clear();
     public void Clear() {
+      style_attribute_cache_.clear();
       type_spec_flags_ = 0;
       for (int i = 0; i < packages_.length; i++) {
 //        package_.reset();
@@ -1611,6 +1716,7 @@ public class CppAssetManager2 {
         return true;
       }
 
+      style_attribute_cache_.clear();
       type_spec_flags_ = o.type_spec_flags_;
 
       boolean copy_only_system = asset_manager_ != o.asset_manager_;
@@ -18,6 +18,7 @@ import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.robolectric.res.android.ResourceTypes.ResChunk_header;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_header.Writer;
@@ -50,8 +51,10 @@ public class ResStringPool {
 //    const void*                 mStrings;
     private int                 mStrings;
   //private List<String> mStrings;
-  //private String[] mCache;
   //private char16_t mutable**          mCache;
+  // Decoded strings, by index; allocated on the first lookup. Entries are filled racily, which is
+  // fine since decoding the same string twice gives an equal result.
+  private volatile AtomicReferenceArray<String> mCache;
     private int                    mStringPoolSize;    // number of uint16_t
 //    const uint32_t*             mStyles;
     private int             mStyles;
@@ -322,9 +325,42 @@ public class ResStringPool {
   void uninit() {
     setError(NO_INIT);
     mHeader = null;
+    mCache = null;
+  }
+
+  private AtomicReferenceArray<String> getCache() {
+    AtomicReferenceArray<String> cache = mCache;
+    if (cache == null) {
+      synchronized (this) {
+        cache = mCache;
+        if (cache == null) {
+          if (kDebugStringPoolNoisy) {
+            ALOGI("CREATING STRING CACHE OF %d entries", mHeader.stringCount);
+          }
+          mCache = cache = new AtomicReferenceArray<>(mHeader.stringCount);
+        }
+      }
+    }
+    return cache;
   }
 
   public String stringAt(int idx) {
+    if (mError == NO_ERROR && idx >= 0 && idx < mHeader.stringCount) {
+      AtomicReferenceArray<String> cache = getCache();
+      String cached = cache.get(idx);
+      if (cached != null) {
+        return cached;
+      }
+      String decoded = decodeStringAt(idx);
+      if (decoded != null) {
+        cache.lazySet(idx, decoded);
+      }
+      return decoded;
+    }
+    return null;
+  }
+
+  private String decodeStringAt(int idx) {
     if (mError == NO_ERROR && idx < mHeader.stringCount) {
         final boolean isUTF8 = (mHeader.flags&ResStringPool_header.UTF8_FLAG) != 0;
 //        const uint32_t off = mEntries[idx]/(isUTF8?sizeof(uint8_t):sizeof(uint16_t));
@@ -69,6 +69,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 
 /**
@@ -709,6 +710,41 @@ public class ResTable_config {
     this.localeVariant = new byte[8];
   }
 
+  // Robolectric: the same qualifier strings are parsed for every resource directory and every
+  // @Config(qualifiers=...), so parsed configs are cached, keyed on applyVersionForCompat.
+  private static final Map<String, ResTable_config> parsedQualifiers = new ConcurrentHashMap<>();
+  private static final Map<String, ResTable_config> parsedQualifiersWithoutVersionForCompat =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns a new config parsed from {@code qualifiers} by {@link ConfigDescription#parse}, or
+   * null if the qualifiers are invalid. Results are cached, so the returned config is a copy that
+   * the caller may modify.
+   */
+  public static ResTable_config fromQualifiers(String qualifiers, boolean applyVersionForCompat) {
+    Map<String, ResTable_config> cache =
+        applyVersionForCompat ? parsedQualifiers : parsedQualifiersWithoutVersionForCompat;
+    ResTable_config parsed = cache.get(qualifiers);
+    if (parsed == null) {
+      parsed = new ResTable_config();
+      if (!ConfigDescription.parse(qualifiers, parsed, applyVersionForCompat)) {
+        return null;
+      }
+      cache.putIfAbsent(qualifiers, parsed);
+    }
+    return parsed.deepCopy();
+  }
+
+  /** Unlike the copy constructor, doesn't share arrays with this config. */
+  private ResTable_config deepCopy() {
+    return new ResTable_config(size, mcc, mnc, language.clone(), country.clone(),
+        orientation, touchscreen, density, keyboard, navigation, inputFlags,
+        screenWidth, screenHeight, sdkVersion, minorVersion, screenLayout, uiMode,
+        smallestScreenWidthDp, screenWidthDp, screenHeightDp, localeScript.clone(),
+        localeVariant.clone(), screenLayout2, colorMode, screenConfigPad2,
+        unknown == null ? null : unknown.clone());
+  }
+
   public int minorVersion;
   public int screenLayout;
 
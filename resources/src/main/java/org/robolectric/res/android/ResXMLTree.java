@@ -48,6 +48,8 @@ public class ResXMLTree {
     ResXMLTree_node mRootNode;
     int                 mRootExt;
   int                mRootCode;
+  // Robolectric-custom: true if the data, including mStrings, belongs to another tree.
+  boolean mSharedData;
 
   static volatile AtomicInteger gCount = new AtomicInteger(0);
 
@@ -82,6 +84,10 @@ public class ResXMLTree {
   {
     uninit();
     mParser.mEventCode = START_DOCUMENT;
+    if (mSharedData) {
+      mStrings = new ResStringPool();
+      mSharedData = false;
+    }
 
     if (!isTruthy(data) || !isTruthy(size)) {
       return (mError=BAD_TYPE);
@@ -193,6 +199,29 @@ public class ResXMLTree {
     return mError;
   }
 
+  /**
+   * Robolectric-custom: makes this tree use the data already parsed and validated by {@code other},
+   * without copying it. Trees can share data since it's never modified once parsed; each has its
+   * own parser and dynamic reference table.
+   */
+  public int setTo(ResXMLTree other) {
+    uninit();
+    mSharedData = true;
+    mBuffer = other.mBuffer;
+    mHeader = other.mHeader;
+    mSize = other.mSize;
+    mDataLen = other.mDataLen;
+    mStrings = other.mStrings;
+    mResIds = other.mResIds;
+    mNumResIds = other.mNumResIds;
+    mRootNode = other.mRootNode;
+    mRootExt = other.mRootExt;
+    mRootCode = other.mRootCode;
+    mError = other.mError;
+    mParser.restart();
+    return mError;
+  }
+
   public int getError()
   {
     return mError;
@@ -201,7 +230,9 @@ public class ResXMLTree {
   void uninit()
   {
     mError = NO_INIT;
-    mStrings.uninit();
+    if (!mSharedData) {
+      mStrings.uninit();
+    }
     if (isTruthy(mOwnedData)) {
 //      free(mOwnedData);
       mOwnedData = null;
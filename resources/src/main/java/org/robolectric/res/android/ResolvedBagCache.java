@@ -0,0 +1,79 @@
+package org.robolectric.res.android;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
+
+/**
+ * A map from resource ID to {@link ResolvedBag}.
+ *
+ * <p>Each {@link CppAssetManager2} has its own cache, which is dropped when its configuration
+ * changes. Bags from the framework don't depend on anything but the framework resources and the
+ * configuration, so they are also kept in a process-wide cache per framework {@link LoadedArsc}
+ * and configuration (see {@link #forFramework}), which is shared by all the asset managers that
+ * use that framework, e.g. the ones created for each test.
+ */
+final class ResolvedBagCache extends ResourceIdMap<ResolvedBag> {
+  // The number of configurations to keep bags for, per framework.
+  private static final int MAX_SHARED_CONFIGURATIONS = 32;
+
+  private static final Map<LoadedArsc, Map<ByteBuffer, ResolvedBagCache>> FRAMEWORK_CACHES =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Returns the cache shared by all asset managers that resolve bags from {@code framework} with
+   * the given configuration.
+   */
+  static ResolvedBagCache forFramework(LoadedArsc framework, ResTable_config configuration) {
+    ByteBuffer configurationKey = toKey(configuration);
+    Map<ByteBuffer, ResolvedBagCache> cachesByConfiguration;
+    synchronized (FRAMEWORK_CACHES) {
+      cachesByConfiguration = FRAMEWORK_CACHES.get(framework);
+      if (cachesByConfiguration == null) {
+        cachesByConfiguration =
+            new LinkedHashMap<ByteBuffer, ResolvedBagCache>(16, 0.75f, /* accessOrder= */ true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ResolvedBagCache> eldest) {
+                return size() > MAX_SHARED_CONFIGURATIONS;
+              }
+            };
+        FRAMEWORK_CACHES.put(framework, cachesByConfiguration);
+      }
+      return cachesByConfiguration.computeIfAbsent(configurationKey, k -> new ResolvedBagCache());
+    }
+  }
+
+  private static ByteBuffer toKey(ResTable_config config) {
+    ByteBuffer buf = ByteBuffer.allocate(128);
+    buf.putInt(config.mcc)
+        .putInt(config.mnc)
+        .put(config.language)
+        .put(config.country)
+        .putInt(config.orientation)
+        .putInt(config.touchscreen)
+        .putInt(config.density)
+        .putInt(config.keyboard)
+        .putInt(config.navigation)
+        .putInt(config.inputFlags)
+        .putInt(config.screenWidth)
+        .putInt(config.screenHeight)
+        .putInt(config.sdkVersion)
+        .putInt(config.minorVersion)
+        .putInt(config.screenLayout)
+        .putInt(config.uiMode)
+        .putInt(config.smallestScreenWidthDp)
+        .putInt(config.screenWidthDp)
+        .putInt(config.screenHeightDp)
+        .put(config.localeScript)
+        .put(config.localeVariant)
+        .put(config.localeNumberingSystem)
+        .put((byte) (config.localeScriptWasComputed ? 1 : 0))
+        .put(config.screenLayout2)
+        .put(config.colorMode);
+    buf.flip();
+    return buf;
+  }
+}
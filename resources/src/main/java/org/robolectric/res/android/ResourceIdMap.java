@@ -0,0 +1,102 @@
+package org.robolectric.res.android;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe map from resource ID to value, using primitive int keys so that lookups don't box.
+ */
+class ResourceIdMap<V> {
+  // 0 is never a valid resource ID, so it marks empty slots.
+  private static final int EMPTY = 0;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  synchronized V get(int resid) {
+    int mask = keys.length - 1;
+    for (int i = hash(resid) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys[i] == resid) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  synchronized void put(int resid, V value) {
+    if (resid == EMPTY) {
+      return;
+    }
+    if ((size + 1) * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    if (insert(keys, values, resid, value)) {
+      size++;
+    }
+  }
+
+  synchronized void clear() {
+    if (size == 0) {
+      return;
+    }
+    Arrays.fill(keys, EMPTY);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  synchronized void removeIf(Predicate<? super V> predicate) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[oldKeys.length];
+    values = new Object[oldValues.length];
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY && !predicate.test((V) oldValues[i])) {
+        insert(keys, values, oldKeys[i], oldValues[i]);
+        size++;
+      }
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        insert(keys, values, oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  /** Returns true if a new key was added, or false if an existing one was replaced. */
+  private static boolean insert(int[] keys, Object[] values, int resid, Object value) {
+    int mask = keys.length - 1;
+    int i = hash(resid) & mask;
+    while (keys[i] != EMPTY) {
+      if (keys[i] == resid) {
+        values[i] = value;
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = resid;
+    values[i] = value;
+    return true;
+  }
+
+  private static int hash(int resid) {
+    // Resource IDs in a package are mostly sequential, so spread them out.
+    int h = resid * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,184 @@
+package org.robolectric.res.android;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * Memoizes the part of {@code AttributeResolution.ApplyStyle} that doesn't depend on the XML
+ * attributes of the element being inflated: the values that a {@link CppAssetManager2.Theme}, an
+ * XML style and a default style give to each of a set of attributes.
+ *
+ * <p>Views of the same kind are usually inflated with the same styleable attributes and styles, so
+ * those values are only resolved once per theme; attributes set in the XML are still resolved every
+ * time. Each theme has its own cache, which is cleared when the theme is modified or its asset
+ * manager's configuration or assets change.
+ *
+ * <p>Like {@link CppAssetManager2.Theme}, this isn't thread-safe.
+ */
+final class StyleAttributeCache {
+  // The number of (attrs, styles) combinations to keep values for, per theme.
+  private static final int MAX_ENTRIES = 128;
+
+  private final Map<Key, Values> entries =
+      new LinkedHashMap<Key, Values>(16, 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Values> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  // The asset manager's cache generation that the entries were resolved with.
+  private int generation;
+
+  /**
+   * Returns the values for the given attributes and styles, which may only have been resolved for
+   * some of the attributes yet.
+   *
+   * @param valuesPerAttribute the number of values stored for each attribute
+   */
+  Values get(
+      int generation,
+      int[] attrs,
+      int attrsLength,
+      int defStyleResid,
+      int defStyleFlags,
+      int styleResid,
+      int styleFlags,
+      int valuesPerAttribute) {
+    if (this.generation != generation) {
+      entries.clear();
+      this.generation = generation;
+    }
+
+    Key key = new Key(attrs, attrsLength, defStyleResid, defStyleFlags, styleResid, styleFlags);
+    Values values = entries.get(key);
+    if (values != null) {
+      PerfStatsCollector.getInstance().incrementCount("style attribute cache hit");
+      return values;
+    }
+    PerfStatsCollector.getInstance().incrementCount("style attribute cache miss");
+    values = new Values(attrsLength, valuesPerAttribute);
+    entries.put(key.copy(), values);
+    return values;
+  }
+
+  void clear() {
+    entries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /** The resolved values of each attribute, as written to {@code ApplyStyle}'s out_values. */
+  static final class Values {
+    private final int valuesPerAttribute;
+    private final int[] values;
+    private final boolean[] resolved;
+
+    private Values(int attrsLength, int valuesPerAttribute) {
+      this.valuesPerAttribute = valuesPerAttribute;
+      this.values = new int[attrsLength * valuesPerAttribute];
+      this.resolved = new boolean[attrsLength];
+    }
+
+    /**
+     * Copies the values of the attribute at {@code index} to {@code outValues} if they have been
+     * resolved.
+     *
+     * @return true if the values were copied
+     */
+    boolean copyTo(int index, int[] outValues) {
+      if (!resolved[index]) {
+        return false;
+      }
+      int offset = index * valuesPerAttribute;
+      System.arraycopy(values, offset, outValues, offset, valuesPerAttribute);
+      return true;
+    }
+
+    /** Records the values of the attribute at {@code index} from {@code outValues}. */
+    void copyFrom(int index, int[] outValues) {
+      int offset = index * valuesPerAttribute;
+      System.arraycopy(outValues, offset, values, offset, valuesPerAttribute);
+      resolved[index] = true;
+    }
+  }
+
+  private static final class Key {
+    private final int[] attrs;
+    private final int attrsLength;
+    private final int defStyleResid;
+    private final int defStyleFlags;
+    private final int styleResid;
+    private final int styleFlags;
+    private final int hashCode;
+
+    Key(
+        int[] attrs,
+        int attrsLength,
+        int defStyleResid,
+        int defStyleFlags,
+        int styleResid,
+        int styleFlags) {
+      this.attrs = attrs;
+      this.attrsLength = attrsLength;
+      this.defStyleResid = defStyleResid;
+      this.defStyleFlags = defStyleFlags;
+      this.styleResid = styleResid;
+      this.styleFlags = styleFlags;
+      int h = attrsLength;
+      for (int i = 0; i < attrsLength; i++) {
+        h = 31 * h + attrs[i];
+      }
+      h = 31 * h + defStyleResid;
+      h = 31 * h + defStyleFlags;
+      h = 31 * h + styleResid;
+      h = 31 * h + styleFlags;
+      this.hashCode = h;
+    }
+
+    // Keys in the map hold their own copy of the attributes, in case the caller reuses the array.
+    Key copy() {
+      return new Key(
+          Arrays.copyOf(attrs, attrsLength),
+          attrsLength,
+          defStyleResid,
+          defStyleFlags,
+          styleResid,
+          styleFlags);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      if (hashCode != that.hashCode
+          || attrsLength != that.attrsLength
+          || defStyleResid != that.defStyleResid
+          || defStyleFlags != that.defStyleFlags
+          || styleResid != that.styleResid
+          || styleFlags != that.styleFlags) {
+        return false;
+      }
+      for (int i = 0; i < attrsLength; i++) {
+        if (attrs[i] != that.attrs[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
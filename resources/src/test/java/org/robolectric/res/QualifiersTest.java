@@ -5,9 +5,11 @@ import static org.junit.Assert.fail;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ConfigDescription;
 import org.robolectric.res.android.ResTable_config;
 
 @RunWith(JUnit4.class)
@@ -27,6 +29,85 @@ public class QualifiersTest {
     }
   }
 
+  @Test
+  public void fromParentDir_extractsQualifiers() {
+    assertThat(Qualifiers.fromParentDir(Paths.get("values")).toString()).isEqualTo("");
+    assertThat(Qualifiers.fromParentDir(Paths.get("values-land")).toString()).isEqualTo("land");
+    assertThat(Qualifiers.fromParentDir(Paths.get("res", "values-en-rUS")).toString())
+        .isEqualTo("en-rUS");
+    assertThat(Qualifiers.fromParentDir(null).toString()).isEqualTo("");
+  }
+
+  @Test
+  public void fromParentDir_withoutType_throws() {
+    try {
+      Qualifiers.fromParentDir(Paths.get("-land"));
+      fail("Expected exception");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).isEqualTo("-land");
+    }
+  }
+
+  @Test
+  public void parse_returnsIndependentConfigs() {
+    Qualifiers qualifiers = Qualifiers.parse("fr-land");
+    qualifiers.getConfig().language[0] = 'e';
+    qualifiers.getConfig().language[1] = 'n';
+
+    assertThat(Qualifiers.parse("fr-land").getConfig().languageString()).isEqualTo("fr");
+  }
+
+  @Test
+  @Ignore("for benchmarking")
+  public void parsePerf() throws Exception {
+    String[] dirNames = {
+      "values", "values-land", "values-en-rUS", "values-sw600dp-v13", "values-night-v8",
+      "drawable-xxhdpi-v4", "layout-w820dp", "values-mcc310-mnc004", "values-b+sr+Latn"
+    };
+    Path[] dirs = new Path[dirNames.length];
+    for (int i = 0; i < dirNames.length; i++) {
+      dirs[i] = Paths.get("res", dirNames[i]);
+    }
+
+    Runnable fromParentDir =
+        () -> {
+          for (int j = 0; j < 20_000; j++) {
+            for (Path dir : dirs) {
+              Qualifiers.fromParentDir(dir);
+            }
+          }
+        };
+    Runnable parseConfigDescription =
+        () -> {
+          for (int j = 0; j < 20_000; j++) {
+            for (String dirName : dirNames) {
+              int dash = dirName.indexOf('-');
+              if (dash > 0) {
+                ConfigDescription.parse(dirName.substring(dash + 1), new ResTable_config());
+              }
+            }
+          }
+        };
+    Runnable newResName =
+        () -> {
+          for (int j = 0; j < 200_000; j++) {
+            new ResName("org.robolectric:style/Theme.Robolectric");
+          }
+        };
+
+    for (int i = 0; i < 3; i++) {
+      System.out.println("fromParentDir took " + elapsedMs(fromParentDir));
+      System.out.println("ConfigDescription.parse took " + elapsedMs(parseConfigDescription));
+      System.out.println("new ResName(fullyQualifiedName) took " + elapsedMs(newResName));
+    }
+  }
+
+  private static long elapsedMs(Runnable runnable) {
+    long startTime = System.currentTimeMillis();
+    runnable.run();
+    return System.currentTimeMillis() - startTime;
+  }
+
   private String configFrom(String path) {
     Path xmlFile = Paths.get(path, "whatever.xml");
     Qualifiers qualifiers = Qualifiers.fromParentDir(xmlFile.getParent());
@@ -0,0 +1,128 @@
+package org.robolectric.res;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ConfigDescription;
+import org.robolectric.res.android.ResTable_config;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("NewApi")
+public class ResourceTableFactoryTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void newResourceTable_loadsAllValuesFiles() throws Exception {
+    ResourcePath resourcePath = createResourcePath("lib", 20, 5);
+
+    PackageResourceTable resourceTable =
+        new ResourceTableFactory().newResourceTable("pkg", resourcePath);
+
+    for (int file = 0; file < 20; file++) {
+      for (int string = 0; string < 5; string++) {
+        String name = "string_" + file + "_" + string;
+        assertThat(getString(resourceTable, name, "")).isEqualTo("lib " + name);
+        assertThat(getString(resourceTable, name, "fr")).isEqualTo("lib fr " + name);
+      }
+    }
+  }
+
+  @Test
+  public void newResourceTable_prefersResourcesFromEarlierPaths() throws Exception {
+    ResourcePath[] resourcePaths = new ResourcePath[10];
+    for (int i = 0; i < resourcePaths.length; i++) {
+      resourcePaths[i] = createResourcePath("lib" + i, 3, 3);
+    }
+
+    PackageResourceTable resourceTable =
+        new ResourceTableFactory().newResourceTable("pkg", resourcePaths);
+
+    assertThat(getString(resourceTable, "string_2_2", "")).isEqualTo("lib0 string_2_2");
+    assertThat(getString(resourceTable, "string_2_2", "fr")).isEqualTo("lib0 fr string_2_2");
+  }
+
+  @Test
+  @Ignore("for benchmarking")
+  public void newResourceTablePerf() throws Exception {
+    ResourcePath[] resourcePaths = new ResourcePath[80];
+    for (int i = 0; i < resourcePaths.length; i++) {
+      resourcePaths[i] = createResourcePath("lib" + i, 10, 100);
+    }
+
+    // Parallel streams run in the pool of the task that starts them.
+    ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+    try {
+      for (int i = 0; i < 3; i++) {
+        long singleThreadMs =
+            elapsedMs(
+                () ->
+                    singleThreadPool
+                        .submit(
+                            () -> new ResourceTableFactory().newResourceTable("pkg", resourcePaths))
+                        .get());
+        System.out.println("newResourceTable (single thread) took " + singleThreadMs);
+        long commonPoolMs =
+            elapsedMs(() -> new ResourceTableFactory().newResourceTable("pkg", resourcePaths));
+        System.out.println("newResourceTable (common pool) took " + commonPoolMs);
+      }
+    } finally {
+      singleThreadPool.shutdown();
+    }
+  }
+
+  /**
+   * Creates a resource directory with {@code files} files in each of values/ and values-fr/, each
+   * with {@code strings} strings whose values start with {@code name}.
+   */
+  private ResourcePath createResourcePath(String name, int files, int strings)
+      throws IOException {
+    Path resourceBase = temporaryFolder.newFolder(name, "res").toPath();
+    for (String qualifiers : new String[] {"", "-fr"}) {
+      Path valuesDir = Files.createDirectories(resourceBase.resolve("values" + qualifiers));
+      for (int file = 0; file < files; file++) {
+        StringBuilder xml = new StringBuilder("<resources>\n");
+        for (int string = 0; string < strings; string++) {
+          String stringName = "string_" + file + "_" + string;
+          xml.append("  <string name=\"")
+              .append(stringName)
+              .append("\">")
+              .append(name)
+              .append(qualifiers.replace('-', ' '))
+              .append(' ')
+              .append(stringName)
+              .append("</string>\n");
+        }
+        xml.append("</resources>\n");
+        Files.write(valuesDir.resolve("strings_" + file + ".xml"), xml.toString().getBytes(UTF_8));
+      }
+    }
+    return new ResourcePath(null, resourceBase, null);
+  }
+
+  private static String getString(
+      PackageResourceTable resourceTable, String name, String qualifiers) {
+    ResTable_config config = new ResTable_config();
+    ConfigDescription.parse(qualifiers, config);
+    return (String) resourceTable.getValue(new ResName("pkg", "string", name), config).getData();
+  }
+
+  private interface ThrowingRunnable {
+    void run() throws Exception;
+  }
+
+  private static long elapsedMs(ThrowingRunnable runnable) throws Exception {
+    long startTime = System.currentTimeMillis();
+    runnable.run();
+    return System.currentTimeMillis() - startTime;
+  }
+}
@@ -0,0 +1,124 @@
+package org.robolectric.res;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResTable_config;
+
+@RunWith(JUnit4.class)
+public class StyleResolverTest {
+
+  @Test
+  public void shouldFindAttributesFromStyleBeforeTheme() throws Exception {
+    ThemeStyleSet theme = new ThemeStyleSet();
+    theme.apply(createStyle("Theme", createAttribute("string1", "string1 value from theme")), false);
+    StyleResolver styleResolver = createStyleResolver(
+        createStyle("Style", createAttribute("string1", "string1 value from style")), theme);
+
+    assertThat(styleResolver.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style");
+    assertThat(styleResolver.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style");
+  }
+
+  @Test
+  public void shouldFindAttributesFromThemeAppliedAfterLookup() throws Exception {
+    ThemeStyleSet theme = new ThemeStyleSet();
+    StyleResolver styleResolver = createStyleResolver(
+        createStyle("Style", createAttribute("string1", "string1 value from style")), theme);
+    assertThat(styleResolver.getAttrValue(attrName("string2"))).isNull();
+
+    theme.apply(createStyle("Theme", createAttribute("string2", "string2 value from theme")), false);
+
+    assertThat(styleResolver.getAttrValue(attrName("string2")).value).isEqualTo("string2 value from theme");
+  }
+
+  @Test
+  public void getAttrValue_fromConcurrentThreads_findsAttributesFromParents() throws Exception {
+    // Each style in the chain has its own attribute, so each lookup walks further up the parents.
+    int depth = 200;
+    PackageResourceTable resourceTable = new PackageResourceTable("package");
+    Path valuesDir = Paths.get("res", "values");
+    XmlContext xmlContext =
+        new XmlContext(
+            "package", valuesDir.resolve("styles.xml"), Qualifiers.fromParentDir(valuesDir));
+    for (int i = 1; i < depth; i++) {
+      StyleData style =
+          new StyleData(
+              "package",
+              "Style" + i,
+              i + 1 < depth ? "Style" + (i + 1) : null,
+              Collections.singletonList(createAttribute("string" + i, "string" + i + " value")));
+      resourceTable.addResource(
+          "style", "Style" + i, new TypedResource<>(style, ResType.STYLE, xmlContext));
+    }
+    StyleResolver styleResolver =
+        new StyleResolver(
+            resourceTable,
+            null,
+            new StyleData(
+                "package",
+                "Style0",
+                "Style1",
+                Collections.singletonList(createAttribute("string0", "string0 value"))),
+            new ThemeStyleSet(),
+            new ResName("package", "style", "Style0"),
+            new ResTable_config());
+
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  List<String> values = new ArrayList<>();
+                  for (int j = 0; j < depth; j++) {
+                    values.add(styleResolver.getAttrValue(attrName("string" + j)).value);
+                  }
+                  return values;
+                }));
+      }
+      start.countDown();
+
+      for (Future<List<String>> result : results) {
+        List<String> values = result.get();
+        for (int j = 0; j < depth; j++) {
+          assertThat(values.get(j)).isEqualTo("string" + j + " value");
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private StyleResolver createStyleResolver(StyleData styleData, Style theme) {
+    return new StyleResolver(null, null, styleData, theme,
+        new ResName("package", "style", styleData.getName()), new ResTable_config());
+  }
+
+  private StyleData createStyle(String styleName, AttributeResource... attributeResources) {
+    return new StyleData("package", styleName, null, asList(attributeResources));
+  }
+
+  private AttributeResource createAttribute(String attrName, String value) {
+    return new AttributeResource(attrName(attrName), value, "package");
+  }
+
+  private ResName attrName(String attrName) {
+    return new ResName("package", "attr", attrName);
+  }
+}
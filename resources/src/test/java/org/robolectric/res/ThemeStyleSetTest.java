@@ -3,6 +3,12 @@ package org.robolectric.res;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.Arrays.asList;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,6 +47,71 @@ public class ThemeStyleSetTest {
     assertThat(themeStyleSet.getAttrValue(attrName("string2")).value).isEqualTo("string2 value from style1");
   }
 
+  @Test
+  public void shouldFindAttributesFromStylesAppliedAfterLookup() throws Exception {
+    themeStyleSet.apply(createStyle("style1", createAttribute("string1", "string1 value from style1")), false);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+    assertThat(themeStyleSet.getAttrValue(attrName("string2"))).isNull();
+
+    themeStyleSet.apply(createStyle("style2",
+        createAttribute("string1", "string1 value from style2"),
+        createAttribute("string2", "string2 value from style2")
+    ), true);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style2");
+    assertThat(themeStyleSet.getAttrValue(attrName("string2")).value).isEqualTo("string2 value from style2");
+  }
+
+  @Test
+  public void copyShouldNotBeAffectedByStylesAppliedToOriginal() throws Exception {
+    themeStyleSet.apply(createStyle("style1", createAttribute("string1", "string1 value from style1")), false);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+    ThemeStyleSet copy = themeStyleSet.copy();
+
+    themeStyleSet.apply(createStyle("style2", createAttribute("string1", "string1 value from style2")), true);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style2");
+    assertThat(copy.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+  }
+
+  @Test
+  public void getAttrValue_fromConcurrentThreads_findsAllAttributes() throws Exception {
+    int attributes = 1000;
+    List<AttributeResource> attributeResources = new ArrayList<>();
+    for (int i = 0; i < attributes; i++) {
+      attributeResources.add(createAttribute("string" + i, "string" + i + " value"));
+    }
+    themeStyleSet.apply(
+        createStyle("style1", attributeResources.toArray(new AttributeResource[0])), false);
+
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  List<String> values = new ArrayList<>();
+                  for (int j = 0; j < attributes; j++) {
+                    values.add(themeStyleSet.getAttrValue(attrName("string" + j)).value);
+                  }
+                  return values;
+                }));
+      }
+      start.countDown();
+
+      for (Future<List<String>> result : results) {
+        List<String> values = result.get();
+        for (int j = 0; j < attributes; j++) {
+          assertThat(values.get(j)).isEqualTo("string" + j + " value");
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private StyleData createStyle(String styleName, AttributeResource... attributeResources) {
     return new StyleData("package", styleName, null, asList(attributeResources));
   }
@@ -1,6 +1,7 @@
 package org.robolectric.res.android;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 import static org.robolectric.res.android.ResTable_config.DENSITY_ANY;
 import static org.robolectric.res.android.ResTable_config.DENSITY_HIGH;
 import static org.robolectric.res.android.ResTable_config.DENSITY_LOW;
@@ -412,4 +413,14 @@ public class ConfigDescriptionTest {
     ResTable_config config = new ResTable_config();
     assertThat(ConfigDescription.parse("v7-en-rUS-sw320dp", config)).isFalse();
   }
+
+  @Test public void parse_malformedNumbers() {
+    // Three letter qualifiers like "mcc" and "dpi" would parse as languages.
+    for (String qualifiers : new String[] {"mcc31a", "mnc0x", "swdp", "sw320", "w+320dp",
+        "h-1dp", "1d0dpi", "v", "v1a", "100x", "x100", "100x200x300"}) {
+      assertWithMessage(qualifiers)
+          .that(ConfigDescription.parse(qualifiers, new ResTable_config()))
+          .isFalse();
+    }
+  }
 }
@@ -0,0 +1,80 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResXMLParser.event_code_t;
+
+@RunWith(JUnit4.class)
+public class CppApkAssetsTest {
+  private CppApkAssets apkAssets;
+
+  @Before
+  public void setUp() throws Exception {
+    File apk = File.createTempFile("resources", ".ap_");
+    apk.deleteOnExit();
+    try (InputStream input = getClass().getResourceAsStream("/binaryresources/resources.ap_");
+        FileOutputStream output = new FileOutputStream(apk)) {
+      ByteStreams.copy(input, output);
+    }
+    apkAssets = CppApkAssets.Load(apk.toString(), false);
+  }
+
+  @Test
+  public void openXml_parsesFile() {
+    ResXMLTree xmlTree = apkAssets.OpenXml("AndroidManifest.xml", null);
+
+    assertThat(xmlTree.getError()).isEqualTo(NO_ERROR);
+    assertThat(startTags(xmlTree)).containsExactly("manifest", "uses-sdk").inOrder();
+  }
+
+  @Test
+  public void openXml_missingFile_returnsNull() {
+    assertThat(apkAssets.OpenXml("res/layout/missing.xml", null)).isNull();
+  }
+
+  @Test
+  public void openXml_sharesParsedData() {
+    ResXMLTree xmlTree1 = apkAssets.OpenXml("AndroidManifest.xml", null);
+    ResXMLTree xmlTree2 = apkAssets.OpenXml("AndroidManifest.xml", null);
+
+    assertThat(xmlTree2).isNotSameInstanceAs(xmlTree1);
+    assertThat(xmlTree2.getStrings()).isSameInstanceAs(xmlTree1.getStrings());
+    assertThat(startTags(xmlTree2)).isEqualTo(startTags(xmlTree1));
+  }
+
+  @Test
+  public void openXml_uninitializingTree_doesNotAffectOtherTrees() {
+    ResXMLTree xmlTree1 = apkAssets.OpenXml("AndroidManifest.xml", null);
+    ResXMLTree xmlTree2 = apkAssets.OpenXml("AndroidManifest.xml", null);
+
+    xmlTree1.uninit();
+
+    assertThat(xmlTree2.getStrings().getError()).isEqualTo(NO_ERROR);
+    assertThat(startTags(xmlTree2)).containsExactly("manifest", "uses-sdk").inOrder();
+  }
+
+  private static List<String> startTags(ResXMLTree xmlTree) {
+    ResXMLParser parser = new ResXMLParser(xmlTree);
+    parser.restart();
+    List<String> startTags = new ArrayList<>();
+    int code;
+    while ((code = parser.next()) != event_code_t.END_DOCUMENT
+        && code != event_code_t.BAD_DOCUMENT) {
+      if (code == event_code_t.START_TAG) {
+        startTags.add(parser.getElementName(new Ref<>(0)));
+      }
+    }
+    return startTags;
+  }
+}
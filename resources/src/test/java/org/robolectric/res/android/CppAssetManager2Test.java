@@ -0,0 +1,154 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.robolectric.res.android.ApkAssetsCookie.K_INVALID_COOKIE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.Res_value;
+
+@RunWith(JUnit4.class)
+public class CppAssetManager2Test {
+  private static final String PACKAGE = "org.robolectric.resources";
+  private static final ImmutableList<String> QUALIFIERS =
+      ImmutableList.of("", "fr", "es", "mcc310", "mcc310-mnc004", "fr-mcc310", "");
+
+  private CppApkAssets apkAssets;
+
+  @Before
+  public void setUp() throws Exception {
+    File apk = File.createTempFile("resources", ".ap_");
+    apk.deleteOnExit();
+    try (InputStream input = getClass().getResourceAsStream("/binaryresources/resources.ap_");
+        FileOutputStream output = new FileOutputStream(apk)) {
+      ByteStreams.copy(input, output);
+    }
+    apkAssets = CppApkAssets.Load(apk.toString(), false);
+  }
+
+  @Test
+  public void getResource_selectsValueForConfiguration() {
+    CppAssetManager2 assetManager = newAssetManager("");
+    int resid = assetManager.GetResourceId("string/first_string", "", PACKAGE);
+
+    assertThat(getString(assetManager, resid)).isEqualTo("sheep");
+
+    assetManager.SetConfiguration(config("fr"));
+    assertThat(getString(assetManager, resid)).isEqualTo("mouton");
+
+    assetManager.SetConfiguration(config("es"));
+    assertThat(getString(assetManager, resid)).isEqualTo("oveja");
+
+    assetManager.SetConfiguration(config(""));
+    assertThat(getString(assetManager, resid)).isEqualTo("sheep");
+  }
+
+  @Test
+  public void getResource_afterConfigurationChanges_matchesNewAssetManager() {
+    CppAssetManager2 assetManager = newAssetManager("");
+    ImmutableList<Integer> resids =
+        ImmutableList.of(
+            assetManager.GetResourceId("bool/is_verizon", "", PACKAGE),
+            assetManager.GetResourceId("integer/flock_size", "", PACKAGE),
+            assetManager.GetResourceId("string/first_string", "", PACKAGE),
+            assetManager.GetResourceId("string/second_string", "", PACKAGE));
+
+    for (String qualifiers : QUALIFIERS) {
+      assetManager.SetConfiguration(config(qualifiers));
+      CppAssetManager2 freshAssetManager = newAssetManager(qualifiers);
+      for (int resid : resids) {
+        // Look each resource up twice, so that the second lookup comes from the cache.
+        for (int i = 0; i < 2; i++) {
+          assertWithMessage("0x%s for \"%s\"", Integer.toHexString(resid), qualifiers)
+              .that(getResource(assetManager, resid))
+              .isEqualTo(getResource(freshAssetManager, resid));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void getResource_withDensityOverride_doesNotAffectConfiguration() {
+    CppAssetManager2 assetManager = newAssetManager("mdpi");
+    int resid = assetManager.GetResourceId("string/first_string", "", PACKAGE);
+
+    getResource(assetManager, resid, (short) 480);
+
+    assertThat(assetManager.GetConfiguration().density).isEqualTo(160);
+  }
+
+  @Test
+  public void openXml_withoutCookie_findsApkWithFile() {
+    CppAssetManager2 assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(ImmutableList.of(apkAssets, apkAssets), false);
+    Ref<ApkAssetsCookie> cookie = new Ref<>(K_INVALID_COOKIE);
+
+    ResXMLTree xmlTree = assetManager.OpenXml("AndroidManifest.xml", cookie);
+
+    assertThat(xmlTree.getError()).isEqualTo(Errors.NO_ERROR);
+    // Later APKs are searched first, like OpenNonAsset().
+    assertThat(cookie.get().intValue()).isEqualTo(1);
+  }
+
+  @Test
+  public void openXml_withoutCookie_missingFile_returnsNull() {
+    CppAssetManager2 assetManager = newAssetManager("");
+    Ref<ApkAssetsCookie> cookie = new Ref<>(K_INVALID_COOKIE);
+
+    assertThat(assetManager.OpenXml("res/layout/missing.xml", cookie)).isNull();
+    assertThat(cookie.get()).isEqualTo(K_INVALID_COOKIE);
+  }
+
+  private CppAssetManager2 newAssetManager(String qualifiers) {
+    CppAssetManager2 assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(ImmutableList.of(apkAssets), false);
+    assetManager.SetConfiguration(config(qualifiers));
+    return assetManager;
+  }
+
+  private static ResTable_config config(String qualifiers) {
+    ResTable_config config = new ResTable_config();
+    ConfigDescription.parse(qualifiers, config);
+    return config;
+  }
+
+  private static String getString(CppAssetManager2 assetManager, int resid) {
+    Ref<Res_value> value = new Ref<>(null);
+    ApkAssetsCookie cookie =
+        assetManager.GetResource(resid, false, (short) 0, value, new Ref<>(null), new Ref<>(0));
+    assertThat(cookie.intValue()).isNotEqualTo(K_INVALID_COOKIE.intValue());
+    return assetManager.GetStringPoolForCookie(cookie).stringAt(value.get().data);
+  }
+
+  private static String getResource(CppAssetManager2 assetManager, int resid) {
+    return getResource(assetManager, resid, (short) 0);
+  }
+
+  /** Returns a description of the value and configuration that {@code resid} resolves to. */
+  private static String getResource(
+      CppAssetManager2 assetManager, int resid, short densityOverride) {
+    Ref<Res_value> value = new Ref<>(null);
+    Ref<ResTable_config> selectedConfig = new Ref<>(null);
+    Ref<Integer> flags = new Ref<>(0);
+    ApkAssetsCookie cookie =
+        assetManager.GetResource(resid, false, densityOverride, value, selectedConfig, flags);
+    if (cookie.intValue() == K_INVALID_COOKIE.intValue()) {
+      return "invalid";
+    }
+    return String.format(
+        "cookie=%d type=%d data=0x%x config=%s flags=0x%x",
+        cookie.intValue(),
+        value.get().dataType,
+        value.get().data,
+        selectedConfig.get(),
+        flags.get());
+  }
+}
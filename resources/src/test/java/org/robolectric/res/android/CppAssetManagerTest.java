@@ -0,0 +1,128 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CppAssetManagerTest {
+  private File apk;
+
+  @Before
+  public void setUp() throws Exception {
+    apk = copyApk();
+  }
+
+  @Test
+  public void getResources_sharesFrameworkTableBetweenAssetManagers() {
+    ResTable resTable1 = newAssetManager(apk).getResources();
+    ResTable resTable2 = newAssetManager(apk).getResources();
+
+    assertThat(resTable2).isNotSameInstanceAs(resTable1);
+    assertThat(resTable2.getTableStringBlock(0))
+        .isSameInstanceAs(resTable1.getTableStringBlock(0));
+  }
+
+  @Test
+  public void getResources_fromConcurrentAssetManagers_sharesFrameworkTable() throws Exception {
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<ResStringPool>> stringPools = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        stringPools.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return newAssetManager(apk).getResources().getTableStringBlock(0);
+                }));
+      }
+      start.countDown();
+
+      ResStringPool stringPool = stringPools.get(0).get();
+      for (Future<ResStringPool> future : stringPools) {
+        assertThat(future.get()).isSameInstanceAs(stringPool);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  @Ignore("for benchmarking")
+  public void frameworkTableHeapUsage() throws Exception {
+    // Each copy of the apk stands in for the framework jar of a different SDK.
+    int sdks = 10;
+    int assetManagersPerSdk = 20;
+    List<File> apks = new ArrayList<>();
+    for (int i = 0; i < sdks; i++) {
+      apks.add(copyApk());
+    }
+
+    List<ResTable> shared = new ArrayList<>();
+    long sharedBytes =
+        heapUsage(
+            () -> {
+              for (File sdkApk : apks) {
+                for (int i = 0; i < assetManagersPerSdk; i++) {
+                  shared.add(newAssetManager(sdkApk).getResources());
+                }
+              }
+            });
+    System.out.println("shared framework tables used " + sharedBytes / 1024 + " KB");
+
+    List<File> unsharedApks = new ArrayList<>();
+    for (int i = 0; i < sdks * assetManagersPerSdk; i++) {
+      unsharedApks.add(copyApk());
+    }
+    List<ResTable> unshared = new ArrayList<>();
+    long unsharedBytes =
+        heapUsage(
+            () -> {
+              for (File unsharedApk : unsharedApks) {
+                unshared.add(newAssetManager(unsharedApk).getResources());
+              }
+            });
+    System.out.println("unshared framework tables used " + unsharedBytes / 1024 + " KB");
+  }
+
+  private static CppAssetManager newAssetManager(File apk) {
+    CppAssetManager assetManager = new CppAssetManager();
+    assetManager.addDefaultAssets(apk.toPath());
+    return assetManager;
+  }
+
+  private File copyApk() throws Exception {
+    File apk = File.createTempFile("resources", ".ap_");
+    apk.deleteOnExit();
+    try (InputStream input = getClass().getResourceAsStream("/binaryresources/resources.ap_");
+        FileOutputStream output = new FileOutputStream(apk)) {
+      ByteStreams.copy(input, output);
+    }
+    return apk;
+  }
+
+  private static long heapUsage(Runnable runnable) {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    runnable.run();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory() - before;
+  }
+}
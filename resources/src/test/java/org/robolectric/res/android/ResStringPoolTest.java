@@ -0,0 +1,97 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header.Writer;
+
+@RunWith(JUnit4.class)
+public class ResStringPoolTest {
+
+  @Test
+  public void stringAt_decodesStrings() {
+    ResStringPool pool = createPool("layout_width", "match_parent", "été");
+
+    assertThat(pool.stringAt(0)).isEqualTo("layout_width");
+    assertThat(pool.stringAt(1)).isEqualTo("match_parent");
+    assertThat(pool.stringAt(2)).isEqualTo("été");
+  }
+
+  @Test
+  public void stringAt_returnsCachedString() {
+    ResStringPool pool = createPool("layout_width", "match_parent");
+
+    assertThat(pool.stringAt(1)).isSameInstanceAs(pool.stringAt(1));
+  }
+
+  @Test
+  public void stringAt_outOfRange_returnsNull() {
+    ResStringPool pool = createPool("layout_width");
+
+    assertThat(pool.stringAt(1)).isNull();
+    assertThat(pool.stringAt(-1)).isNull();
+  }
+
+  @Test
+  public void setTo_discardsCachedStrings() {
+    ResStringPool pool = createPool("layout_width", "match_parent");
+    assertThat(pool.stringAt(0)).isEqualTo("layout_width");
+
+    setTo(pool, "orientation");
+
+    assertThat(pool.stringAt(0)).isEqualTo("orientation");
+    assertThat(pool.stringAt(1)).isNull();
+  }
+
+  @Test
+  @Ignore("for benchmarking")
+  public void stringAtPerf() {
+    String[] strings = new String[5000];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = "android:attr/some_attribute_name_" + i;
+    }
+    ResStringPool pool = createPool(strings);
+
+    for (int i = 0; i < 3; i++) {
+      long elapsedMs =
+          elapsedMs(
+              1_000,
+              () -> {
+                for (int j = 0; j < strings.length; j++) {
+                  pool.stringAt(j);
+                }
+              });
+      System.out.println("stringAt took " + elapsedMs);
+    }
+  }
+
+  private static ResStringPool createPool(String... strings) {
+    ResStringPool pool = new ResStringPool();
+    setTo(pool, strings);
+    return pool;
+  }
+
+  private static void setTo(ResStringPool pool, String... strings) {
+    Writer writer = new Writer();
+    for (String string : strings) {
+      writer.string(string);
+    }
+    ByteBuffer buf = ByteBuffer.allocate(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    writer.write(buf);
+    assertThat(pool.setTo(buf, 0, buf.position(), false)).isEqualTo(NO_ERROR);
+  }
+
+  private static long elapsedMs(int times, Runnable runnable) {
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < times; i++) {
+      runnable.run();
+    }
+    return System.currentTimeMillis() - startTime;
+  }
+}
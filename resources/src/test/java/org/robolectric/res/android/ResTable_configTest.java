@@ -50,4 +50,36 @@ public class ResTable_configTest {
 
     assertThat(ResTable_config.fromDtoH(config).mnc).isEqualTo(0xFFFF);
   }
+
+  @Test
+  public void fromQualifiers_returnsIndependentCopies() {
+    ResTable_config config = ResTable_config.fromQualifiers("fr-rCA-land", true);
+    config.language[0] = 'e';
+    config.language[1] = 'n';
+    config.orientation = 0;
+
+    ResTable_config config2 = ResTable_config.fromQualifiers("fr-rCA-land", true);
+    assertThat(config2).isNotSameInstanceAs(config);
+    assertThat(config2.languageString()).isEqualTo("fr");
+    assertThat(config2.regionString()).isEqualTo("CA");
+    assertThat(config2.orientation).isEqualTo(ResTable_config.ORIENTATION_LAND);
+  }
+
+  @Test
+  public void fromQualifiers_matchesConfigDescription() {
+    for (boolean applyVersionForCompat : new boolean[] {true, false}) {
+      ResTable_config expected = new ResTable_config();
+      ConfigDescription.parse("sw600dp-night", expected, applyVersionForCompat);
+
+      ResTable_config config = ResTable_config.fromQualifiers("sw600dp-night", applyVersionForCompat);
+      assertThat(config.toString()).isEqualTo(expected.toString());
+      assertThat(config.sdkVersion).isEqualTo(expected.sdkVersion);
+    }
+  }
+
+  @Test
+  public void fromQualifiers_invalidQualifiers_returnsNull() {
+    assertThat(ResTable_config.fromQualifiers("unknown-v23", true)).isNull();
+    assertThat(ResTable_config.fromQualifiers("unknown-v23", true)).isNull();
+  }
 }
@@ -0,0 +1,99 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
+
+@RunWith(JUnit4.class)
+public class ResolvedBagCacheTest {
+
+  @Test
+  public void get_returnsPutBags() {
+    ResolvedBagCache cache = new ResolvedBagCache();
+    ResolvedBag bag1 = new ResolvedBag();
+    ResolvedBag bag2 = new ResolvedBag();
+
+    cache.put(0x01030000, bag1);
+    cache.put(0x7f030000, bag2);
+
+    assertThat(cache.get(0x01030000)).isSameInstanceAs(bag1);
+    assertThat(cache.get(0x7f030000)).isSameInstanceAs(bag2);
+    assertThat(cache.get(0x7f030001)).isNull();
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void put_replacesExistingBag() {
+    ResolvedBagCache cache = new ResolvedBagCache();
+    ResolvedBag bag = new ResolvedBag();
+
+    cache.put(0x7f030000, new ResolvedBag());
+    cache.put(0x7f030000, bag);
+
+    assertThat(cache.get(0x7f030000)).isSameInstanceAs(bag);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_growsPastInitialCapacity() {
+    ResolvedBagCache cache = new ResolvedBagCache();
+    ResolvedBag[] bags = new ResolvedBag[1000];
+    for (int i = 0; i < bags.length; i++) {
+      bags[i] = new ResolvedBag();
+      cache.put(0x7f030000 + i, bags[i]);
+    }
+
+    assertThat(cache.size()).isEqualTo(bags.length);
+    for (int i = 0; i < bags.length; i++) {
+      assertThat(cache.get(0x7f030000 + i)).isSameInstanceAs(bags[i]);
+    }
+  }
+
+  @Test
+  public void removeIf_removesMatchingBags() {
+    ResolvedBagCache cache = new ResolvedBagCache();
+    ResolvedBag localeDependent = new ResolvedBag();
+    localeDependent.type_spec_flags = AConfiguration.ACONFIGURATION_LOCALE;
+    ResolvedBag densityDependent = new ResolvedBag();
+    densityDependent.type_spec_flags = AConfiguration.ACONFIGURATION_DENSITY;
+    cache.put(0x7f030000, localeDependent);
+    cache.put(0x7f030001, densityDependent);
+
+    cache.removeIf(bag -> (bag.type_spec_flags & AConfiguration.ACONFIGURATION_LOCALE) != 0);
+
+    assertThat(cache.get(0x7f030000)).isNull();
+    assertThat(cache.get(0x7f030001)).isSameInstanceAs(densityDependent);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_removesAllBags() {
+    ResolvedBagCache cache = new ResolvedBagCache();
+    cache.put(0x7f030000, new ResolvedBag());
+
+    cache.clear();
+
+    assertThat(cache.get(0x7f030000)).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void forFramework_sharesCacheForEqualConfigurations() {
+    LoadedArsc framework = LoadedArsc.CreateEmpty();
+    ResTable_config config = new ResTable_config();
+    config.density = 320;
+
+    ResolvedBagCache cache = ResolvedBagCache.forFramework(framework, config);
+
+    assertThat(ResolvedBagCache.forFramework(framework, new ResTable_config(config)))
+        .isSameInstanceAs(cache);
+    assertThat(ResolvedBagCache.forFramework(LoadedArsc.CreateEmpty(), config))
+        .isNotSameInstanceAs(cache);
+    ResTable_config otherConfig = new ResTable_config(config);
+    otherConfig.density = 480;
+    assertThat(ResolvedBagCache.forFramework(framework, otherConfig)).isNotSameInstanceAs(cache);
+  }
+}
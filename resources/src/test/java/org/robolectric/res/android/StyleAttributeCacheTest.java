@@ -0,0 +1,78 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.StyleAttributeCache.Values;
+
+@RunWith(JUnit4.class)
+public class StyleAttributeCacheTest {
+  private static final int[] ATTRS = {0x01010000, 0x01010001, 0x7f010000};
+
+  private final StyleAttributeCache cache = new StyleAttributeCache();
+
+  @Test
+  public void get_returnsSameValuesForEqualAttrs() {
+    Values values = cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2);
+
+    assertThat(cache.get(0, ATTRS.clone(), ATTRS.length, 0x7f0e0000, 0, 0, 0, 2))
+        .isSameInstanceAs(values);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void get_returnsDifferentValuesForDifferentStyles() {
+    Values values = cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2);
+
+    assertThat(cache.get(0, ATTRS, ATTRS.length, 0x7f0e0001, 0, 0, 0, 2))
+        .isNotSameInstanceAs(values);
+    assertThat(cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0x7f0e0002, 0, 2))
+        .isNotSameInstanceAs(values);
+    assertThat(cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 1, 0, 0, 2))
+        .isNotSameInstanceAs(values);
+    assertThat(cache.get(0, ATTRS, ATTRS.length - 1, 0x7f0e0000, 0, 0, 0, 2))
+        .isNotSameInstanceAs(values);
+  }
+
+  @Test
+  public void get_isNotAffectedByChangesToAttrs() {
+    int[] attrs = ATTRS.clone();
+    Values values = cache.get(0, attrs, attrs.length, 0x7f0e0000, 0, 0, 0, 2);
+
+    attrs[0] = 0x01010002;
+
+    assertThat(cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2))
+        .isSameInstanceAs(values);
+  }
+
+  @Test
+  public void get_withNewGeneration_dropsValues() {
+    Values values = cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2);
+
+    assertThat(cache.get(1, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2))
+        .isNotSameInstanceAs(values);
+  }
+
+  @Test
+  public void clear_dropsValues() {
+    Values values = cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2);
+
+    cache.clear();
+
+    assertThat(cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2))
+        .isNotSameInstanceAs(values);
+  }
+
+  @Test
+  public void values_onlyCopiesResolvedAttributes() {
+    Values values = cache.get(0, ATTRS, ATTRS.length, 0x7f0e0000, 0, 0, 0, 2);
+    values.copyFrom(1, new int[] {0, 0, 3, 4, 0, 0});
+
+    int[] outValues = new int[6];
+    assertThat(values.copyTo(0, outValues)).isFalse();
+    assertThat(values.copyTo(1, outValues)).isTrue();
+    assertThat(outValues).isEqualTo(new int[] {0, 0, 3, 4, 0, 0});
+  }
+}
@@ -12,13 +12,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Priority;
 import org.junit.AssumptionViolatedException;
+import org.junit.runner.Description;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
@@ -89,6 +93,11 @@ public class RobolectricTestRunner extends SandboxTestRunner {
   private final AndroidConfigurer androidConfigurer;
 
   private final ResModeStrategy resModeStrategy = getResModeStrategy();
+  // The children from the last call to getChildren(), before any filter was applied.
+  private volatile List<FrameworkMethod> children;
+  // Sandboxes from sandboxManager that this class's tests have used; released once they're done.
+  private final List<AndroidSandbox> usedSandboxes =
+      Collections.synchronizedList(new ArrayList<>());
   private boolean alwaysIncludeVariantMarkersInName =
       Boolean.parseBoolean(
           System.getProperty("robolectric.alwaysIncludeVariantMarkersInTestName", "false"));
@@ -261,9 +270,62 @@ public class RobolectricTestRunner extends SandboxTestRunner {
             e);
       }
     }
+
+    this.children = children;
     return children;
   }
 
+  @Override
+  protected Statement childrenInvoker(RunNotifier notifier) {
+    Statement statement = super.childrenInvoker(notifier);
+    if (!SandboxManager.isPrewarmEnabled()) {
+      return statement;
+    }
+    return new Statement() {
+      @Override
+      public void evaluate() throws Throwable {
+        prewarmSandboxes();
+        statement.evaluate();
+      }
+    };
+  }
+
+  /**
+   * Starts building, in the background, the sandboxes needed by the children that will run.
+   * Children that are ignored or have been filtered out, e.g. when running a single test method,
+   * are skipped. The description only includes the children that remain after filtering.
+   */
+  private void prewarmSandboxes() {
+    List<FrameworkMethod> children = this.children;
+    if (children == null) {
+      return;
+    }
+    Set<Description> filteredChildren = new HashSet<>(getDescription().getChildren());
+    for (FrameworkMethod child : children) {
+      if (!filteredChildren.contains(describeChild(child)) || isIgnored(child)) {
+        continue;
+      }
+      RobolectricFrameworkMethod roboMethod = (RobolectricFrameworkMethod) child;
+      Sdk sdk = roboMethod.getSdk();
+      ResourcesMode resourcesMode = roboMethod.getResourcesMode();
+      if (!sdk.isSupported() || !isSupported(sdk, resourcesMode)) {
+        continue;
+      }
+      sandboxManager.prewarmAndroidSandbox(
+          createClassLoaderConfig(child), sdk, resourcesMode, getLooperMode(roboMethod));
+    }
+  }
+
+  private static boolean isSupported(Sdk sdk, ResourcesMode resourcesMode) {
+    return resourcesMode != ResourcesMode.LEGACY || sdk.getApiLevel() <= Build.VERSION_CODES.P;
+  }
+
+  private static LooperMode.Mode getLooperMode(RobolectricFrameworkMethod roboMethod) {
+    return roboMethod.configuration == null
+        ? Mode.LEGACY
+        : roboMethod.configuration.get(LooperMode.Mode.class);
+  }
+
   @Override
   @Nonnull
   protected AndroidSandbox getSandbox(FrameworkMethod method) {
@@ -273,18 +335,18 @@ public class RobolectricTestRunner extends SandboxTestRunner {
     InstrumentationConfiguration classLoaderConfig = createClassLoaderConfig(method);
     ResourcesMode resourcesMode = roboMethod.getResourcesMode();
 
-    if (resourcesMode == ResourcesMode.LEGACY && sdk.getApiLevel() > Build.VERSION_CODES.P) {
+    if (!isSupported(sdk, resourcesMode)) {
       System.err.println(
           "Skip " + method.getName() + " because Robolectric doesn't support legacy mode after P");
       throw new AssumptionViolatedException("Robolectric doesn't support legacy mode after P");
     }
-    LooperMode.Mode looperMode =
-        roboMethod.configuration == null
-            ? Mode.LEGACY
-            : roboMethod.configuration.get(LooperMode.Mode.class);
+    LooperMode.Mode looperMode = getLooperMode(roboMethod);
 
     sdk.verifySupportedSdk(method.getDeclaringClass().getName());
-    return sandboxManager.getAndroidSandbox(classLoaderConfig, sdk, resourcesMode, looperMode);
+    AndroidSandbox sandbox =
+        sandboxManager.getAndroidSandbox(classLoaderConfig, sdk, resourcesMode, looperMode);
+    usedSandboxes.add(sandbox);
+    return sandbox;
   }
 
   @Override
@@ -322,9 +384,13 @@ public class RobolectricTestRunner extends SandboxTestRunner {
 
     AndroidManifest appManifest = roboMethod.getAppManifest();
 
-    roboMethod
-        .getTestEnvironment()
-        .setUpApplicationState(bootstrappedMethod, roboMethod.getConfiguration(), appManifest);
+    perfStatsCollector.measure(
+        "set up application state",
+        () ->
+            roboMethod
+                .getTestEnvironment()
+                .setUpApplicationState(
+                    bootstrappedMethod, roboMethod.getConfiguration(), appManifest));
 
     roboMethod.testLifecycle.beforeTest(bootstrappedMethod);
   }
@@ -554,7 +620,16 @@ public class RobolectricTestRunner extends SandboxTestRunner {
   }
 
   @Override
-  protected void afterClass() {}
+  protected void afterClass() {
+    List<AndroidSandbox> sandboxes;
+    synchronized (usedSandboxes) {
+      sandboxes = new ArrayList<>(usedSandboxes);
+      usedSandboxes.clear();
+    }
+    for (AndroidSandbox sandbox : sandboxes) {
+      sandboxManager.releaseAndroidSandbox(sandbox);
+    }
+  }
 
   @Override
   public Object createTest() throws Exception {
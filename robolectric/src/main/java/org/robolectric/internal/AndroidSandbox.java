@@ -10,6 +10,7 @@ import javax.inject.Named;
 import org.robolectric.ApkLoader;
 import org.robolectric.android.internal.AndroidTestEnvironment;
 import org.robolectric.internal.bytecode.ClassInstrumentor;
+import org.robolectric.internal.bytecode.ClassPreloadProfile;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.internal.bytecode.Sandbox;
 import org.robolectric.internal.bytecode.SandboxClassLoader;
@@ -35,6 +36,12 @@ public class AndroidSandbox extends Sandbox {
       ShadowProviders shadowProviders) {
     super(sdkSandboxClassLoader);
 
+    ClassPreloadProfile classPreloadProfile =
+        ClassPreloadProfile.fromProperties("sdk-" + runtimeSdk.getApiLevel());
+    if (classPreloadProfile != null) {
+      classPreloadProfile.apply(sdkSandboxClassLoader);
+    }
+
     ClassLoader robolectricClassLoader = getRobolectricClassLoader();
 
     Injector sandboxScope =
@@ -96,6 +103,9 @@ public class AndroidSandbox extends Sandbox {
 
   /** Adapter from Sdk to ResourceLoader. */
   public static class SdkSandboxClassLoader extends SandboxClassLoader {
+    static {
+      registerAsParallelCapable();
+    }
 
     public SdkSandboxClassLoader(InstrumentationConfiguration config,
         @Named("runtimeSdk") Sdk runtimeSdk, ClassInstrumentor classInstrumentor) {
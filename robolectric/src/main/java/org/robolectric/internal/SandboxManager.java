@@ -1,15 +1,38 @@
 package org.robolectric.internal;
 
 import android.annotation.SuppressLint;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import org.robolectric.SandboxMemoryMetadata;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.pluginapi.Sdk;
 import org.robolectric.plugins.SdkCollection;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.inject.AutoFactory;
 
 /** Manager of sandboxes. */
@@ -21,44 +44,415 @@ public class SandboxManager {
    */
   private static final int CACHE_SIZE_FACTOR = 3;
 
+  /**
+   * The fraction of the maximum heap that cached sandboxes may fill before the least recently used
+   * ones are evicted. Set to 0 to evict based on the cache size only.
+   */
+  static final String MAX_HEAP_FRACTION_PROPERTY = "robolectric.sandboxCache.maxHeapFraction";
+
+  private static final double DEFAULT_MAX_HEAP_FRACTION = 0.8;
+
+  /**
+   * If true, sandboxes are built on a background thread as soon as a test class's tests are known,
+   * rather than when the first test that needs each one runs.
+   */
+  static final String PREWARM_PROPERTY = "robolectric.sandboxPrewarm";
+
+  /**
+   * Comma-separated names of classes to load into each pre-warmed sandbox, e.g. frequently used
+   * framework classes.
+   */
+  static final String PREWARM_CLASSES_PROPERTY = "robolectric.sandboxPrewarm.classes";
+
   private final SandboxBuilder sandboxBuilder;
   private final SdkCollection sdkCollection;
+  private final HeapMonitor heapMonitor;
+  private final int cacheSize;
+  private final Executor prewarmExecutor;
+  private final ImmutableList<String> prewarmClassNames;
+
+  // Sandboxes that are queued or being built in the background; they are added to sandboxesByKey
+  // once built.
+  private final Map<SandboxKey, Prewarm> prewarmingSandboxes = new HashMap<>();
 
   // Simple LRU Cache. AndroidSandboxes are unique across InstrumentationConfiguration and Sdk
-  private final LinkedHashMap<SandboxKey, AndroidSandbox> sandboxesByKey;
+  private final LinkedHashMap<SandboxKey, CachedSandbox> sandboxesByKey;
+
+  // Evicted sandboxes that are still in use by a running test class. They're torn down once it
+  // releases them.
+  private final List<CachedSandbox> evictedSandboxes = new ArrayList<>();
+
+  // Used to detect builds that overlapped others, whose heap usage can't be told apart.
+  private final AtomicInteger buildsInProgress = new AtomicInteger();
+  private final AtomicLong buildsStarted = new AtomicLong();
+
+  // The total heap usage of the sandboxes whose size could be measured, used to estimate the size
+  // of those which couldn't be.
+  private long measuredBytes;
+  private int measuredBuilds;
 
   @Inject
   public SandboxManager(SandboxBuilder sandboxBuilder, SdkCollection sdkCollection) {
+    this(
+        sandboxBuilder,
+        sdkCollection,
+        new HeapMonitor(getMaxHeapFractionFromProperties()),
+        Executors.newSingleThreadExecutor(
+            r -> {
+              Thread thread = new Thread(r, "Robolectric sandbox pre-warmer");
+              thread.setDaemon(true);
+              return thread;
+            }),
+        getPrewarmClassNamesFromProperties());
+  }
+
+  @VisibleForTesting
+  SandboxManager(
+      SandboxBuilder sandboxBuilder,
+      SdkCollection sdkCollection,
+      HeapMonitor heapMonitor,
+      Executor prewarmExecutor,
+      List<String> prewarmClassNames) {
     this.sandboxBuilder = sandboxBuilder;
     this.sdkCollection = sdkCollection;
+    this.heapMonitor = heapMonitor;
+    this.prewarmExecutor = prewarmExecutor;
+    this.prewarmClassNames = ImmutableList.copyOf(prewarmClassNames);
 
     // We need to set the cache size of class loaders more than the number of supported APIs as
     // different tests may have different configurations.
-    final int cacheSize = sdkCollection.getSupportedSdks().size() * CACHE_SIZE_FACTOR;
-    sandboxesByKey = new LinkedHashMap<SandboxKey, AndroidSandbox>() {
-      @Override
-      protected boolean removeEldestEntry(Map.Entry<SandboxKey, AndroidSandbox> eldest) {
-        return size() > cacheSize;
+    cacheSize = sdkCollection.getSupportedSdks().size() * CACHE_SIZE_FACTOR;
+    sandboxesByKey = new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  }
+
+  /** Returns true if sandboxes should be {@link #prewarmAndroidSandbox pre-warmed}. */
+  public static boolean isPrewarmEnabled() {
+    return Boolean.getBoolean(PREWARM_PROPERTY);
+  }
+
+  /**
+   * Returns a sandbox for the given configuration, building it if it isn't cached. The sandbox is
+   * in use until it's passed to {@link #releaseAndroidSandbox}; until then it isn't torn down, even
+   * if it's evicted from the cache.
+   */
+  public AndroidSandbox getAndroidSandbox(
+      InstrumentationConfiguration instrumentationConfig,
+      Sdk sdk,
+      ResourcesMode resourcesMode,
+      LooperMode.Mode looperMode) {
+    SandboxKey key = new SandboxKey(instrumentationConfig, sdk, resourcesMode, looperMode);
+
+    // Wait for the sandbox to be pre-warmed, if it's in progress. This happens without holding the
+    // lock, since pre-warming needs it to add the sandbox to the cache. If pre-warming hasn't
+    // started, e.g. because the pre-warmer is busy with another sandbox, it's cancelled and the
+    // sandbox is built below instead.
+    CompletableFuture<Void> prewarming = null;
+    synchronized (this) {
+      Prewarm prewarm = prewarmingSandboxes.get(key);
+      if (prewarm != null) {
+        if (prewarm.started) {
+          prewarming = prewarm.done;
+        } else {
+          prewarmingSandboxes.remove(key);
+        }
+      }
+    }
+    if (prewarming != null) {
+      waitForPrewarm(prewarming);
+    }
+
+    List<CachedSandbox> unusedSandboxes = new ArrayList<>();
+    CachedSandbox cachedSandbox;
+    synchronized (this) {
+      cachedSandbox = sandboxesByKey.get(key);
+      if (cachedSandbox == null) {
+        evictForHeapHeadroom(unusedSandboxes);
+
+        cachedSandbox = buildSandbox(key);
+        sandboxesByKey.put(key, cachedSandbox);
+
+        evictForCacheSize(unusedSandboxes);
+      }
+
+      cachedSandbox.users++;
+      reportMemoryStats(cachedSandbox);
+    }
+
+    shutdown(unusedSandboxes);
+    return cachedSandbox.sandbox;
+  }
+
+  /**
+   * Marks a sandbox returned by {@link #getAndroidSandbox} as no longer in use, e.g. once a test
+   * class has finished. If it has been evicted from the cache and has no other users, it is torn
+   * down, stopping its main thread and releasing its class loader.
+   */
+  public void releaseAndroidSandbox(AndroidSandbox sandbox) {
+    CachedSandbox unusedSandbox = null;
+    synchronized (this) {
+      for (CachedSandbox cachedSandbox : sandboxesByKey.values()) {
+        if (cachedSandbox.sandbox == sandbox) {
+          cachedSandbox.users--;
+          return;
+        }
+      }
+      Iterator<CachedSandbox> iterator = evictedSandboxes.iterator();
+      while (iterator.hasNext()) {
+        CachedSandbox cachedSandbox = iterator.next();
+        if (cachedSandbox.sandbox == sandbox) {
+          if (--cachedSandbox.users == 0) {
+            iterator.remove();
+            unusedSandbox = cachedSandbox;
+          }
+          break;
+        }
       }
-    };
+    }
+
+    if (unusedSandbox != null) {
+      unusedSandbox.sandbox.shutdown();
+    }
   }
 
-  public synchronized AndroidSandbox getAndroidSandbox(
+  /**
+   * Starts building a sandbox on a background thread, so it's ready by the time a test needs it.
+   *
+   * <p>Pre-warming never evicts cached sandboxes, since they may be in use; it's skipped if the
+   * cache is full or there isn't enough heap headroom.
+   */
+  public synchronized void prewarmAndroidSandbox(
       InstrumentationConfiguration instrumentationConfig,
       Sdk sdk,
       ResourcesMode resourcesMode,
       LooperMode.Mode looperMode) {
     SandboxKey key = new SandboxKey(instrumentationConfig, sdk, resourcesMode, looperMode);
+    if (sandboxesByKey.containsKey(key)
+        || prewarmingSandboxes.containsKey(key)
+        || sandboxesByKey.size() + prewarmingSandboxes.size() >= cacheSize) {
+      return;
+    }
+
+    Prewarm prewarm = new Prewarm();
+    prewarmingSandboxes.put(key, prewarm);
+    prewarmExecutor.execute(
+        () -> {
+          synchronized (this) {
+            if (prewarmingSandboxes.get(key) != prewarm) {
+              // A test needed the sandbox first, and is building it itself.
+              return;
+            }
+            prewarm.started = true;
+          }
+          try {
+            prewarm(key);
+            prewarm.done.complete(null);
+          } catch (Throwable t) {
+            prewarm.done.completeExceptionally(t);
+          } finally {
+            synchronized (this) {
+              prewarmingSandboxes.remove(key, prewarm);
+            }
+          }
+        });
+  }
+
+  private void prewarm(SandboxKey key) {
+    synchronized (this) {
+      if (hasNoHeapHeadroom()) {
+        return;
+      }
+    }
 
-    AndroidSandbox androidSandbox = sandboxesByKey.get(key);
-    if (androidSandbox == null) {
-      Sdk compileSdk = sdkCollection.getMaxSupportedSdk();
+    CachedSandbox cachedSandbox =
+        PerfStatsCollector.getInstance().measure("prewarm sandbox", () -> buildSandbox(key));
+    ClassLoader classLoader = cachedSandbox.sandbox.getRobolectricClassLoader();
+    for (String className : prewarmClassNames) {
+      try {
+        Class.forName(className, false, classLoader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        Logger.debug("couldn't pre-load %s: %s", className, e);
+      }
+    }
+
+    List<CachedSandbox> unusedSandboxes = new ArrayList<>();
+    synchronized (this) {
+      if (sandboxesByKey.containsKey(key)) {
+        // A test was already building the sandbox when it was queued for pre-warming.
+        unusedSandboxes.add(cachedSandbox);
+      } else {
+        sandboxesByKey.put(key, cachedSandbox);
+        evictForCacheSize(unusedSandboxes);
+      }
+    }
+    shutdown(unusedSandboxes);
+  }
+
+  private static void waitForPrewarm(CompletableFuture<Void> prewarming) {
+    try {
+      Uninterruptibles.getUninterruptibly(prewarming);
+    } catch (ExecutionException e) {
+      // The test thread will try again, and report the failure.
+      Logger.warn("failed to pre-warm sandbox: %s", e.getCause());
+    }
+  }
+
+  /**
+   * Builds a sandbox, measuring how much the heap grew meanwhile. The growth only approximates the
+   * sandbox's size, so it isn't used if another sandbox was being built at the same time, or if a
+   * garbage collection ran during the build.
+   */
+  private CachedSandbox buildSandbox(SandboxKey key) {
+    Sdk compileSdk = sdkCollection.getMaxSupportedSdk();
+    long buildNumber = buildsStarted.incrementAndGet();
+    boolean overlapped = buildsInProgress.incrementAndGet() > 1;
+    long collectionsBefore = heapMonitor.getCollectionCount();
+    long heapUsedBefore = heapMonitor.getCurrentUsedBytes();
+    AndroidSandbox androidSandbox;
+    try {
       androidSandbox =
           sandboxBuilder.build(
-              instrumentationConfig, sdk, compileSdk, resourcesMode, looperMode);
-      sandboxesByKey.put(key, androidSandbox);
+              key.instrumentationConfiguration,
+              key.sdk,
+              compileSdk,
+              key.resourcesMode,
+              key.looperMode);
+    } finally {
+      buildsInProgress.decrementAndGet();
+    }
+    long heapUsedAfter = heapMonitor.getCurrentUsedBytes();
+
+    if (overlapped
+        || buildsStarted.get() != buildNumber
+        || heapMonitor.getCollectionCount() != collectionsBefore
+        || heapUsedAfter <= heapUsedBefore) {
+      return new CachedSandbox(androidSandbox, CachedSandbox.UNMEASURED);
+    }
+    long retainedBytes = heapUsedAfter - heapUsedBefore;
+    synchronized (this) {
+      measuredBytes += retainedBytes;
+      measuredBuilds++;
+    }
+    return new CachedSandbox(androidSandbox, retainedBytes);
+  }
+
+  private static void shutdown(List<CachedSandbox> unusedSandboxes) {
+    for (CachedSandbox cachedSandbox : unusedSandboxes) {
+      cachedSandbox.sandbox.shutdown();
+    }
+  }
+
+  private void evictForCacheSize(List<CachedSandbox> unusedSandboxes) {
+    Iterator<CachedSandbox> iterator = sandboxesByKey.values().iterator();
+    while (sandboxesByKey.size() > cacheSize && iterator.hasNext()) {
+      CachedSandbox evicted = iterator.next();
+      iterator.remove();
+      evict(evicted, "sandbox evicted (cache size)", unusedSandboxes);
+    }
+  }
+
+  /**
+   * Evicts the least recently used sandboxes until there's room on the heap for a new sandbox, as
+   * large as the average of those built so far.
+   *
+   * <p>Sandboxes in use by a running test class are skipped: evicting them wouldn't free any heap
+   * until they're released, and a later test class with the same configuration would build a
+   * duplicate alongside them.
+   */
+  private void evictForHeapHeadroom(List<CachedSandbox> unusedSandboxes) {
+    if (!heapMonitor.isEnabled() || sandboxesByKey.isEmpty()) {
+      return;
+    }
+
+    long projectedUsedBytes = getProjectedUsedBytes();
+
+    Iterator<CachedSandbox> iterator = sandboxesByKey.values().iterator();
+    while (heapMonitor.exceedsLimit(projectedUsedBytes) && iterator.hasNext()) {
+      CachedSandbox cachedSandbox = iterator.next();
+      if (cachedSandbox.users > 0) {
+        continue;
+      }
+      iterator.remove();
+      evict(cachedSandbox, "sandbox evicted (heap pressure)", unusedSandboxes);
+      projectedUsedBytes -= getEstimatedBytes(cachedSandbox);
+    }
+  }
+
+  /**
+   * Handles a sandbox that was removed from the cache. It's added to {@code unusedSandboxes} to be torn down if no
+   * test class is using it, or else torn down once the last one releases it.
+   */
+  private void evict(CachedSandbox evicted, String reason, List<CachedSandbox> unusedSandboxes) {
+    if (evicted.users == 0) {
+      unusedSandboxes.add(evicted);
+    } else {
+      evictedSandboxes.add(evicted);
+    }
+    Logger.info("%s: %s", reason, evicted.sandbox);
+    PerfStatsCollector.getInstance().incrementCount(reason);
+  }
+
+  private boolean hasNoHeapHeadroom() {
+    return heapMonitor.isEnabled()
+        && !sandboxesByKey.isEmpty()
+        && heapMonitor.exceedsLimit(getProjectedUsedBytes());
+  }
+
+  /** Returns the expected heap usage once another sandbox, of average size, is built. */
+  private long getProjectedUsedBytes() {
+    return heapMonitor.getRetainedUsedBytes() + getAverageMeasuredBytes();
+  }
+
+  private long getAverageMeasuredBytes() {
+    return measuredBuilds == 0 ? 0 : measuredBytes / measuredBuilds;
+  }
+
+  private long getEstimatedBytes(CachedSandbox cachedSandbox) {
+    return cachedSandbox.retainedBytes == CachedSandbox.UNMEASURED
+        ? getAverageMeasuredBytes()
+        : cachedSandbox.retainedBytes;
+  }
+
+  private long getCachedRetainedBytes() {
+    long bytes = 0;
+    for (CachedSandbox cachedSandbox : sandboxesByKey.values()) {
+      bytes += getEstimatedBytes(cachedSandbox);
+    }
+    return bytes;
+  }
+
+  private void reportMemoryStats(CachedSandbox cachedSandbox) {
+    PerfStatsCollector.getInstance()
+        .putMetadata(
+            SandboxMemoryMetadata.class,
+            new SandboxMemoryMetadata(
+                getEstimatedBytes(cachedSandbox),
+                sandboxesByKey.size(),
+                getCachedRetainedBytes(),
+                heapMonitor.getRetainedUsedBytes(),
+                heapMonitor.getMaxBytes()));
+  }
+
+  @VisibleForTesting
+  synchronized int getCachedSandboxCount() {
+    return sandboxesByKey.size();
+  }
+
+  private static List<String> getPrewarmClassNamesFromProperties() {
+    String value = System.getProperty(PREWARM_CLASSES_PROPERTY, "");
+    return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value);
+  }
+
+  private static double getMaxHeapFractionFromProperties() {
+    String value = System.getProperty(MAX_HEAP_FRACTION_PROPERTY);
+    if (value == null) {
+      return DEFAULT_MAX_HEAP_FRACTION;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      Logger.warn("ignoring invalid %s: %s", MAX_HEAP_FRACTION_PROPERTY, value);
+      return DEFAULT_MAX_HEAP_FRACTION;
     }
-    return androidSandbox;
   }
 
   /** Factory interface for AndroidSandbox. */
@@ -72,6 +466,103 @@ public class SandboxManager {
         LooperMode.Mode looperMode);
   }
 
+  private static class Prewarm {
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    // Whether the pre-warmer has started building the sandbox; until then, it can be cancelled.
+    private boolean started;
+  }
+
+  private static class CachedSandbox {
+    private static final long UNMEASURED = -1;
+
+    private final AndroidSandbox sandbox;
+    private final long retainedBytes;
+    // The number of times the sandbox was returned by getAndroidSandbox and not yet released.
+    private int users;
+
+    CachedSandbox(AndroidSandbox sandbox, long retainedBytes) {
+      this.sandbox = sandbox;
+      this.retainedBytes = retainedBytes;
+    }
+  }
+
+  /**
+   * Measures JVM heap usage. Where available, the usage of the tenured pool after its last
+   * collection is used, as it approximates the memory retained by live sandboxes much more closely
+   * than the instantaneous heap usage.
+   */
+  @VisibleForTesting
+  static class HeapMonitor {
+    @Nullable private final MemoryPoolMXBean tenuredPool;
+    private final double maxHeapFraction;
+
+    HeapMonitor(double maxHeapFraction) {
+      this(findTenuredPool(), maxHeapFraction);
+    }
+
+    HeapMonitor(@Nullable MemoryPoolMXBean tenuredPool, double maxHeapFraction) {
+      this.tenuredPool = tenuredPool;
+      this.maxHeapFraction = maxHeapFraction;
+    }
+
+    boolean isEnabled() {
+      return maxHeapFraction > 0 && getMaxBytes() > 0;
+    }
+
+    boolean exceedsLimit(long usedBytes) {
+      return usedBytes > getMaxBytes() * maxHeapFraction;
+    }
+
+    long getCurrentUsedBytes() {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Returns the total number of garbage collections so far, or -1 if it's unknown. */
+    long getCollectionCount() {
+      long count = 0;
+      for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+        long collectorCount = collector.getCollectionCount();
+        if (collectorCount < 0) {
+          return -1;
+        }
+        count += collectorCount;
+      }
+      return count;
+    }
+
+    long getRetainedUsedBytes() {
+      if (tenuredPool != null) {
+        MemoryUsage afterLastCollection = tenuredPool.getCollectionUsage();
+        if (afterLastCollection != null && afterLastCollection.getUsed() > 0) {
+          return afterLastCollection.getUsed();
+        }
+      }
+      return getCurrentUsedBytes();
+    }
+
+    long getMaxBytes() {
+      if (tenuredPool != null && tenuredPool.getUsage().getMax() > 0) {
+        return tenuredPool.getUsage().getMax();
+      }
+      long maxMemory = Runtime.getRuntime().maxMemory();
+      return maxMemory == Long.MAX_VALUE ? -1 : maxMemory;
+    }
+
+    @Nullable
+    private static MemoryPoolMXBean findTenuredPool() {
+      // The tenured pool is the heap pool that supports usage thresholds, e.g. "G1 Old Gen".
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP
+            && pool.isUsageThresholdSupported()
+            && pool.isCollectionUsageThresholdSupported()) {
+          return pool;
+        }
+      }
+      return null;
+    }
+  }
+
   static class SandboxKey {
     private final Sdk sdk;
     private final InstrumentationConfiguration instrumentationConfiguration;
@@ -20,6 +20,7 @@ import java.nio.file.Paths;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +38,7 @@ import org.junit.Test;
 import org.junit.runner.Description;
 import org.junit.runner.Result;
 import org.junit.runner.RunWith;
+import org.junit.runner.manipulation.Filter;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
@@ -48,11 +50,15 @@ import org.robolectric.RobolectricTestRunner.RobolectricFrameworkMethod;
 import org.robolectric.android.internal.AndroidTestEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.Config.Implementation;
+import org.robolectric.annotation.LooperMode;
 import org.robolectric.annotation.experimental.LazyApplication;
 import org.robolectric.annotation.experimental.LazyApplication.LazyLoad;
 import org.robolectric.internal.AndroidSandbox.TestEnvironmentSpec;
 import org.robolectric.internal.ResourcesMode;
+import org.robolectric.internal.SandboxManager;
+import org.robolectric.internal.SandboxManager.SandboxBuilder;
 import org.robolectric.internal.ShadowProvider;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.pluginapi.Sdk;
 import org.robolectric.pluginapi.SdkProvider;
@@ -65,6 +71,7 @@ import org.robolectric.plugins.SdkCollection;
 import org.robolectric.plugins.StubSdk;
 import org.robolectric.util.TempDirectory;
 import org.robolectric.util.TestUtil;
+import org.robolectric.util.inject.Injector;
 
 @SuppressWarnings("NewApi")
 @RunWith(JUnit4.class)
@@ -136,6 +143,42 @@ public class RobolectricTestRunnerTest {
     ).inOrder();
   }
 
+  @Test
+  public void prewarmsOnlySandboxesForFilteredChildren() throws Exception {
+    String priorPrewarm = System.getProperty("robolectric.sandboxPrewarm");
+    System.setProperty("robolectric.sandboxPrewarm", "true");
+    try {
+      Injector injector =
+          defaultInjector()
+              .bind(SandboxManager.class, PrewarmRecordingSandboxManager.class)
+              .build();
+      RobolectricTestRunner runner =
+          new RobolectricTestRunner(TestWithDifferentSdks.class, injector);
+      runner.filter(
+          new Filter() {
+            @Override
+            public boolean shouldRun(Description description) {
+              return description.getMethodName() == null
+                  || description.getMethodName().startsWith("sdk17");
+            }
+
+            @Override
+            public String describe() {
+              return "sdk17 only";
+            }
+          });
+      runner.run(notifier);
+
+      PrewarmRecordingSandboxManager sandboxManager =
+          (PrewarmRecordingSandboxManager) injector.getInstance(SandboxManager.class);
+      assertThat(sandboxManager.prewarmedApiLevels).containsExactly(17);
+      assertThat(events)
+          .containsExactly("started: sdk17", "finished: sdk17", "ignored: sdk17Ignored");
+    } finally {
+      TestUtil.resetSystemProperty("robolectric.sandboxPrewarm", priorPrewarm);
+    }
+  }
+
   @Test
   public void supportsOldGetConfigUntil4dot3() throws Exception {
     Implementation overriddenConfig = Config.Builder.defaults().build();
@@ -338,6 +381,43 @@ public class RobolectricTestRunnerTest {
     }
   }
 
+  public static class TestWithDifferentSdks {
+    @Test
+    @Config(sdk = 17)
+    public void sdk17() throws Exception {
+    }
+
+    @Test
+    @Config(sdk = 18)
+    public void sdk18() throws Exception {
+    }
+
+    @Ignore
+    @Test
+    @Config(sdk = 19)
+    public void sdk17Ignored() throws Exception {
+    }
+  }
+
+  public static class PrewarmRecordingSandboxManager extends SandboxManager {
+    final List<Integer> prewarmedApiLevels = Collections.synchronizedList(new ArrayList<>());
+
+    @Inject
+    public PrewarmRecordingSandboxManager(
+        SandboxBuilder sandboxBuilder, SdkCollection sdkCollection) {
+      super(sandboxBuilder, sdkCollection);
+    }
+
+    @Override
+    public void prewarmAndroidSandbox(
+        InstrumentationConfiguration instrumentationConfig,
+        Sdk sdk,
+        ResourcesMode resourcesMode,
+        LooperMode.Mode looperMode) {
+      prewarmedApiLevels.add(sdk.getApiLevel());
+    }
+  }
+
   @Ignore
   @FixMethodOrder(MethodSorters.NAME_ASCENDING)
   @Config(qualifiers = "w123dp-h456dp-land-hdpi")
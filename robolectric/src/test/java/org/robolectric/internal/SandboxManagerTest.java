@@ -0,0 +1,343 @@
+package org.robolectric.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.internal.SandboxManager.HeapMonitor;
+import org.robolectric.internal.SandboxManager.SandboxBuilder;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.pluginapi.Sdk;
+import org.robolectric.plugins.SdkCollection;
+import org.robolectric.plugins.StubSdk;
+
+/** Tests for {@link SandboxManager}. */
+@RunWith(JUnit4.class)
+public class SandboxManagerTest {
+
+  private static final long SANDBOX_BYTES = 100;
+
+  private final Sdk sdk = new StubSdk(1234, true);
+  private final InstrumentationConfiguration config =
+      InstrumentationConfiguration.newBuilder().build();
+  private final List<Runnable> prewarmTasks = new ArrayList<>();
+  private final List<Runnable> duringNextBuild = new ArrayList<>();
+  private final List<AndroidSandbox> builtSandboxes = new ArrayList<>();
+  private SandboxBuilder sandboxBuilder;
+  private FakeHeapMonitor heapMonitor;
+  private SandboxManager sandboxManager;
+
+  @Before
+  public void setUp() throws Exception {
+    sandboxBuilder = mock(SandboxBuilder.class);
+    when(sandboxBuilder.build(any(), any(), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              heapMonitor.currentUsedBytes += SANDBOX_BYTES;
+              List<Runnable> tasks = new ArrayList<>(duringNextBuild);
+              duringNextBuild.clear();
+              for (Runnable task : tasks) {
+                task.run();
+              }
+              AndroidSandbox sandbox = mock(AndroidSandbox.class);
+              builtSandboxes.add(sandbox);
+              return sandbox;
+            });
+    heapMonitor = new FakeHeapMonitor();
+    // A single supported SDK allows three cached sandboxes.
+    sandboxManager =
+        new SandboxManager(
+            sandboxBuilder,
+            new SdkCollection(() -> Collections.singletonList(sdk)),
+            heapMonitor,
+            prewarmTasks::add,
+            Arrays.asList("java.lang.String", "com.example.NoSuchClass"));
+  }
+
+  @Test
+  public void shouldReuseCachedSandbox() {
+    AndroidSandbox sandbox = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(sandbox);
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedSandboxWhenCacheIsFull() {
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    AndroidSandbox binaryLegacy = get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    get(ResourcesMode.LEGACY, LooperMode.Mode.LEGACY);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(3);
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(binaryPaused);
+    // The evicted sandbox is still in use, so it's only torn down once it's released.
+    verify(binaryLegacy, never()).shutdown();
+
+    sandboxManager.releaseAndroidSandbox(binaryLegacy);
+
+    verify(binaryLegacy).shutdown();
+    verify(binaryPaused, never()).shutdown();
+  }
+
+  @Test
+  public void shouldShutDownUnusedSandboxWhenEvicted() {
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    sandboxManager.releaseAndroidSandbox(binaryPaused);
+    get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+
+    get(ResourcesMode.LEGACY, LooperMode.Mode.LEGACY);
+
+    verify(binaryPaused).shutdown();
+  }
+
+  @Test
+  public void shouldNotShutDownEvictedSandboxUntilAllUsersReleaseIt() {
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    // Another test class, e.g. running in parallel, uses the same sandbox.
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+    get(ResourcesMode.LEGACY, LooperMode.Mode.LEGACY);
+
+    sandboxManager.releaseAndroidSandbox(binaryPaused);
+    verify(binaryPaused, never()).shutdown();
+
+    sandboxManager.releaseAndroidSandbox(binaryPaused);
+    verify(binaryPaused).shutdown();
+  }
+
+  @Test
+  public void shouldNotShutDownCachedSandboxWhenReleased() {
+    AndroidSandbox sandbox = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    sandboxManager.releaseAndroidSandbox(sandbox);
+
+    verify(sandbox, never()).shutdown();
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(sandbox);
+  }
+
+  @Test
+  public void shouldEvictSandboxesUnderHeapPressure() {
+    heapMonitor.maxHeapFraction = 0.5;
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    AndroidSandbox binaryLegacy = get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    sandboxManager.releaseAndroidSandbox(binaryPaused);
+    sandboxManager.releaseAndroidSandbox(binaryLegacy);
+
+    // There's no room for another sandbox of the average size without evicting both.
+    heapMonitor.retainedUsedBytes = 550;
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(1);
+    verify(binaryPaused).shutdown();
+    verify(binaryLegacy).shutdown();
+  }
+
+  @Test
+  public void shouldNotEvictSandboxesInUseUnderHeapPressure() {
+    heapMonitor.maxHeapFraction = 0.5;
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    // Evicting the sandbox wouldn't free its heap, since a test class is still using it.
+    heapMonitor.retainedUsedBytes = 550;
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(2);
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(binaryPaused);
+    verify(sandboxBuilder, times(2)).build(any(), any(), any(), any(), any());
+    verify(binaryPaused, never()).shutdown();
+  }
+
+  @Test
+  public void shouldNotEvictSandboxesWithHeapHeadroom() {
+    heapMonitor.maxHeapFraction = 0.5;
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    heapMonitor.retainedUsedBytes = 300;
+    get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotMeasureSandboxBuiltDuringGarbageCollection() {
+    heapMonitor.maxHeapFraction = 0.5;
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    duringNextBuild.add(
+        () -> {
+          heapMonitor.collectionCount++;
+          heapMonitor.currentUsedBytes += 300;
+        });
+    get(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+
+    // If the second build counted, the average sandbox wouldn't fit.
+    heapMonitor.retainedUsedBytes = 350;
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldNotMeasureOverlappingBuilds() {
+    heapMonitor.maxHeapFraction = 0.5;
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    // The pre-warmed sandbox is built while the test thread builds another one.
+    duringNextBuild.add(this::runPrewarmTasks);
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    // If the outer build counted, the average sandbox wouldn't fit.
+    heapMonitor.retainedUsedBytes = 450;
+    get(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void prewarm_shouldBuildSandboxInBackground() {
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(0);
+
+    runPrewarmTasks();
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(1);
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    verify(sandboxBuilder, times(1)).build(any(), any(), any(), any(), any());
+  }
+
+  @Test(timeout = 10000)
+  public void prewarm_shouldNotMakeTestsWaitForQueuedSandboxes() {
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    // The pre-warmer hasn't started either sandbox, so the test builds its own.
+    AndroidSandbox sandbox = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    runPrewarmTasks();
+
+    assertThat(builtSandboxes).hasSize(2);
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(2);
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(sandbox);
+    verify(sandbox, never()).shutdown();
+  }
+
+  @Test
+  public void prewarm_shouldSkipCachedSandboxes() {
+    AndroidSandbox sandbox = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    assertThat(prewarmTasks).isEmpty();
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(sandbox);
+  }
+
+  @Test
+  public void prewarm_shouldShutDownDuplicateSandbox() {
+    // Pre-warming starts while the test thread is already building the same sandbox.
+    duringNextBuild.add(() -> prewarm(ResourcesMode.BINARY, LooperMode.Mode.PAUSED));
+    AndroidSandbox sandbox = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    runPrewarmTasks();
+
+    assertThat(builtSandboxes).hasSize(2);
+    AndroidSandbox duplicate = builtSandboxes.get(1);
+    verify(duplicate).shutdown();
+    verify(sandbox, never()).shutdown();
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(sandbox);
+  }
+
+  @Test
+  public void prewarm_shouldNotEvictSandboxes() {
+    AndroidSandbox binaryPaused = get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    prewarm(ResourcesMode.LEGACY, LooperMode.Mode.PAUSED);
+    prewarm(ResourcesMode.LEGACY, LooperMode.Mode.LEGACY);
+    runPrewarmTasks();
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(3);
+    assertThat(get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED)).isSameInstanceAs(binaryPaused);
+    verify(binaryPaused, never()).shutdown();
+  }
+
+  @Test
+  public void prewarm_shouldNotBuildSandboxesWithoutHeapHeadroom() {
+    heapMonitor.maxHeapFraction = 0.5;
+    get(ResourcesMode.BINARY, LooperMode.Mode.PAUSED);
+    heapMonitor.retainedUsedBytes = 450;
+
+    prewarm(ResourcesMode.BINARY, LooperMode.Mode.LEGACY);
+    runPrewarmTasks();
+
+    assertThat(sandboxManager.getCachedSandboxCount()).isEqualTo(1);
+  }
+
+  private void prewarm(ResourcesMode resourcesMode, LooperMode.Mode looperMode) {
+    sandboxManager.prewarmAndroidSandbox(config, sdk, resourcesMode, looperMode);
+  }
+
+  private void runPrewarmTasks() {
+    for (Runnable task : prewarmTasks) {
+      task.run();
+    }
+    prewarmTasks.clear();
+  }
+
+  private AndroidSandbox get(ResourcesMode resourcesMode, LooperMode.Mode looperMode) {
+    return sandboxManager.getAndroidSandbox(config, sdk, resourcesMode, looperMode);
+  }
+
+  private static class FakeHeapMonitor extends HeapMonitor {
+    private double maxHeapFraction = 0;
+    private long currentUsedBytes = 0;
+    private long retainedUsedBytes = 0;
+    private long collectionCount = 0;
+
+    FakeHeapMonitor() {
+      super(null, 0);
+    }
+
+    @Override
+    boolean isEnabled() {
+      return maxHeapFraction > 0;
+    }
+
+    @Override
+    boolean exceedsLimit(long usedBytes) {
+      return usedBytes > getMaxBytes() * maxHeapFraction;
+    }
+
+    @Override
+    long getCurrentUsedBytes() {
+      return currentUsedBytes;
+    }
+
+    @Override
+    long getCollectionCount() {
+      return collectionCount;
+    }
+
+    @Override
+    long getRetainedUsedBytes() {
+      return retainedUsedBytes;
+    }
+
+    @Override
+    long getMaxBytes() {
+      return 1000;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.robolectric.res;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -95,4 +96,25 @@ public class ResNameTest {
     assertThat(resName.type).isEqualTo("string");
     assertThat(resName.packageName).isEqualTo("android");
   }
+
+  @Test
+  public void fullyQualifiedNameWithoutTypeOrName_throws() {
+    for (String name : new String[] {"android", "android:ok", "android:/ok", "android:string/"}) {
+      try {
+        new ResName(name);
+        fail("Expected exception for " + name);
+      } catch (IllegalStateException expected) {
+        assertThat(expected.getMessage()).isEqualTo("\"" + name + "\" is not fully qualified");
+      }
+    }
+  }
+
+  @Test
+  public void intern_returnsSameInstanceForEqualNames() {
+    ResName resName = new ResName("android", "string", "ok").intern();
+
+    assertThat(new ResName("android:string/ok").intern()).isSameInstanceAs(resName);
+    assertThat(ResName.qualifyResName("android:string/ok", null, null)).isSameInstanceAs(resName);
+    assertThat(new ResName("android", "string", "cancel").intern()).isNotSameInstanceAs(resName);
+  }
 }
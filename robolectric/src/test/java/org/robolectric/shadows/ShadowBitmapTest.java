@@ -430,6 +430,38 @@ public class ShadowBitmapTest {
     }
   }
 
+  @Test
+  public void shouldSetPixelsInSubsetOfBitmap() {
+    Bitmap bitmap = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+    int[] pixels = {0, packRGB(1, 0, 0), packRGB(2, 0, 0), 0, packRGB(3, 0, 0), packRGB(4, 0, 0)};
+
+    bitmap.setPixels(pixels, 1, 3, 1, 2, 2, 2);
+
+    assertThat(bitmap.getPixel(1, 2)).isEqualTo(packRGB(1, 0, 0));
+    assertThat(bitmap.getPixel(2, 2)).isEqualTo(packRGB(2, 0, 0));
+    assertThat(bitmap.getPixel(1, 3)).isEqualTo(packRGB(3, 0, 0));
+    assertThat(bitmap.getPixel(2, 3)).isEqualTo(packRGB(4, 0, 0));
+    assertThat(bitmap.getPixel(0, 2)).isEqualTo(0);
+    assertThat(bitmap.getPixel(3, 3)).isEqualTo(0);
+  }
+
+  @Test
+  public void createBitmap_fromSubsetOfBitmap_copiesPixels() {
+    Bitmap bitmap = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+    bitmap.setPixel(1, 2, Color.RED);
+    bitmap.setPixel(2, 3, Color.BLUE);
+
+    Bitmap subset = Bitmap.createBitmap(bitmap, 1, 2, 2, 2);
+    assertThat(subset.getPixel(0, 0)).isEqualTo(Color.RED);
+    assertThat(subset.getPixel(1, 1)).isEqualTo(Color.BLUE);
+
+    // Changes to the new bitmap shouldn't affect the original one.
+    subset.eraseColor(Color.GREEN);
+    assertThat(subset.getPixel(1, 0)).isEqualTo(Color.GREEN);
+    assertThat(bitmap.getPixel(1, 2)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(0, 0)).isEqualTo(0);
+  }
+
   @Test
   public void shouldAdjustDimensionsForMatrix() {
     Bitmap transformedBitmap;
@@ -38,7 +38,10 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.R;
@@ -476,8 +479,44 @@ public class ShadowLayoutInflaterTest {
     assertThat(progressBar).isInstanceOf(ProgressBar.class);
   }
 
+  @Test
+  @Ignore("for benchmarking")
+  public void inflatePerf() {
+    assertThat(countViews(inflate(R.layout.benchmark_views))).isEqualTo(501);
+
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    int times = 50;
+    for (int i = 0; i < 5; i++) {
+      long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+      long startTime = System.currentTimeMillis();
+      for (int j = 0; j < times; j++) {
+        inflate(R.layout.benchmark_views);
+      }
+      long elapsedMs = System.currentTimeMillis() - startTime;
+      long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+      System.out.println(
+          "inflating 501 views took "
+              + (elapsedMs / (double) times)
+              + " ms and allocated "
+              + (allocatedBytes / times / 1024)
+              + " KB per inflation");
+    }
+  }
+
   /////////////////////////
 
+  private static int countViews(View view) {
+    int count = 1;
+    if (view instanceof ViewGroup) {
+      ViewGroup viewGroup = (ViewGroup) view;
+      for (int i = 0; i < viewGroup.getChildCount(); i++) {
+        count += countViews(viewGroup.getChildAt(i));
+      }
+    }
+    return count;
+  }
+
   @SuppressWarnings("TypeParameterUnusedInFormals")
   private <T extends View> T inflate(int layoutResId) {
     return (T) LayoutInflater.from(context).inflate(layoutResId, null);
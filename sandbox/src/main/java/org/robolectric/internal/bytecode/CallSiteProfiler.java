@@ -0,0 +1,177 @@
+package org.robolectric.internal.bytecode;
+
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.identity;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counts the calls to intercepted methods and the time spent in them, to show where shadow
+ * performance work matters.
+ *
+ * <p>Enabled by setting the {@code robolectric.profileCallSites} system property to {@code true};
+ * a report of the top intercepted methods (50, or {@code robolectric.profileCallSites.topN}) by
+ * call count and by cumulative time is printed to stdout when the JVM exits. Each method is
+ * reported separately for each target it was bound to: its shadow, the original (real) code, or a
+ * no-op. Times are inclusive, so they include the time spent in nested intercepted calls, and calls
+ * that throw are counted but not timed.
+ *
+ * <p>Counters are {@link LongAdder}s shared by all the call sites of a method, so profiled calls
+ * don't allocate and threads calling the same method don't contend.
+ */
+public class CallSiteProfiler {
+  public static final String ENABLED_PROPERTY = "robolectric.profileCallSites";
+  public static final String TOP_N_PROPERTY = "robolectric.profileCallSites.topN";
+
+  private static final CallSiteProfiler INSTANCE =
+      Boolean.getBoolean(ENABLED_PROPERTY) ? create() : null;
+
+  private static final MethodHandle ENTER;
+  private static final MethodHandle EXIT;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      ENTER = lookup.findVirtual(MethodStats.class, "enter", methodType(long.class));
+      EXIT = lookup.findVirtual(MethodStats.class, "exit", methodType(void.class, long.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /** What an intercepted method's call sites are bound to. */
+  public enum Target {
+    SHADOW,
+    ORIGINAL,
+    NO_OP
+  }
+
+  private final ConcurrentHashMap<String, MethodStats> methodStats = new ConcurrentHashMap<>();
+
+  CallSiteProfiler() {}
+
+  private static CallSiteProfiler create() {
+    CallSiteProfiler profiler = new CallSiteProfiler();
+    int topN = Integer.getInteger(TOP_N_PROPERTY, 50);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> profiler.report(System.out, topN)));
+    return profiler;
+  }
+
+  /** Returns the profiler, or null if call sites aren't being profiled. */
+  static CallSiteProfiler getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a method handle of the same type as {@code mh} that also counts and times calls.
+   *
+   * @param rebind true if the call site is being rebound because its shadows were invalidated
+   */
+  MethodHandle profile(MethodCallSite site, Target target, MethodHandle mh, boolean rebind) {
+    int receiverCount = site.isStatic() ? 0 : 1;
+    String methodName =
+        site.getTheClass().getName()
+            + "."
+            + site.getName()
+            + site.type().dropParameterTypes(0, receiverCount).toMethodDescriptorString();
+    MethodStats stats =
+        methodStats.computeIfAbsent(
+            methodName + " " + target, k -> new MethodStats(methodName, target));
+    if (rebind) {
+      stats.rebinds.increment();
+    }
+
+    MethodType type = mh.type();
+    Class<?> returnType = type.returnType();
+    // exit(start, result) returns result after recording the time since start.
+    MethodHandle exit = EXIT.bindTo(stats);
+    if (returnType != void.class) {
+      exit = foldArguments(dropArguments(identity(returnType), 0, long.class), exit);
+    }
+    // (start, args...) -> exit(start, mh(args...))
+    MethodHandle timed = MethodHandles.collectArguments(exit, 1, mh);
+    // (args...) -> timed(enter(), args...)
+    return foldArguments(timed, ENTER.bindTo(stats));
+  }
+
+  /** Writes the top {@code topN} methods by call count and by cumulative time. */
+  void report(PrintStream out, int topN) {
+    List<MethodStats> stats = new ArrayList<>(methodStats.values());
+    out.println("Top intercepted methods by call count:");
+    printTop(out, stats, MethodStats::getCallCount, topN);
+    out.println("Top intercepted methods by cumulative time:");
+    printTop(out, stats, MethodStats::getElapsedNs, topN);
+  }
+
+  private static void printTop(
+      PrintStream out, List<MethodStats> stats, ToLongFunction<MethodStats> key, int topN) {
+    stats.sort(Comparator.comparingLong(key).reversed());
+    out.println("Method\tTarget\tCalls\tTotal ms\tAvg ns\tRebinds");
+    for (MethodStats methodStats : stats.subList(0, Math.min(topN, stats.size()))) {
+      long callCount = methodStats.getCallCount();
+      long elapsedNs = methodStats.getElapsedNs();
+      out.println(
+          MessageFormat.format(
+              "{0}\t{1}\t{2}\t{3}\t{4}\t{5}",
+              methodStats.methodName,
+              methodStats.target,
+              String.valueOf(callCount),
+              String.valueOf(elapsedNs / 1000000),
+              String.valueOf(callCount == 0 ? 0 : elapsedNs / callCount),
+              String.valueOf(methodStats.getRebindCount())));
+    }
+  }
+
+  MethodStats getStats(String methodName, Target target) {
+    return methodStats.get(methodName + " " + target);
+  }
+
+  static class MethodStats {
+    private final String methodName;
+    private final Target target;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder elapsedNs = new LongAdder();
+    // Number of times a call site was bound to this target after its shadows were invalidated.
+    private final LongAdder rebinds = new LongAdder();
+
+    MethodStats(String methodName, Target target) {
+      this.methodName = methodName;
+      this.target = target;
+    }
+
+    @SuppressWarnings("unused") // called via method handle
+    long enter() {
+      calls.increment();
+      return System.nanoTime();
+    }
+
+    @SuppressWarnings("unused") // called via method handle
+    void exit(long startNs) {
+      elapsedNs.add(System.nanoTime() - startNs);
+    }
+
+    long getCallCount() {
+      return calls.sum();
+    }
+
+    long getElapsedNs() {
+      return elapsedNs.sum();
+    }
+
+    long getRebindCount() {
+      return rebinds.sum();
+    }
+  }
+}
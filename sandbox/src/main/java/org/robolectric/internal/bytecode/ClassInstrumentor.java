@@ -7,8 +7,10 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Handle;
@@ -48,6 +50,9 @@ public class ClassInstrumentor {
   private static final ShadowImpl SHADOW_IMPL = new ShadowImpl();
   final Decorator decorator;
 
+  // Metric names for each package prefix of a package, so they are only built once per package.
+  private final ConcurrentHashMap<String, String[]> packageMetricNames = new ConcurrentHashMap<>();
+
   static {
     String className = Type.getInternalName(InvokeDynamicSupport.class);
 
@@ -124,21 +129,40 @@ public class ClassInstrumentor {
       InstrumentationConfiguration config,
       ClassNodeProvider classNodeProvider) {
     PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+    String className = classDetails.getName();
     MutableClass mutableClass =
         perfStats.measure(
             "analyze class",
+            className,
             () -> analyzeClass(classDetails.getClassBytes(), config, classNodeProvider));
     byte[] instrumentedBytes =
-        perfStats.measure("instrument class", () -> instrumentToBytes(mutableClass));
+        perfStats.measure("instrument class", className, () -> instrumentToBytes(mutableClass));
     recordPackageStats(perfStats, mutableClass);
     return instrumentedBytes;
   }
 
   private void recordPackageStats(PerfStatsCollector perfStats, MutableClass mutableClass) {
     String className = mutableClass.getName();
-    for (int i = className.indexOf('.'); i != -1; i = className.indexOf('.', i + 1)) {
-      perfStats.incrementCount("instrument package " + className.substring(0, i));
+    int lastDot = className.lastIndexOf('.');
+    if (lastDot == -1) {
+      return;
+    }
+
+    String[] metricNames =
+        packageMetricNames.computeIfAbsent(
+            className.substring(0, lastDot), ClassInstrumentor::packageMetricNames);
+    for (String metricName : metricNames) {
+      perfStats.incrementCount(metricName);
+    }
+  }
+
+  private static String[] packageMetricNames(String packageName) {
+    List<String> metricNames = new ArrayList<>();
+    for (int i = packageName.indexOf('.'); i != -1; i = packageName.indexOf('.', i + 1)) {
+      metricNames.add("instrument package " + packageName.substring(0, i));
     }
+    metricNames.add("instrument package " + packageName);
+    return metricNames.toArray(new String[0]);
   }
 
   public void instrument(MutableClass mutableClass) {
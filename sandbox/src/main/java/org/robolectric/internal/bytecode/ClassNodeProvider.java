@@ -10,11 +10,18 @@ public abstract class ClassNodeProvider {
 
   protected abstract byte[] getClassBytes(String className) throws ClassNotFoundException;
 
+  /**
+   * Returns the (code-less) class node for the given class. Safe to call from several threads; if
+   * two threads race to parse the same class, they both get the node that was cached first.
+   */
   ClassNode getClassNode(String internalClassName) throws ClassNotFoundException {
     ClassNode classNode = classNodes.get(internalClassName);
     if (classNode == null) {
       classNode = createClassNode(internalClassName);
-      classNodes.put(internalClassName, classNode);
+      ClassNode existingClassNode = classNodes.putIfAbsent(internalClassName, classNode);
+      if (existingClassNode != null) {
+        classNode = existingClassNode;
+      }
     }
     return classNode;
   }
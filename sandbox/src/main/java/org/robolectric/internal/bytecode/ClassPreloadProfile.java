@@ -0,0 +1,167 @@
+package org.robolectric.internal.bytecode;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * A list of the classes loaded by a sandbox, used to load them ahead of time in later runs.
+ *
+ * <p>Class loading is otherwise driven by the first test that needs each class, one class at a
+ * time. If the profile file doesn't exist yet, the classes loaded by the sandbox are recorded and
+ * written to it when the JVM exits; if it does, they are loaded in the background by several
+ * threads as soon as the sandbox is created.
+ *
+ * <p>Profiles are enabled by setting the {@code robolectric.classPreloadProfileDir} system property
+ * to the directory to keep them in. Delete a profile to record it again.
+ */
+@SuppressWarnings("NewApi")
+public class ClassPreloadProfile {
+  public static final String PROFILE_DIR_PROPERTY = "robolectric.classPreloadProfileDir";
+  public static final String THREADS_PROPERTY = "robolectric.classPreloadProfile.threads";
+
+  // Profiles that are being recorded by this JVM, and the classes recorded for each. Only the first
+  // sandbox for each profile records it. They're all written by a single shutdown hook.
+  private static final Map<Path, Collection<String>> RECORDINGS = new ConcurrentHashMap<>();
+  private static final AtomicBoolean SHUTDOWN_HOOK_REGISTERED = new AtomicBoolean();
+
+  private final Path profileFile;
+  private final int threadCount;
+
+  public ClassPreloadProfile(Path profileFile, int threadCount) {
+    this.profileFile = profileFile;
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Returns the profile with the given name, e.g. the SDK it applies to, or null if profiles aren't
+   * enabled.
+   */
+  @Nullable
+  public static ClassPreloadProfile fromProperties(String profileName) {
+    String profileDir = System.getProperty(PROFILE_DIR_PROPERTY);
+    if (Strings.isNullOrEmpty(profileDir)) {
+      return null;
+    }
+    int threadCount =
+        Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+    return new ClassPreloadProfile(
+        Paths.get(profileDir, profileName + ".classes"), Math.max(1, threadCount));
+  }
+
+  /**
+   * Starts preloading the classes in this profile in the background if it exists, or starts
+   * recording it otherwise. Doesn't wait for preloading to finish: classes that a test needs before
+   * they've been preloaded are just loaded by the test's thread.
+   */
+  public void apply(SandboxClassLoader classLoader) {
+    if (Files.exists(profileFile)) {
+      List<String> classNames;
+      try {
+        classNames = Files.readAllLines(profileFile, UTF_8);
+      } catch (IOException e) {
+        Logger.warn("couldn't read class preload profile %s: %s", profileFile, e);
+        return;
+      }
+      Thread thread =
+          new Thread(() -> preload(classLoader, classNames), "Robolectric class preloader");
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      // Don't hold a reference to the class loader, so it can be collected if the sandbox is.
+      RECORDINGS.computeIfAbsent(profileFile, file -> classLoader.recordLoadedClassNames());
+      if (SHUTDOWN_HOOK_REGISTERED.compareAndSet(false, true)) {
+        Runtime.getRuntime().addShutdownHook(new Thread(ClassPreloadProfile::writeRecordings));
+      }
+    }
+  }
+
+  /**
+   * Loads (but doesn't initialize) the given classes using several threads, and waits until they
+   * are loaded.
+   *
+   * @return the number of classes that were loaded.
+   */
+  int preload(ClassLoader classLoader, List<String> classNames) {
+    AtomicInteger loadedCount = new AtomicInteger();
+    PerfStatsCollector.getInstance()
+        .measure(
+            "preload sandbox classes",
+            profileFile.getFileName().toString(),
+            () -> {
+              ExecutorService executorService =
+                  Executors.newFixedThreadPool(
+                      threadCount,
+                      r -> {
+                        Thread thread = new Thread(r, "Robolectric class preloader");
+                        thread.setDaemon(true);
+                        return thread;
+                      });
+              try {
+                List<Future<?>> futures = new ArrayList<>(classNames.size());
+                for (String className : classNames) {
+                  if (className.isEmpty()) {
+                    continue;
+                  }
+                  futures.add(
+                      executorService.submit(
+                          () -> {
+                            try {
+                              Class.forName(className, false, classLoader);
+                              loadedCount.incrementAndGet();
+                            } catch (ClassNotFoundException | LinkageError e) {
+                              // The class was probably removed since the profile was recorded.
+                              Logger.debug("couldn't preload %s: %s", className, e);
+                            }
+                          }));
+                }
+                for (Future<?> future : futures) {
+                  Uninterruptibles.getUninterruptibly(future);
+                }
+              } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+              } finally {
+                executorService.shutdownNow();
+              }
+            });
+    return loadedCount.get();
+  }
+
+  private static void writeRecordings() {
+    for (Map.Entry<Path, Collection<String>> recording : RECORDINGS.entrySet()) {
+      write(recording.getKey(), recording.getValue());
+    }
+  }
+
+  private static void write(Path profileFile, Collection<String> loadedClassNames) {
+    try {
+      Files.createDirectories(profileFile.getParent());
+      // Write atomically, in case another process is recording the same profile.
+      Path tempFile = Files.createTempFile(profileFile.getParent(), "profile", ".tmp");
+      Files.write(tempFile, new ArrayList<>(loadedClassNames), UTF_8);
+      Files.move(tempFile, profileFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Logger.warn("couldn't write class preload profile %s: %s", profileFile, e);
+    }
+  }
+}
@@ -72,7 +72,7 @@ public class InvokeDynamicSupport {
       throws IllegalAccessException {
     MethodCallSite site = new MethodCallSite(caller.lookupClass(), type, name, original, REGULAR);
 
-    bindCallSite(site);
+    bindCallSite(site, false);
 
     return site;
   }
@@ -83,7 +83,7 @@ public class InvokeDynamicSupport {
       throws IllegalAccessException {
     MethodCallSite site = new MethodCallSite(caller.lookupClass(), type, name, original, STATIC);
 
-    bindCallSite(site);
+    bindCallSite(site, false);
 
     return site;
   }
@@ -131,25 +131,43 @@ public class InvokeDynamicSupport {
     return bindWithFallback(site, mh, BIND_INIT_CALL_SITE);
   }
 
+  // Called when the call site's shadows have been invalidated.
   private static MethodHandle bindCallSite(MethodCallSite site) throws IllegalAccessException {
+    return bindCallSite(site, true);
+  }
+
+  private static MethodHandle bindCallSite(MethodCallSite site, boolean rebind)
+      throws IllegalAccessException {
     MethodHandle mh =
         RobolectricInternals.findShadowMethodHandle(
             site.getTheClass(), site.getName(), site.type(), site.isStatic());
 
+    CallSiteProfiler.Target target;
     if (mh == null) {
       // call original code
       mh = site.getOriginal();
+      target = CallSiteProfiler.Target.ORIGINAL;
     } else if (mh == ShadowWrangler.DO_NOTHING) {
       // no-op
       mh = dropArguments(mh, 0, site.type().parameterList());
+      target = CallSiteProfiler.Target.NO_OP;
     } else if (!site.isStatic()) {
       // drop arg 0 (this) for static methods
       Class<?> shadowType = mh.type().parameterType(0);
       mh = filterArguments(mh, 0, GET_SHADOW.asType(methodType(shadowType, site.thisType())));
+      target = CallSiteProfiler.Target.SHADOW;
+    } else {
+      target = CallSiteProfiler.Target.SHADOW;
+    }
+
+    mh = cleanStackTraces(mh);
+    CallSiteProfiler profiler = CallSiteProfiler.getInstance();
+    if (profiler != null) {
+      mh = profiler.profile(site, target, mh, rebind);
     }
 
     try {
-      return bindWithFallback(site, cleanStackTraces(mh), BIND_CALL_SITE);
+      return bindWithFallback(site, mh, BIND_CALL_SITE);
     } catch (Throwable t) {
       // The error that bubbles up is currently not very helpful so we print any error messages
       // here
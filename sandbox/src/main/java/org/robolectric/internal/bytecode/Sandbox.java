@@ -1,8 +1,8 @@
 package org.robolectric.internal.bytecode;
 
-import static org.robolectric.util.ReflectionHelpers.newInstance;
 import static org.robolectric.util.ReflectionHelpers.setStaticField;
 
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -11,7 +11,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import javax.inject.Inject;
-import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.Logger;
 import org.robolectric.util.Util;
 
 public class Sandbox {
@@ -77,9 +77,6 @@ public class Sandbox {
 
     Class<?> invokeDynamicSupportClass = bootstrappedClass(InvokeDynamicSupport.class);
     setStaticField(invokeDynamicSupportClass, "INTERCEPTORS", interceptors);
-
-    Class<?> shadowClass = bootstrappedClass(Shadow.class);
-    setStaticField(shadowClass, "SHADOW_IMPL", newInstance(bootstrappedClass(ShadowImpl.class)));
   }
 
   public void runOnMainThread(Runnable runnable) {
@@ -101,4 +98,22 @@ public class Sandbox {
       throw Util.sneakyThrow(e.getCause());
     }
   }
+
+  /**
+   * Releases the resources held by this sandbox. The main thread is stopped once any pending work
+   * has completed, and the sandbox class loader is closed so that it (and every class it defined)
+   * can be garbage collected. The sandbox must not be used after this method is called.
+   */
+  public void shutdown() {
+    executorService.shutdown();
+    try {
+      sandboxClassLoader.close();
+    } catch (IOException e) {
+      Logger.strict("failed to close " + sandboxClassLoader, e);
+    }
+  }
+
+  public boolean isShutdown() {
+    return executorService.isShutdown();
+  }
 }
@@ -6,6 +6,7 @@ import static com.google.common.base.StandardSystemProperty.PATH_SEPARATOR;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,7 +16,14 @@ import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
@@ -24,17 +32,31 @@ import org.robolectric.util.Util;
 /**
  * Class loader that modifies the bytecode of Android classes to insert calls to Robolectric's
  * shadow classes.
+ *
+ * <p>This class loader is parallel capable: classes are loaded under a per-class lock, so threads
+ * loading unrelated classes (e.g. the main thread, background loopers and class preloaders) can
+ * instrument them concurrently. Subclasses should register themselves as parallel capable too.
  */
 public class SandboxClassLoader extends URLClassLoader {
+  static {
+    registerAsParallelCapable();
+  }
+
   // The directory where instrumented class files will be dumped
   private static final String DUMP_CLASSES_PROPERTY = "robolectric.dumpClassesDirectory";
   private static final AtomicInteger DUMP_CLASSES_COUNTER = new AtomicInteger();
+  // If true, classes are defined with the code source they're loaded from, so that a class data
+  // sharing archive can store them. Set when recording or mapping one, e.g. by -PcdsArchive.
+  private static final String CLASS_DATA_SHARING_PROPERTY = "robolectric.cds";
 
   private final InstrumentationConfiguration config;
   private final ResourceProvider resourceProvider;
   private final ClassInstrumentor classInstrumentor;
   private final ClassNodeProvider classNodeProvider;
   private final String dumpClassesDirectory;
+  private final boolean defineClassesWithCodeSource;
+  // Names of the acquired classes, in the order they were loaded, if recording.
+  @Nullable private volatile Queue<String> loadedClassNames;
 
   /** Constructor for use by tests. */
   SandboxClassLoader(InstrumentationConfiguration config) {
@@ -73,6 +95,7 @@ public class SandboxClassLoader extends URLClassLoader {
           }
         };
     this.dumpClassesDirectory = System.getProperty(DUMP_CLASSES_PROPERTY, "");
+    this.defineClassesWithCodeSource = Boolean.getBoolean(CLASS_DATA_SHARING_PROPERTY);
   }
 
   private static URL[] getClassPathUrls(ClassLoader classloader) {
@@ -111,6 +134,33 @@ public class SandboxClassLoader extends URLClassLoader {
     return resourceProvider.getResource(name);
   }
 
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      if (resourceProvider instanceof Closeable) {
+        ((Closeable) resourceProvider).close();
+      }
+    }
+  }
+
+  /**
+   * Starts recording the names of classes acquired by this class loader.
+   *
+   * @return a thread-safe, live view of the names of the classes loaded since recording started,
+   *     in the order they finished loading (so superclasses come before their subclasses). It
+   *     doesn't reference this class loader.
+   */
+  public Collection<String> recordLoadedClassNames() {
+    synchronized (this) {
+      if (loadedClassNames == null) {
+        loadedClassNames = new ConcurrentLinkedQueue<>();
+      }
+    }
+    return Collections.unmodifiableCollection(loadedClassNames);
+  }
+
   private InputStream getClassBytesAsStreamPreferringLocalUrls(String resName) {
     InputStream fromUrlsClassLoader = resourceProvider.getResourceAsStream(resName);
     if (fromUrlsClassLoader != null) {
@@ -121,7 +171,16 @@ public class SandboxClassLoader extends URLClassLoader {
 
   @Override
   public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    // Most calls are for classes that are already loaded, so don't take the lock for those.
+    Class<?> alreadyLoadedClass = findLoadedClass(name);
+    if (alreadyLoadedClass != null) {
+      return alreadyLoadedClass;
+    }
+
+    PerfStatsCollector.Event lockWait =
+        PerfStatsCollector.getInstance().startEvent("class loading lock wait");
     synchronized (getClassLoadingLock(name)) {
+      lockWait.finished();
       Class<?> loadedClass = findLoadedClass(name);
       if (loadedClass != null) {
         return loadedClass;
@@ -130,7 +189,11 @@ public class SandboxClassLoader extends URLClassLoader {
       if (config.shouldAcquire(name)) {
         loadedClass =
             PerfStatsCollector.getInstance()
-                .measure("load sandboxed class", () -> maybeInstrumentClass(name));
+                .measure("load sandboxed class", name, () -> maybeInstrumentClass(name));
+        Queue<String> loadedClassNames = this.loadedClassNames;
+        if (loadedClassNames != null) {
+          loadedClassNames.add(name);
+        }
       } else {
         loadedClass = getParent().loadClass(name);
       }
@@ -156,7 +219,8 @@ public class SandboxClassLoader extends URLClassLoader {
         bytes = postProcessUninstrumentedClass(classDetails);
       }
       ensurePackage(className);
-      return defineClass(className, bytes, 0, bytes.length);
+      CodeSource codeSource = defineClassesWithCodeSource ? getCodeSource(className) : null;
+      return defineClass(className, bytes, 0, bytes.length, codeSource);
     } catch (Exception e) {
       throw new ClassNotFoundException("couldn't load " + className, e);
     } catch (OutOfMemoryError e) {
@@ -165,6 +229,40 @@ public class SandboxClassLoader extends URLClassLoader {
     }
   }
 
+  /**
+   * Returns the code source for the jar or directory that {@code className} is loaded from, or null
+   * if it can't be determined. The JVM only stores classes defined by custom class loaders in a
+   * class data sharing archive if they have a code source. Looking it up costs another resource
+   * lookup per class, so it's only done if class data sharing is enabled.
+   */
+  @Nullable
+  private CodeSource getCodeSource(String className) {
+    String classFilename = className.replace('.', '/') + ".class";
+    URL url = resourceProvider.getResource(classFilename);
+    if (url == null) {
+      url = super.getResource(classFilename);
+    }
+    URL location = url == null ? null : getCodeSourceLocation(url, classFilename);
+    return location == null ? null : new CodeSource(location, (Certificate[]) null);
+  }
+
+  @Nullable
+  static URL getCodeSourceLocation(URL resourceUrl, String resourceName) {
+    String spec = resourceUrl.toString();
+    try {
+      if ("jar".equals(resourceUrl.getProtocol())) {
+        int separator = spec.indexOf("!/");
+        return separator < 0 ? null : new URL(spec.substring("jar:".length(), separator));
+      }
+      if (spec.endsWith(resourceName)) {
+        return new URL(spec.substring(0, spec.length() - resourceName.length()));
+      }
+    } catch (MalformedURLException e) {
+      Logger.debug("malformed code source for %s: %s", resourceUrl, e);
+    }
+    return null;
+  }
+
   private void maybeDumpClassBytes(ClassDetails classDetails, byte[] classBytes) {
     if (!Strings.isNullOrEmpty(dumpClassesDirectory)) {
       String outputClassName =
@@ -201,7 +299,11 @@ public class SandboxClassLoader extends URLClassLoader {
       String pckgName = className.substring(0, lastDotIndex);
       Package pckg = getPackage(pckgName);
       if (pckg == null) {
-        definePackage(pckgName, null, null, null, null, null, null, null);
+        try {
+          definePackage(pckgName, null, null, null, null, null, null, null);
+        } catch (IllegalArgumentException e) {
+          // Another thread defined it concurrently.
+        }
       }
     }
   }
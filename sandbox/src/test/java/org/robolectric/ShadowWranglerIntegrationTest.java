@@ -8,6 +8,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Implementation;
@@ -94,6 +95,22 @@ public class ShadowWranglerIntegrationTest {
     assertEquals(ShadowFoo.class, Shadow.extract(textFoo).getClass());
   }
 
+  @Ignore
+  @Test
+  @SandboxConfig(shadows = {ShadowFoo.class, ShadowTextFoo.class})
+  public void extractPerf() {
+    Foo foo = new Foo(name);
+    TextFoo textFoo = new TextFoo(name);
+
+    // Alternate between classes so the call site isn't monomorphic, as in real shadows.
+    Runnable extract = () -> {
+      Shadow.extract(foo);
+      Shadow.extract(textFoo);
+    };
+    System.out.println("extract took " + elapsedMs(100_000_000, extract));
+    System.out.println("extract took " + elapsedMs(100_000_000, extract));
+  }
+
   @Test
   @SandboxConfig(shadows = {ShadowFoo.class, ShadowTextFoo.class})
   public void shouldUseMostSpecificShadow() throws Exception {
@@ -413,4 +430,12 @@ public class ShadowWranglerIntegrationTest {
   public static class Shadow22OfAClassWithBrokenStaticInitializer
       extends Shadow2OfAClassWithBrokenStaticInitializer {
   }
+
+  private static long elapsedMs(int times, Runnable runnable) {
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < times; i++) {
+      runnable.run();
+    }
+    return System.currentTimeMillis() - startTime;
+  }
 }
@@ -0,0 +1,90 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.CallSiteProfiler.MethodStats;
+import org.robolectric.internal.bytecode.CallSiteProfiler.Target;
+
+/** Tests for {@link CallSiteProfiler}. */
+@RunWith(JUnit4.class)
+public class CallSiteProfilerTest {
+  private static final AtomicInteger runCount = new AtomicInteger();
+
+  private final CallSiteProfiler profiler = new CallSiteProfiler();
+
+  @Test
+  public void profile_countsCallsAndPreservesResult() throws Throwable {
+    MethodHandle original =
+        MethodHandles.lookup()
+            .findVirtual(String.class, "concat", methodType(String.class, String.class));
+    MethodCallSite site = callSite(String.class, "concat", original, MethodCallSite.Kind.REGULAR);
+
+    MethodHandle profiled = profiler.profile(site, Target.ORIGINAL, original, false);
+    for (int i = 0; i < 3; i++) {
+      assertThat((String) profiled.invokeExact("a", "b")).isEqualTo("ab");
+    }
+
+    MethodStats stats =
+        profiler.getStats(
+            "java.lang.String.concat(Ljava/lang/String;)Ljava/lang/String;", Target.ORIGINAL);
+    assertThat(stats.getCallCount()).isEqualTo(3);
+    assertThat(stats.getElapsedNs()).isGreaterThan(0);
+    assertThat(stats.getRebindCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void profile_supportsVoidStaticMethods() throws Throwable {
+    MethodHandle original =
+        MethodHandles.lookup()
+            .findStatic(CallSiteProfilerTest.class, "run", methodType(void.class));
+    MethodCallSite site =
+        callSite(CallSiteProfilerTest.class, "run", original, MethodCallSite.Kind.STATIC);
+    int initialRunCount = runCount.get();
+
+    profiler.profile(site, Target.SHADOW, original, false).invokeExact();
+    profiler.profile(site, Target.SHADOW, original, true).invokeExact();
+
+    assertThat(runCount.get()).isEqualTo(initialRunCount + 2);
+    MethodStats stats =
+        profiler.getStats(CallSiteProfilerTest.class.getName() + ".run()V", Target.SHADOW);
+    assertThat(stats.getCallCount()).isEqualTo(2);
+    assertThat(stats.getRebindCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void report_listsMethodsByCallCount() throws Throwable {
+    MethodHandle original =
+        MethodHandles.lookup()
+            .findStatic(CallSiteProfilerTest.class, "run", methodType(void.class));
+    MethodCallSite site =
+        callSite(CallSiteProfilerTest.class, "run", original, MethodCallSite.Kind.STATIC);
+    profiler.profile(site, Target.NO_OP, original, false).invokeExact();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    profiler.report(new PrintStream(out, true, "UTF-8"), 10);
+
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+        .contains(CallSiteProfilerTest.class.getName() + ".run()V\tNO_OP\t1\t");
+  }
+
+  private static MethodCallSite callSite(
+      Class<?> theClass, String name, MethodHandle original, MethodCallSite.Kind kind) {
+    MethodType type = original.type();
+    return new MethodCallSite(theClass, type, name, original, kind);
+  }
+
+  private static void run() {
+    runCount.incrementAndGet();
+  }
+}
@@ -0,0 +1,81 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.testing.AChild;
+import org.robolectric.testing.AParent;
+
+/** Tests for {@link ClassPreloadProfile}. */
+@RunWith(JUnit4.class)
+public class ClassPreloadProfileTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void recordLoadedClassNames_recordsSuperclassesFirst() throws Exception {
+    SandboxClassLoader classLoader = new SandboxClassLoader(createConfig());
+    Collection<String> loadedClassNames = classLoader.recordLoadedClassNames();
+
+    classLoader.loadClass(AChild.class.getName());
+
+    assertThat(loadedClassNames)
+        .containsAtLeast(AParent.class.getName(), AChild.class.getName())
+        .inOrder();
+  }
+
+  @Test
+  public void preload_loadsClassesIntoSandbox() throws Exception {
+    SandboxClassLoader classLoader = new SandboxClassLoader(createConfig());
+    ClassPreloadProfile profile =
+        new ClassPreloadProfile(tempFolder.getRoot().toPath().resolve("test.classes"), 4);
+
+    int loadedCount =
+        profile.preload(
+            classLoader,
+            ImmutableList.of(AChild.class.getName(), AParent.class.getName(), "no.such.Class"));
+
+    assertThat(loadedCount).isEqualTo(2);
+    Collection<String> loadedClassNames = classLoader.recordLoadedClassNames();
+    Class<?> childClass = classLoader.loadClass(AChild.class.getName());
+    assertThat(childClass.getClassLoader()).isSameInstanceAs(classLoader);
+    // Already loaded by the preload, so it isn't loaded again.
+    assertThat(loadedClassNames).doesNotContain(AChild.class.getName());
+  }
+
+  @Test
+  public void apply_preloadsClassesInBackground() throws Exception {
+    Path profileFile = tempFolder.getRoot().toPath().resolve("test.classes");
+    Files.write(profileFile, ImmutableList.of(AChild.class.getName()), UTF_8);
+    SandboxClassLoader classLoader = new SandboxClassLoader(createConfig());
+    Collection<String> loadedClassNames = classLoader.recordLoadedClassNames();
+
+    new ClassPreloadProfile(profileFile, 4).apply(classLoader);
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!loadedClassNames.contains(AChild.class.getName())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(loadedClassNames).contains(AChild.class.getName());
+  }
+
+  private static InstrumentationConfiguration createConfig() {
+    return InstrumentationConfiguration.newBuilder()
+        .doNotAcquirePackage("java.")
+        .doNotAcquirePackage("jdk.internal.")
+        .doNotAcquirePackage("sun.")
+        .doNotAcquirePackage("com.sun.")
+        .doNotAcquirePackage("org.robolectric.internal.")
+        .doNotAcquirePackage("org.robolectric.pluginapi.")
+        .build();
+  }
+}
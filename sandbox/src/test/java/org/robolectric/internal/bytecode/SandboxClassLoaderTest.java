@@ -16,7 +16,6 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
-import static org.robolectric.util.ReflectionHelpers.newInstance;
 import static org.robolectric.util.ReflectionHelpers.setStaticField;
 
 import java.lang.invoke.MethodHandle;
@@ -28,11 +27,20 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
@@ -41,7 +49,6 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mockito;
-import org.robolectric.shadow.api.Shadow;
 import org.robolectric.testing.AChild;
 import org.robolectric.testing.AClassThatCallsAMethodReturningAForgettableClass;
 import org.robolectric.testing.AClassThatExtendsAClassWithFinalEqualsHashCode;
@@ -89,6 +96,39 @@ public class SandboxClassLoaderTest {
     assertEquals(0, clazz.getModifiers() & Modifier.FINAL);
   }
 
+  @Test
+  public void shouldDefineClassesWithTheirCodeSourceWhenClassDataSharingIsEnabled()
+      throws Exception {
+    System.setProperty("robolectric.cds", "true");
+    try {
+      Class<?> clazz = loadClass(AnExampleClass.class);
+      assertThat(clazz.getProtectionDomain().getCodeSource().getLocation())
+          .isEqualTo(AnExampleClass.class.getProtectionDomain().getCodeSource().getLocation());
+    } finally {
+      System.clearProperty("robolectric.cds");
+    }
+  }
+
+  @Test
+  public void shouldNotLookUpCodeSourceByDefault() throws Exception {
+    Class<?> clazz = loadClass(AnExampleClass.class);
+    // Classes defined without a code source get the class loader's default protection domain.
+    assertThat(clazz.getProtectionDomain().getCodeSource().getLocation()).isNull();
+  }
+
+  @Test
+  public void getCodeSourceLocation_shouldReturnJarOrDirectory() throws Exception {
+    assertThat(
+            SandboxClassLoader.getCodeSourceLocation(
+                new URL("jar:file:/tmp/android-all.jar!/android/app/Activity.class"),
+                "android/app/Activity.class"))
+        .isEqualTo(new URL("file:/tmp/android-all.jar"));
+    assertThat(
+            SandboxClassLoader.getCodeSourceLocation(
+                new URL("file:/tmp/classes/com/example/Foo.class"), "com/example/Foo.class"))
+        .isEqualTo(new URL("file:/tmp/classes/"));
+  }
+
   @Test
   public void forClassesWithNoDefaultConstructor_shouldCreateOneButItShouldNotCallShadow()
       throws Exception {
@@ -117,6 +157,62 @@ public class SandboxClassLoaderTest {
     assertNull(nameField.get(instance));
   }
 
+  @Test
+  public void shouldLoadClassesConcurrently() throws Exception {
+    SandboxClassLoader classLoader = new SandboxClassLoader(configureBuilder().build());
+    List<String> classNames =
+        Stream.of(
+                AChild.class,
+                AClassThatCallsAMethodReturningAForgettableClass.class,
+                AClassThatExtendsAClassWithFinalEqualsHashCode.class,
+                AClassThatRefersToAForgettableClass.class,
+                AClassWithEqualsHashCodeToString.class,
+                AClassWithFunnyConstructors.class,
+                AClassWithMethodReturningArray.class,
+                AClassWithNativeMethod.class,
+                AClassWithNoDefaultConstructor.class,
+                AClassWithStaticMethod.class,
+                AFinalClass.class,
+                AnEnum.class,
+                AnExampleClass.class,
+                AnInstrumentedChild.class)
+            .map(Class::getName)
+            .collect(Collectors.toList());
+    int threadCount = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    CyclicBarrier barrier = new CyclicBarrier(threadCount);
+    List<Future<List<Class<?>>>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < threadCount; i++) {
+        int seed = i;
+        futures.add(
+            executorService.submit(
+                () -> {
+                  List<String> shuffledClassNames = new ArrayList<>(classNames);
+                  Collections.shuffle(shuffledClassNames, new Random(seed));
+                  barrier.await();
+                  List<Class<?>> classes = new ArrayList<>();
+                  for (String className : shuffledClassNames) {
+                    classes.add(classLoader.loadClass(className));
+                  }
+                  return classes;
+                }));
+      }
+
+      Set<Class<?>> loadedClasses = new HashSet<>();
+      for (Future<List<Class<?>>> future : futures) {
+        loadedClasses.addAll(future.get(30, TimeUnit.SECONDS));
+      }
+      // Every thread got the same class for each name.
+      assertThat(loadedClasses).hasSize(classNames.size());
+      for (Class<?> loadedClass : loadedClasses) {
+        assertThat(loadedClass.getClassLoader()).isSameInstanceAs(classLoader);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   @Test
   public void shouldDelegateClassLoadForUnacquiredClasses() throws Exception {
     InstrumentationConfiguration config = mock(InstrumentationConfiguration.class);
@@ -734,10 +830,6 @@ public class SandboxClassLoaderTest {
         classLoader.loadClass(InvokeDynamicSupport.class.getName()),
         "INTERCEPTORS",
         new Interceptors(Collections.<Interceptor>emptyList()));
-    setStaticField(
-        classLoader.loadClass(Shadow.class.getName()),
-        "SHADOW_IMPL",
-        newInstance(classLoader.loadClass(ShadowImpl.class.getName())));
 
     ShadowInvalidator invalidator = Mockito.mock(ShadowInvalidator.class);
     when(invalidator.getSwitchPoint(any(Class.class))).thenReturn(new SwitchPoint());
@@ -4,12 +4,13 @@ import org.robolectric.internal.IShadow;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
 
 public class Shadow {
-  @SuppressWarnings("unused")
-  private static IShadow SHADOW_IMPL;
+  // Final so the JIT can treat it as a constant and inline extract() down to a single call to
+  // the instrumented class's $$robo$getData().
+  private static final IShadow SHADOW_IMPL = createShadowImpl();
 
-  static {
+  private static IShadow createShadowImpl() {
     try {
-      SHADOW_IMPL = Class.forName("org.robolectric.internal.bytecode.ShadowImpl")
+      return Class.forName("org.robolectric.internal.bytecode.ShadowImpl")
           .asSubclass(IShadow.class).getDeclaredConstructor().newInstance();
     } catch (Exception e) {
       throw new RuntimeException(e);
@@ -18,6 +19,10 @@ public class Shadow {
 
   /**
    * Retrieve corresponding Shadow of the object.
+   *
+   * <p>This is a single call to an accessor added to the object's class during instrumentation;
+   * it doesn't use reflection or allocate.
+   *
    * @since 3.3
    */
   @SuppressWarnings("TypeParameterUnusedInFormals")
@@ -1,6 +1,7 @@
 package org.robolectric.util;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
@@ -8,17 +9,35 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-
-/** Collection of helper methods for calling methods and accessing fields reflectively. */
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collection of helper methods for calling methods and accessing fields reflectively.
+ *
+ * <p>Fields, methods and constructors are looked up and made accessible the first time they're
+ * used, and cached per class after that.
+ */
 @SuppressWarnings(value = {"unchecked", "TypeParameterUnusedInFormals", "NewApi"})
 public class ReflectionHelpers {
 
   private static final Map<String, Object> PRIMITIVE_RETURN_VALUES;
   private static final PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
 
+  // ClassValue rather than a map keyed by Class, since the cached members refer to their class,
+  // and would otherwise keep classes (and their sandbox's class loader) from being collected.
+  @SuppressWarnings("AndroidJdkLibsChecker")
+  private static final ClassValue<ClassMembers> CLASS_MEMBERS =
+      new ClassValue<ClassMembers>() {
+        @Override
+        protected ClassMembers computeValue(Class<?> type) {
+          return new ClassMembers(type);
+        }
+      };
+
   static {
     HashMap<String, Object> map = new HashMap<>();
     map.put("boolean", Boolean.FALSE);
@@ -115,14 +134,7 @@ public class ReflectionHelpers {
   @SuppressWarnings("unchecked")
   public static <R> R getField(final Object object, final String fieldName) {
     try {
-      return traverseClassHierarchy(object.getClass(), NoSuchFieldException.class, new InsideTraversal<R>() {
-        @Override
-        public R run(Class<?> traversalClass) throws Exception {
-          Field field = traversalClass.getDeclaredField(fieldName);
-          field.setAccessible(true);
-          return (R) field.get(object);
-        }
-      });
+      return (R) classMembers(object.getClass()).findField(fieldName).get(object);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -137,15 +149,7 @@ public class ReflectionHelpers {
    */
   public static void setField(final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      traverseClassHierarchy(object.getClass(), NoSuchFieldException.class, new InsideTraversal<Void>() {
-        @Override
-        public Void run(Class<?> traversalClass) throws Exception {
-          Field field = traversalClass.getDeclaredField(fieldName);
-          field.setAccessible(true);
-          field.set(object, fieldNewValue);
-          return null;
-        }
-      });
+      classMembers(object.getClass()).findField(fieldName).set(object, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -161,9 +165,7 @@ public class ReflectionHelpers {
    */
   public static void setField(Class<?> type, final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      Field field = type.getDeclaredField(fieldName);
-      field.setAccessible(true);
-      field.set(object, fieldNewValue);
+      classMembers(type).getDeclaredField(fieldName).set(object, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -196,7 +198,7 @@ public class ReflectionHelpers {
    */
   public static <R> R getStaticField(Class<?> clazz, String fieldName) {
     try {
-      return getStaticField(clazz.getDeclaredField(fieldName));
+      return (R) classMembers(clazz).getDeclaredStaticField(fieldName).get(null);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -226,7 +228,7 @@ public class ReflectionHelpers {
    */
   public static void setStaticField(Class<?> clazz, String fieldName, Object fieldNewValue) {
     try {
-      setStaticField(clazz.getDeclaredField(fieldName), fieldNewValue);
+      classMembers(clazz).getDeclaredStaticField(fieldName).set(null, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -243,23 +245,18 @@ public class ReflectionHelpers {
    */
   public static <R> R callInstanceMethod(
       final Object instance, final String methodName, ClassParameter<?>... classParameters) {
-    perfStatsCollector.incrementCount(
-        String.format(
-            "ReflectionHelpers.callInstanceMethod-%s_%s",
-            instance.getClass().getName(), methodName));
+    if (perfStatsCollector.isEnabled()) {
+      perfStatsCollector.incrementCount(
+          String.format(
+              "ReflectionHelpers.callInstanceMethod-%s_%s",
+              instance.getClass().getName(), methodName));
+    }
     try {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      return traverseClassHierarchy(instance.getClass(), NoSuchMethodException.class, new InsideTraversal<R>() {
-        @Override
-        @SuppressWarnings("unchecked")
-        public R run(Class<?> traversalClass) throws Exception {
-          Method declaredMethod = traversalClass.getDeclaredMethod(methodName, classes);
-          declaredMethod.setAccessible(true);
-          return (R) declaredMethod.invoke(instance, values);
-        }
-      });
+      Method method = classMembers(instance.getClass()).findMethod(methodName, classes);
+      return (R) method.invoke(instance, values);
     } catch (InvocationTargetException e) {
       if (e.getTargetException() instanceof RuntimeException) {
         throw (RuntimeException) e.getTargetException();
@@ -288,14 +285,15 @@ public class ReflectionHelpers {
       final Object instance,
       final String methodName,
       ClassParameter<?>... classParameters) {
-    perfStatsCollector.incrementCount(
-        String.format("ReflectionHelpers.callInstanceMethod-%s_%s", cl.getName(), methodName));
+    if (perfStatsCollector.isEnabled()) {
+      perfStatsCollector.incrementCount(
+          String.format("ReflectionHelpers.callInstanceMethod-%s_%s", cl.getName(), methodName));
+    }
     try {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = cl.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
+      Method method = classMembers(cl).getDeclaredMethod(methodName, classes);
       if (Modifier.isStatic(method.getModifiers())) {
         throw new IllegalArgumentException(method + " is static");
       }
@@ -344,14 +342,15 @@ public class ReflectionHelpers {
   @SuppressWarnings("unchecked")
   public static <R> R callStaticMethod(
       Class<?> clazz, String methodName, ClassParameter<?>... classParameters) {
-    perfStatsCollector.incrementCount(
-        String.format("ReflectionHelpers.callStaticMethod-%s_%s", clazz.getName(), methodName));
+    if (perfStatsCollector.isEnabled()) {
+      perfStatsCollector.incrementCount(
+          String.format("ReflectionHelpers.callStaticMethod-%s_%s", clazz.getName(), methodName));
+    }
     try {
       Class<?>[] classes = ClassParameter.getClasses(classParameters);
       Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = clazz.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
+      Method method = classMembers(clazz).getDeclaredMethod(methodName, classes);
       if (!Modifier.isStatic(method.getModifiers())) {
         throw new IllegalArgumentException(method + " is not static");
       }
@@ -412,13 +411,15 @@ public class ReflectionHelpers {
    */
   public static <R> R callConstructor(
       Class<? extends R> clazz, ClassParameter<?>... classParameters) {
-    perfStatsCollector.incrementCount("ReflectionHelpers.callConstructor-" + clazz.getName());
+    if (perfStatsCollector.isEnabled()) {
+      perfStatsCollector.incrementCount("ReflectionHelpers.callConstructor-" + clazz.getName());
+    }
     try {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      Constructor<? extends R> constructor = clazz.getDeclaredConstructor(classes);
-      constructor.setAccessible(true);
+      Constructor<? extends R> constructor =
+          (Constructor<? extends R>) classMembers(clazz).getDeclaredConstructor(classes);
       return constructor.newInstance(values);
     } catch (InstantiationException e) {
       throw new RuntimeException("error instantiating " + clazz.getName(), e);
@@ -435,6 +436,11 @@ public class ReflectionHelpers {
     }
   }
 
+  @SuppressWarnings("AndroidJdkLibsChecker")
+  private static ClassMembers classMembers(Class<?> type) {
+    return CLASS_MEMBERS.get(type);
+  }
+
   private static <R, E extends Exception> R traverseClassHierarchy(Class<?> targetClass, Class<? extends E> exceptionClass, InsideTraversal<R> insideTraversal) throws Exception {
     Class<?> hierarchyTraversalClass = targetClass;
     while (true) {
@@ -478,6 +484,121 @@ public class ReflectionHelpers {
     R run(Class<?> traversalClass) throws Exception;
   }
 
+  /** The members of a class that have been accessed so far, already made accessible. */
+  private static class ClassMembers {
+    private static final int FIELD = 0;
+    private static final int DECLARED_FIELD = 1;
+    private static final int DECLARED_STATIC_FIELD = 2;
+    private static final int METHOD = 3;
+    private static final int DECLARED_METHOD = 4;
+    private static final int DECLARED_CONSTRUCTOR = 5;
+    private static final Class<?>[] NO_PARAMETERS = new Class<?>[0];
+
+    private final Class<?> type;
+    private final Map<MemberKey, AccessibleObject> members = new ConcurrentHashMap<>();
+
+    ClassMembers(Class<?> type) {
+      this.type = type;
+    }
+
+    /** Returns the named field declared by the class or its nearest superclass declaring one. */
+    Field findField(String name) throws Exception {
+      return getMember(
+          new MemberKey(FIELD, name, NO_PARAMETERS),
+          () ->
+              traverseClassHierarchy(
+                  type,
+                  NoSuchFieldException.class,
+                  traversalClass -> traversalClass.getDeclaredField(name)));
+    }
+
+    Field getDeclaredField(String name) throws Exception {
+      return getMember(
+          new MemberKey(DECLARED_FIELD, name, NO_PARAMETERS), () -> type.getDeclaredField(name));
+    }
+
+    Field getDeclaredStaticField(String name) throws Exception {
+      return getMember(
+          new MemberKey(DECLARED_STATIC_FIELD, name, NO_PARAMETERS),
+          () -> {
+            Field field = type.getDeclaredField(name);
+            makeFieldVeryAccessible(field);
+            return field;
+          });
+    }
+
+    /** Returns the method declared by the class or its nearest superclass declaring one. */
+    Method findMethod(String name, Class<?>[] parameterTypes) throws Exception {
+      return getMember(
+          new MemberKey(METHOD, name, parameterTypes),
+          () ->
+              traverseClassHierarchy(
+                  type,
+                  NoSuchMethodException.class,
+                  traversalClass -> traversalClass.getDeclaredMethod(name, parameterTypes)));
+    }
+
+    Method getDeclaredMethod(String name, Class<?>[] parameterTypes) throws Exception {
+      return getMember(
+          new MemberKey(DECLARED_METHOD, name, parameterTypes),
+          () -> type.getDeclaredMethod(name, parameterTypes));
+    }
+
+    Constructor<?> getDeclaredConstructor(Class<?>[] parameterTypes) throws Exception {
+      return getMember(
+          new MemberKey(DECLARED_CONSTRUCTOR, "<init>", parameterTypes),
+          () -> type.getDeclaredConstructor(parameterTypes));
+    }
+
+    private <T extends AccessibleObject> T getMember(MemberKey key, MemberLookup<T> lookup)
+        throws Exception {
+      AccessibleObject member = members.get(key);
+      if (member == null) {
+        // Lookups that fail aren't cached; they throw every time, as they did before caching.
+        T newMember = lookup.find();
+        newMember.setAccessible(true);
+        member = newMember;
+        members.put(key, member);
+      }
+      return (T) member;
+    }
+  }
+
+  private interface MemberLookup<T extends AccessibleObject> {
+    T find() throws Exception;
+  }
+
+  private static class MemberKey {
+    private final int kind;
+    private final String name;
+    private final Class<?>[] parameterTypes;
+
+    MemberKey(int kind, String name, Class<?>[] parameterTypes) {
+      this.kind = kind;
+      this.name = name;
+      this.parameterTypes = parameterTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MemberKey)) {
+        return false;
+      }
+      MemberKey that = (MemberKey) o;
+      return kind == that.kind
+          && name.equals(that.name)
+          && Arrays.equals(parameterTypes, that.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return (31 * kind + name.hashCode()) * 31 + Arrays.hashCode(parameterTypes);
+    }
+  }
+
   /**
    * Typed parameter used with reflective method calls.
    *
@@ -5,6 +5,8 @@ import static com.google.common.truth.Truth.assertWithMessage;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -40,6 +42,19 @@ public class ReflectionHelpersTest {
     }
   }
 
+  @Test
+  public void getFieldReflectively_getsFieldsOfEachClass() {
+    ExampleBase base = new ExampleBase();
+    base.overridden = 1;
+    ExampleDescendant descendant = new ExampleDescendant();
+    descendant.overridden = 2;
+
+    for (int i = 0; i < 2; i++) {
+      assertThat((int) ReflectionHelpers.getField(base, "overridden")).isEqualTo(1);
+      assertThat((int) ReflectionHelpers.getField(descendant, "overridden")).isEqualTo(2);
+    }
+  }
+
   @Test
   public void setFieldReflectively_setsPrivateFields() {
     ExampleDescendant example = new ExampleDescendant();
@@ -150,6 +165,20 @@ public class ReflectionHelpersTest {
     assertThat(returnNumber).isEqualTo(5);
   }
 
+  @Test
+  public void callInstanceMethodReflectively_whenCalledRepeatedly_callsMethodWithCorrectSignature() {
+    ExampleDescendant example = new ExampleDescendant();
+    for (int i = 0; i < 2; i++) {
+      assertThat((int) ReflectionHelpers.callInstanceMethod(example, "returnNumber"))
+          .isEqualTo(1337);
+      assertThat(
+              (int)
+                  ReflectionHelpers.callInstanceMethod(
+                      example, "returnNumber", ClassParameter.from(int.class, i)))
+          .isEqualTo(i);
+    }
+  }
+
   @Test
   public void callInstanceMethodReflectively_callsInheritedMethods() {
     ExampleDescendant example = new ExampleDescendant();
@@ -289,6 +318,66 @@ public class ReflectionHelpersTest {
     assertWithMessage("name").that(ec.name).isNull();
   }
 
+  @Ignore
+  @Test
+  public void perf() throws Exception {
+    ExampleDescendant example = new ExampleDescendant();
+
+    for (int i = 0; i < 2; i++) {
+      System.out.println(
+          "uncached field took "
+              + nsPerCall(1_000_000, () -> fieldByUncachedReflection(example))
+              + "ns per call");
+      System.out.println(
+          "ReflectionHelpers field took "
+              + nsPerCall(1_000_000, () -> fieldByReflectionHelpers(example))
+              + "ns per call");
+      System.out.println(
+          "uncached method took "
+              + nsPerCall(1_000_000, () -> methodByUncachedReflection(example))
+              + "ns per call");
+      System.out.println(
+          "ReflectionHelpers method took "
+              + nsPerCall(1_000_000, () -> methodByReflectionHelpers(example))
+              + "ns per call");
+    }
+  }
+
+  private static long nsPerCall(int times, ThrowingRunnable runnable) throws Exception {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < times; i++) {
+      runnable.run();
+    }
+    return (System.nanoTime() - startTime) / times;
+  }
+
+  private static int fieldByUncachedReflection(ExampleDescendant example) throws Exception {
+    Field field = ExampleDescendant.class.getDeclaredField("overridden");
+    field.setAccessible(true);
+    field.set(example, 5);
+    return (int) field.get(example);
+  }
+
+  private static int fieldByReflectionHelpers(ExampleDescendant example) {
+    ReflectionHelpers.setField(example, "overridden", 5);
+    return ReflectionHelpers.getField(example, "overridden");
+  }
+
+  private static int methodByUncachedReflection(ExampleDescendant example) throws Exception {
+    Method method = ExampleDescendant.class.getDeclaredMethod("returnNumber", int.class);
+    method.setAccessible(true);
+    return (int) method.invoke(example, 5);
+  }
+
+  private static int methodByReflectionHelpers(ExampleDescendant example) {
+    return ReflectionHelpers.callInstanceMethod(
+        example, "returnNumber", ClassParameter.from(int.class, 5));
+  }
+
+  private interface ThrowingRunnable {
+    void run() throws Exception;
+  }
+
   @SuppressWarnings("serial")
   private static class TestError extends Error {
   }
@@ -14,9 +14,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.util.Logger;
+import org.robolectric.util.VirtualThreads;
 
 /**
  * Executor service that queues any posted tasks.
@@ -26,7 +28,8 @@ import org.robolectric.util.Logger;
  * Intended to be a replacement for {@link RoboExecutorService} when using
  * {@link LooperMode.Mode#PAUSED}.
  * Unlike {@link RoboExecutorService}, will execute tasks on a background thread. This is useful
- * to test Android code that enforces it runs off the main thread.
+ * to test Android code that enforces it runs off the main thread. The background thread is a
+ * virtual thread if {@link VirtualThreads#isEnabled() enabled}.
  *
  * NOTE: Beta API, subject to change.
  */
@@ -76,10 +79,11 @@ public class PausedExecutorService extends AbstractExecutorService {
   }
 
   public PausedExecutorService() {
+    ThreadFactory threadFactory = VirtualThreads.threadFactory(Thread::new);
     this.realService =
         Executors.newSingleThreadExecutor(
             r -> {
-              executorThread = new Thread(r);
+              executorThread = threadFactory.newThread(r);
               return executorThread;
             });
   }
@@ -22,7 +22,6 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
-import org.robolectric.res.android.Asset;
 import org.robolectric.res.android.CppApkAssets;
 import org.robolectric.res.android.Registries;
 import org.robolectric.res.android.ResXMLTree;
@@ -364,18 +363,15 @@ public class ShadowArscApkAssets9 extends ShadowApkAssets {
 
     CppApkAssets apk_assets =
         Registries.NATIVE_APK_ASSETS_REGISTRY.getNativeObject(ptr);
-    Asset asset = apk_assets.Open(path_utf8, Asset.AccessMode.ACCESS_RANDOM);
-    if (asset == null) {
-      throw new FileNotFoundException(path_utf8);
-    }
-
     // DynamicRefTable is only needed when looking up resource references. Opening an XML file
     // directly from an ApkAssets has no notion of proper resource references.
-    ResXMLTree xml_tree = new ResXMLTree(null); // util.make_unique<ResXMLTree>(nullptr /*dynamicRefTable*/);
-    int err = xml_tree.setTo(asset.getBuffer(true), (int) asset.getLength(), true);
-    // asset.reset();
+    // Robolectric-custom: reuses the data parsed by earlier calls for the same file.
+    ResXMLTree xml_tree = apk_assets.OpenXml(path_utf8, null);
+    if (xml_tree == null) {
+      throw new FileNotFoundException(path_utf8);
+    }
 
-    if (err != NO_ERROR) {
+    if (xml_tree.getError() != NO_ERROR) {
       throw new FileNotFoundException("Corrupt XML binary file");
     }
     return Registries.NATIVE_RES_XML_TREES.register(xml_tree); // reinterpret_cast<jlong>(xml_tree.release());
@@ -64,7 +64,6 @@ import org.robolectric.res.android.CppAssetManager2;
 import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
 import org.robolectric.res.android.CppAssetManager2.ResourceName;
 import org.robolectric.res.android.CppAssetManager2.Theme;
-import org.robolectric.res.android.DynamicRefTable;
 import org.robolectric.res.android.Ref;
 import org.robolectric.res.android.Registries;
 import org.robolectric.res.android.ResStringPool;
@@ -839,27 +838,18 @@ public class ShadowArscAssetManager9 extends ShadowAssetManager.ArscBase {
     ATRACE_NAME(String.format("AssetManager::OpenXmlAsset(%s)", asset_path_utf8));
 
     CppAssetManager2 assetmanager = AssetManagerFromLong(ptr);
-    Asset asset;
-    if (cookie.intValue() != kInvalidCookie) {
-      asset = assetmanager.OpenNonAsset(asset_path_utf8, cookie, Asset.AccessMode.ACCESS_RANDOM);
-    } else {
-      Ref<ApkAssetsCookie> cookieRef = new Ref<>(cookie);
-      asset = assetmanager.OpenNonAsset(asset_path_utf8, Asset.AccessMode.ACCESS_RANDOM, cookieRef);
-      cookie = cookieRef.get();
-    }
-
-    if (!isTruthy(asset)) {
+    // Robolectric-custom: the file is only read and parsed the first time it's opened, e.g. the
+    // first time a layout is inflated, and the parsed data is shared by later trees. Without a
+    // cookie, the APKs are searched for the file like OpenNonAsset() does.
+    ResXMLTree xml_tree =
+        cookie.intValue() == kInvalidCookie
+            ? assetmanager.OpenXml(asset_path_utf8, new Ref<>(cookie))
+            : assetmanager.OpenXml(asset_path_utf8, cookie);
+    if (xml_tree == null) {
       throw new FileNotFoundException(asset_path_utf8);
     }
 
-    // May be nullptr.
-    DynamicRefTable dynamic_ref_table = assetmanager.GetDynamicRefTableForCookie(cookie);
-
-    ResXMLTree xml_tree = new ResXMLTree(dynamic_ref_table);
-    int err = xml_tree.setTo(asset.getBuffer(true), (int) asset.getLength(), true);
-    // asset.reset();
-
-    if (err != NO_ERROR) {
+    if (xml_tree.getError() != NO_ERROR) {
       throw new FileNotFoundException("Corrupt XML binary file");
     }
     return NATIVE_RES_XML_TREES.register(xml_tree);
@@ -26,7 +26,10 @@ import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.FileDescriptor;
 import java.io.InputStream;
@@ -35,6 +38,7 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Implementation;
@@ -196,9 +200,21 @@ public class ShadowBitmap {
     shadowNewBitmap.setMutable(true);
     newBitmap.setDensity(src.getDensity());
     if ((matrix == null || matrix.isIdentity()) && shadowSrcBitmap.bufferedImage != null) {
-      // Only simple cases are supported for setting image data to the new Bitmap.
+      // Only simple cases are supported for setting image data to the new Bitmap. The pixels are
+      // copied rather than shared via getSubimage(), as on a device, and so that the new Bitmap
+      // can be accessed through its raw pixel array.
       shadowNewBitmap.bufferedImage =
-          shadowSrcBitmap.bufferedImage.getSubimage(x, y, width, height);
+          new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      int[] srcPixels = shadowSrcBitmap.getRawPixels();
+      int[] newPixels = getRawPixels(shadowNewBitmap.bufferedImage);
+      if (srcPixels != null && shadowSrcBitmap.isInBounds(x, y, width, height)) {
+        for (int row = 0; row < height; row++) {
+          System.arraycopy(
+              srcPixels, (y + row) * src.getWidth() + x, newPixels, row * width, width);
+        }
+      } else {
+        shadowSrcBitmap.bufferedImage.getRGB(x, y, width, height, newPixels, 0, width);
+      }
     }
     if (RuntimeEnvironment.getApiLevel() >= O) {
       shadowNewBitmap.colorSpace = shadowSrcBitmap.colorSpace;
@@ -240,7 +256,10 @@ public class ShadowBitmap {
     }
 
     BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    bufferedImage.setRGB(0, 0, width, height, colors, offset, stride);
+    int[] pixels = getRawPixels(bufferedImage);
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(colors, offset + row * stride, pixels, row * width, width);
+    }
     Bitmap bitmap = createBitmap(bufferedImage, width, height, config);
     ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
     shadowBitmap.setMutable(false);
@@ -483,7 +502,15 @@ public class ShadowBitmap {
     if (bufferedImage == null) {
       bufferedImage = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
     }
-    bufferedImage.setRGB(x, y, width, height, pixels, offset, stride);
+    int[] rawPixels = getRawPixels();
+    if (rawPixels != null && isInBounds(x, y, width, height)) {
+      for (int row = 0; row < height; row++) {
+        System.arraycopy(
+            pixels, offset + row * stride, rawPixels, (y + row) * getWidth() + x, width);
+      }
+    } else {
+      bufferedImage.setRGB(x, y, width, height, pixels, offset, stride);
+    }
   }
 
   @Implementation
@@ -494,7 +521,8 @@ public class ShadowBitmap {
       // config is RGB_565, our return value will likely be more precise than
       // on a physical device, since it needs to map each color component from
       // 5 or 6 bits to 8 bits.
-      return bufferedImage.getRGB(x, y);
+      int[] rawPixels = getRawPixels();
+      return rawPixels != null ? rawPixels[y * getWidth() + x] : bufferedImage.getRGB(x, y);
     } else {
       return 0;
     }
@@ -507,7 +535,12 @@ public class ShadowBitmap {
     if (bufferedImage == null) {
       bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     }
-    bufferedImage.setRGB(x, y, color);
+    int[] rawPixels = getRawPixels();
+    if (rawPixels != null) {
+      rawPixels[y * getWidth() + x] = color;
+    } else {
+      bufferedImage.setRGB(x, y, color);
+    }
   }
 
   /**
@@ -518,7 +551,15 @@ public class ShadowBitmap {
   @Implementation
   protected void getPixels(
       int[] pixels, int offset, int stride, int x, int y, int width, int height) {
-    bufferedImage.getRGB(x, y, width, height, pixels, offset, stride);
+    int[] rawPixels = getRawPixels();
+    if (rawPixels != null && isInBounds(x, y, width, height)) {
+      for (int row = 0; row < height; row++) {
+        System.arraycopy(
+            rawPixels, (y + row) * getWidth() + x, pixels, offset + row * stride, width);
+      }
+    } else {
+      bufferedImage.getRGB(x, y, width, height, pixels, offset, stride);
+    }
   }
 
   @Implementation
@@ -665,8 +706,16 @@ public class ShadowBitmap {
   @Implementation
   protected void eraseColor(int color) {
     if (bufferedImage != null) {
-      int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
-      Arrays.fill(pixels, color);
+      int[] pixels = getRawPixels();
+      if (pixels != null) {
+        Arrays.fill(pixels, color);
+      } else {
+        int imageWidth = bufferedImage.getWidth();
+        int imageHeight = bufferedImage.getHeight();
+        int[] colors = new int[imageWidth * imageHeight];
+        Arrays.fill(colors, color);
+        bufferedImage.setRGB(0, 0, imageWidth, imageHeight, colors, 0, imageWidth);
+      }
     }
     setDescription(String.format("Bitmap (%d, %d)", width, height));
     if (color != 0) {
@@ -719,8 +768,12 @@ public class ShadowBitmap {
     if (byteBuffer != null) {
       byteBuffer.position(byteBuffer.position() + intBuffer.position() * INTERNAL_BYTES_PER_PIXEL);
     }
-    int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
-    System.arraycopy(colors, 0, pixels, 0, pixels.length);
+    int[] pixels = getRawPixels();
+    if (pixels != null) {
+      System.arraycopy(colors, 0, pixels, 0, pixels.length);
+    } else {
+      bufferedImage.setRGB(0, 0, width, height, colors, 0, width);
+    }
   }
 
   @Implementation
@@ -739,7 +792,10 @@ public class ShadowBitmap {
     if (!(dst instanceof ByteBuffer) && !(dst instanceof IntBuffer)) {
       throw new RuntimeException("Not implemented: unsupported Buffer subclass");
     }
-    int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+    int[] pixels = getRawPixels();
+    if (pixels == null) {
+      pixels = bufferedImage.getRGB(0, 0, width, height, null, 0, width);
+    }
     if (dst instanceof ByteBuffer) {
       IntBuffer intBuffer = ((ByteBuffer) dst).asIntBuffer();
       intBuffer.put(pixels);
@@ -805,9 +861,14 @@ public class ShadowBitmap {
     } else if (bufferedImage != null && shadowOtherBitmap.bufferedImage == null) {
       return false;
     } else if (bufferedImage != null && shadowOtherBitmap.bufferedImage != null) {
-      int[] pixels = ((DataBufferInt) bufferedImage.getData().getDataBuffer()).getData();
-      int[] otherPixels =
-          ((DataBufferInt) shadowOtherBitmap.bufferedImage.getData().getDataBuffer()).getData();
+      int[] pixels = getRawPixels();
+      int[] otherPixels = shadowOtherBitmap.getRawPixels();
+      if (pixels == null || otherPixels == null) {
+        // Fall back to comparing copies of the rasters, e.g. for images decoded in other formats.
+        pixels = ((DataBufferInt) bufferedImage.getData().getDataBuffer()).getData();
+        otherPixels =
+            ((DataBufferInt) shadowOtherBitmap.bufferedImage.getData().getDataBuffer()).getData();
+      }
       if (!Arrays.equals(pixels, otherPixels)) {
         return false;
       }
@@ -837,6 +898,57 @@ public class ShadowBitmap {
     }
   }
 
+  private boolean isInBounds(int x, int y, int width, int height) {
+    return x >= 0
+        && y >= 0
+        && width >= 0
+        && height >= 0
+        && x + width <= getWidth()
+        && y + height <= getHeight();
+  }
+
+  /**
+   * Returns the array backing this Bitmap's pixels, or null if they aren't stored as a plain array
+   * of ARGB colors matching the Bitmap's dimensions.
+   *
+   * @see #getRawPixels(BufferedImage)
+   */
+  @Nullable
+  private int[] getRawPixels() {
+    if (bufferedImage == null
+        || bufferedImage.getWidth() != getWidth()
+        || bufferedImage.getHeight() != getHeight()) {
+      return null;
+    }
+    return getRawPixels(bufferedImage);
+  }
+
+  /**
+   * Returns the array backing {@code image} if it is a {@link BufferedImage#TYPE_INT_ARGB} image
+   * stored row by row with no padding, or null otherwise (e.g. for sub-images sharing a parent's
+   * raster). The array holds the same non-premultiplied ARGB colors as {@link
+   * BufferedImage#getRGB}, so it can be read and written without per-pixel color conversion.
+   */
+  @Nullable
+  private static int[] getRawPixels(BufferedImage image) {
+    if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+      return null;
+    }
+    WritableRaster raster = image.getRaster();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+    if (!(dataBuffer instanceof DataBufferInt)
+        || !(sampleModel instanceof SinglePixelPackedSampleModel)
+        || raster.getSampleModelTranslateX() != 0
+        || raster.getSampleModelTranslateY() != 0
+        || dataBuffer.getOffset() != 0
+        || dataBuffer.getSize() != image.getWidth() * image.getHeight()
+        || ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() != image.getWidth()) {
+      return null;
+    }
+    return ((DataBufferInt) dataBuffer).getData();
+  }
+
   private void internalCheckPixelAccess(int x, int y) {
     if (x < 0) {
       throw new IllegalArgumentException("x must be >= 0");
@@ -48,7 +48,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.android.XmlResourceParserImpl;
@@ -111,8 +113,8 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   private static final int STYLE_CHANGING_CONFIGURATIONS = 4;
   private static final int STYLE_DENSITY = 5;
 
-  private static long nextInternalThemeId = 1000;
-  private static final Map<Long, NativeTheme> nativeThemes = new HashMap<>();
+  private static final AtomicLong nextInternalThemeId = new AtomicLong(1000);
+  private static final Map<Long, NativeTheme> nativeThemes = new ConcurrentHashMap<>();
 
   @RealObject protected AssetManager realObject;
 
@@ -121,6 +123,11 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   class NativeTheme {
     private ThemeStyleSet themeStyleSet;
 
+    // Styles resolved against this theme, so that their parents are only looked up once. They're
+    // dropped when the theme or the asset manager's configuration changes.
+    private final Map<ResName, Style> resolvedStyles = new HashMap<>();
+    private ResTable_config resolvedStylesConfig;
+
     public NativeTheme(ThemeStyleSet themeStyleSet) {
       this.themeStyleSet = themeStyleSet;
     }
@@ -128,6 +135,25 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
     public ShadowLegacyAssetManager getShadowAssetManager() {
       return ShadowLegacyAssetManager.this;
     }
+
+    synchronized Style resolveStyle(@Nonnull ResName styleName) {
+      if (resolvedStylesConfig != config) {
+        resolvedStyles.clear();
+        resolvedStylesConfig = config;
+      }
+      return resolvedStyles.computeIfAbsent(
+          styleName, name -> ShadowLegacyAssetManager.this.resolveStyle(name, themeStyleSet));
+    }
+
+    synchronized void applyStyle(Style style, boolean force) {
+      themeStyleSet.apply(style, force);
+      resolvedStyles.clear();
+    }
+
+    synchronized void copyFrom(NativeTheme source) {
+      themeStyleSet = source.themeStyleSet.copy();
+      resolvedStyles.clear();
+    }
   }
 
   ResTable_config config = new ResTable_config();
@@ -898,11 +924,9 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
 
   @HiddenApi @Implementation
   public Number createTheme() {
-    synchronized (nativeThemes) {
-      long nativePtr = nextInternalThemeId++;
-      nativeThemes.put(nativePtr, new NativeTheme(new ThemeStyleSet()));
-      return castNativePtr(nativePtr);
-    }
+    long nativePtr = nextInternalThemeId.getAndIncrement();
+    nativeThemes.put(nativePtr, new NativeTheme(new ThemeStyleSet()));
+    return castNativePtr(nativePtr);
   }
 
   @HiddenApi @Implementation(minSdk = LOLLIPOP, maxSdk = O_MR1)
@@ -916,10 +940,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   }
 
   private static NativeTheme getNativeTheme(long themePtr) {
-    NativeTheme nativeTheme;
-    synchronized (nativeThemes) {
-      nativeTheme = nativeThemes.get(themePtr);
-    }
+    NativeTheme nativeTheme = nativeThemes.get(themePtr);
     if (nativeTheme == null) {
       throw new RuntimeException("no theme " + themePtr + " found in AssetManager");
     }
@@ -928,9 +949,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
 
   @HiddenApi @Implementation(minSdk = LOLLIPOP)
   public void releaseTheme(long themePtr) {
-    synchronized (nativeThemes) {
-      nativeThemes.remove(themePtr);
-    }
+    nativeThemes.remove(themePtr);
   }
 
   @HiddenApi @Implementation(maxSdk = KITKAT_WATCH)
@@ -952,7 +971,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   public static void applyThemeStyle(long themePtr, int styleRes, boolean force) {
     NativeTheme nativeTheme = getNativeTheme(themePtr);
     Style style = nativeTheme.getShadowAssetManager().resolveStyle(styleRes, null);
-    nativeTheme.themeStyleSet.apply(style, force);
+    nativeTheme.applyStyle(style, force);
   }
 
   @HiddenApi @Implementation(maxSdk = KITKAT_WATCH)
@@ -964,7 +983,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   public static void copyTheme(long destPtr, long sourcePtr) {
     NativeTheme destNativeTheme = getNativeTheme(destPtr);
     NativeTheme sourceNativeTheme = getNativeTheme(sourcePtr);
-    destNativeTheme.themeStyleSet = sourceNativeTheme.themeStyleSet.copy();
+    destNativeTheme.copyFrom(sourceNativeTheme);
   }
 
   @HiddenApi @Implementation(minSdk = P, maxSdk = P)
@@ -1100,6 +1119,14 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
         config);
   }
 
+  private Style resolveStyle(
+      @Nonnull ResName styleName, NativeTheme nativeTheme, Style themeStyleSet) {
+    // Themes only cache the styles of the asset manager that created them.
+    return nativeTheme != null && nativeTheme.getShadowAssetManager() == this
+        ? nativeTheme.resolveStyle(styleName)
+        : resolveStyle(styleName, themeStyleSet);
+  }
+
   private TypedResource getAndResolve(int resId, ResTable_config config, boolean resolveRefs) {
     TypedResource value = getResourceTable().getValue(resId, config);
     if (resolveRefs) {
@@ -1153,7 +1180,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
     return resolveResourceValue(value, config, resName);
   }
 
-  private TypedValue buildTypedValue(AttributeSet set, int resId, int defStyleAttr, Style themeStyleSet, int defStyleRes) {
+  private TypedValue buildTypedValue(AttributeSet set, int resId, int defStyleAttr, NativeTheme nativeTheme, Style themeStyleSet, int defStyleRes) {
     /*
      * When determining the final value of a particular attribute, there are four inputs that come into play:
      *
@@ -1183,7 +1210,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
 
         if (defStyleAttribute.isResourceReference()) {
           ResName defStyleResName = defStyleAttribute.getResourceReference();
-          defStyleFromAttr = resolveStyle(defStyleResName, themeStyleSet);
+          defStyleFromAttr = resolveStyle(defStyleResName, nativeTheme, themeStyleSet);
         }
       }
     }
@@ -1205,7 +1232,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
           styleAttributeResName = attrValue.getStyleReference();
         }
       }
-      styleAttrStyle = resolveStyle(styleAttributeResName, themeStyleSet);
+      styleAttrStyle = resolveStyle(styleAttributeResName, nativeTheme, themeStyleSet);
     }
 
     if (defStyleRes != 0) {
@@ -1222,7 +1249,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
         //   }
         // }
       } else if (resName.type.equals("style")) {
-        defStyleFromRes = resolveStyle(resName, themeStyleSet);
+        defStyleFromRes = resolveStyle(resName, nativeTheme, themeStyleSet);
       }
     }
 
@@ -1269,14 +1296,15 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
     int[] indices = new int[attrs.length + 1];
     int nextIndex = 0;
 
-    Style themeStyleSet = nativeTheme == 0
+    NativeTheme theme = nativeTheme == 0 ? null : getNativeTheme(nativeTheme);
+    Style themeStyleSet = theme == null
         ? new EmptyStyle()
-        : getNativeTheme(nativeTheme).themeStyleSet;
+        : theme.themeStyleSet;
 
     for (int i = 0; i < attrs.length; i++) {
       int offset = i * STYLE_NUM_ENTRIES;
 
-      TypedValue typedValue = buildTypedValue(set, attrs[i], defStyleAttr, themeStyleSet, defStyleRes);
+      TypedValue typedValue = buildTypedValue(set, attrs[i], defStyleAttr, theme, themeStyleSet, defStyleRes);
       if (typedValue != null) {
         //noinspection PointlessArithmeticExpression
         data[offset + STYLE_TYPE] = typedValue.type;
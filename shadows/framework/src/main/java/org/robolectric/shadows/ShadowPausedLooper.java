@@ -30,6 +30,7 @@ import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.config.ConfigurationRegistry;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.Scheduler;
 import org.robolectric.util.reflector.Direct;
 import org.robolectric.util.reflector.ForType;
@@ -90,7 +91,8 @@ public final class ShadowPausedLooper extends ShadowLooper {
 
   @Override
   public void idle() {
-    executeOnLooper(new IdlingRunnable());
+    PerfStatsCollector.getInstance()
+        .measure("looper idle", () -> executeOnLooper(new IdlingRunnable()));
   }
 
   @Override
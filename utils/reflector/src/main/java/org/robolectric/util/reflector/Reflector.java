@@ -31,11 +31,16 @@ import org.robolectric.util.PerfStatsCollector;
  *
  * reflector(_Foo_.class, new Foo()).getName();
  * </pre>
+ *
+ * <p>If Robolectric's annotation processor generated an implementation of the interface at compile
+ * time, it is used; otherwise one is generated at runtime.
  */
 @SuppressWarnings("NewApi")
 public class Reflector {
 
   private static final boolean DEBUG = false;
+  /** Suffix of reflector classes generated by Robolectric's annotation processor. */
+  private static final String GENERATED_REFLECTOR_SUFFIX = "$$Reflector";
   private static final AtomicInteger COUNTER = new AtomicInteger();
   private static final Map<Class<?>, Constructor<?>> cache = new ConcurrentHashMap<>();
   /**
@@ -56,22 +61,25 @@ public class Reflector {
    * @param target the target object
    */
   public static <T> T reflector(Class<T> iClass, Object target) {
-    Class<?> targetClass = determineTargetClass(iClass);
-
     Constructor<? extends T> ctor = (Constructor<? extends T>) cache.get(iClass);
     try {
       if (ctor == null) {
-        Class<? extends T> reflectorClass =
-            PerfStatsCollector.getInstance()
-                .measure(
-                    "createReflectorClass",
-                    () -> Reflector.<T>createReflectorClass(iClass, targetClass));
-        ctor = reflectorClass.getConstructor(targetClass);
+        Class<?> targetClass = determineTargetClass(iClass);
+        Class<? extends T> generatedClass = findGeneratedReflectorClass(iClass);
+        if (generatedClass != null) {
+          ctor = generatedClass.getConstructor(Object.class);
+        } else {
+          Class<? extends T> reflectorClass =
+              PerfStatsCollector.getInstance()
+                  .measure(
+                      "createReflectorClass",
+                      () -> Reflector.<T>createReflectorClass(iClass, targetClass));
+          ctor = reflectorClass.getConstructor(targetClass);
+        }
         ctor.setAccessible(true);
+        cache.put(iClass, ctor);
       }
 
-      cache.put(iClass, ctor);
-
       return ctor.newInstance(target);
     } catch (NoSuchMethodException
         | InstantiationException
@@ -103,6 +111,17 @@ public class Reflector {
     return targetClass;
   }
 
+  private static <T> Class<? extends T> findGeneratedReflectorClass(Class<T> iClass) {
+    try {
+      Class<?> generatedClass =
+          Class.forName(
+              iClass.getName() + GENERATED_REFLECTOR_SUFFIX, false, iClass.getClassLoader());
+      return iClass.isAssignableFrom(generatedClass) ? generatedClass.asSubclass(iClass) : null;
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
   private static <T> Class<? extends T> createReflectorClass(
       Class<T> iClass, Class<?> targetClass) {
     String reflectorClassName = iClass.getName() + "$$Reflector" + COUNTER.getAndIncrement();
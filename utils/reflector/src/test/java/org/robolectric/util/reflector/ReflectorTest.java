@@ -95,6 +95,30 @@ public class ReflectorTest {
     assertThat(actual).isSameInstanceAs(expected);
   }
 
+  @Test
+  public void reflector_usesGeneratedReflectorClass() {
+    _WithGeneratedReflector_ generated = reflector(_WithGeneratedReflector_.class, someClass);
+
+    assertThat(generated).isInstanceOf(_WithGeneratedReflector_.$Reflector.class);
+    assertThat(generated.getC()).isEqualTo("c");
+  }
+
+  @Test
+  public void reflector_withoutGeneratedReflectorClass_generatesOneAtRuntime() {
+    assertThat(reflector.getClass().getName())
+        .startsWith(_SomeClass_.class.getName() + "$$Reflector");
+    assertThat(reflector.getClass().getName())
+        .isNotEqualTo(_SomeClass_.class.getName() + "$$Reflector");
+  }
+
+  @Test
+  public void reflector_ignoresGeneratedClassNotImplementingInterface() {
+    _WithUnrelatedReflector_ unrelated = reflector(_WithUnrelatedReflector_.class, someClass);
+
+    assertThat(unrelated).isNotInstanceOf(_WithUnrelatedReflector_.$Reflector.class);
+    assertThat(unrelated.getC()).isEqualTo("c");
+  }
+
   @Ignore
   @Test
   public void methodPerf() {
@@ -192,6 +216,42 @@ public class ReflectorTest {
     void throwException(Throwable t);
   }
 
+  /**
+   * Accessor interface with a hand-written stand-in for the class the annotation processor would
+   * generate. A nested class named {@code $Reflector} has the binary name {@code
+   * ReflectorTest$_WithGeneratedReflector_$$Reflector}, which is where the generated class is
+   * looked up.
+   */
+  @ForType(SomeClass.class)
+  interface _WithGeneratedReflector_ {
+
+    @Accessor("c")
+    String getC();
+
+    final class $Reflector implements _WithGeneratedReflector_ {
+      private final SomeClass target;
+
+      public $Reflector(Object target) {
+        this.target = (SomeClass) target;
+      }
+
+      @Override
+      public String getC() {
+        return target.c;
+      }
+    }
+  }
+
+  /** Accessor interface with a class at the generated class's name that doesn't implement it. */
+  @ForType(SomeClass.class)
+  interface _WithUnrelatedReflector_ {
+
+    @Accessor("c")
+    String getC();
+
+    final class $Reflector {}
+  }
+
   @SuppressWarnings("unused")
   static class SomeClass {
 
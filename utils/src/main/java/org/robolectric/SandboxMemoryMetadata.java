@@ -0,0 +1,54 @@
+package org.robolectric;
+
+/**
+ * Data related to the memory retained by cached sandboxes.
+ *
+ * <p>Retained sizes are estimates, computed from the growth of the JVM heap while each sandbox was
+ * being built.
+ */
+public class SandboxMemoryMetadata {
+
+  private final long sandboxRetainedBytes;
+  private final int cachedSandboxCount;
+  private final long cachedSandboxesRetainedBytes;
+  private final long heapUsedBytes;
+  private final long heapMaxBytes;
+
+  public SandboxMemoryMetadata(
+      long sandboxRetainedBytes,
+      int cachedSandboxCount,
+      long cachedSandboxesRetainedBytes,
+      long heapUsedBytes,
+      long heapMaxBytes) {
+    this.sandboxRetainedBytes = sandboxRetainedBytes;
+    this.cachedSandboxCount = cachedSandboxCount;
+    this.cachedSandboxesRetainedBytes = cachedSandboxesRetainedBytes;
+    this.heapUsedBytes = heapUsedBytes;
+    this.heapMaxBytes = heapMaxBytes;
+  }
+
+  /** The estimated number of bytes retained by the sandbox the test ran in. */
+  public long getSandboxRetainedBytes() {
+    return sandboxRetainedBytes;
+  }
+
+  /** The number of sandboxes cached when the test started. */
+  public int getCachedSandboxCount() {
+    return cachedSandboxCount;
+  }
+
+  /** The estimated number of bytes retained by all cached sandboxes. */
+  public long getCachedSandboxesRetainedBytes() {
+    return cachedSandboxesRetainedBytes;
+  }
+
+  /** The heap usage, as of the last garbage collection if available, when the test started. */
+  public long getHeapUsedBytes() {
+    return heapUsedBytes;
+  }
+
+  /** The maximum heap size, or -1 if undefined. */
+  public long getHeapMaxBytes() {
+    return heapMaxBytes;
+  }
+}
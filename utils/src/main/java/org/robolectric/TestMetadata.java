@@ -0,0 +1,29 @@
+package org.robolectric;
+
+/**
+ * Data identifying the test being run.
+ */
+public class TestMetadata {
+
+  private final String testClassName;
+  private final String testMethodName;
+
+  public TestMetadata(String testClassName, String testMethodName) {
+    this.testClassName = testClassName;
+    this.testMethodName = testMethodName;
+  }
+
+  public String getTestClassName() {
+    return testClassName;
+  }
+
+  /** The name of the test method, including any variant markers such as the SDK level. */
+  public String getTestMethodName() {
+    return testMethodName;
+  }
+
+  @Override
+  public String toString() {
+    return testClassName + "." + testMethodName;
+  }
+}
@@ -0,0 +1,136 @@
+package org.robolectric.util;
+
+import java.util.Collection;
+import java.util.Map;
+import javax.annotation.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.robolectric.AndroidMetadata;
+import org.robolectric.TestMetadata;
+import org.robolectric.pluginapi.perf.Metadata;
+import org.robolectric.pluginapi.perf.Metric;
+import org.robolectric.pluginapi.perf.PerfStatsReporter;
+
+/**
+ * Implementation of PerfStatsReporter that emits each {@link PerfStatsCollector} event as a Java
+ * Flight Recorder event, so Robolectric's phases (loading and instrumenting classes, setting up the
+ * application, etc.) can be correlated with GC and CPU profiles.
+ *
+ * <p>Events are named {@code org.robolectric.Phase} and are only created while a recording has
+ * them enabled. Requires a JVM with JFR support.
+ *
+ * <p>To use, register it as a service, e.g. with {@code @AutoService(PerfStatsReporter.class)}.
+ *
+ * <p>Creating a reporter adds a {@link PerfStatsCollector.EventListener} to the collector alongside
+ * any other listeners. It stays registered for the life of the collector; creating more reporters
+ * for the same collector doesn't register it again, so each event is emitted once.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+public class JfrPerfStatsReporter implements PerfStatsReporter {
+
+  public JfrPerfStatsReporter() {
+    this(PerfStatsCollector.getInstance());
+  }
+
+  JfrPerfStatsReporter(PerfStatsCollector perfStatsCollector) {
+    perfStatsCollector.addEventListener(new JfrEventListener(perfStatsCollector));
+  }
+
+  @Override
+  public void report(Metadata metadata, Collection<Metric> metrics) {
+    // Events are emitted as they happen.
+  }
+
+  private static class JfrEventListener implements PerfStatsCollector.EventListener {
+    private static final EventType PHASE_EVENT_TYPE = EventType.getEventType(PhaseEvent.class);
+
+    private final PerfStatsCollector perfStatsCollector;
+
+    JfrEventListener(PerfStatsCollector perfStatsCollector) {
+      this.perfStatsCollector = perfStatsCollector;
+    }
+
+    @Nullable
+    @Override
+    public Object eventStarted(String eventName, @Nullable String detail) {
+      if (!PHASE_EVENT_TYPE.isEnabled()) {
+        return null;
+      }
+
+      PhaseEvent event = new PhaseEvent();
+      event.phase = eventName;
+      event.detail = detail;
+      event.begin();
+      return event;
+    }
+
+    @Override
+    public void eventFinished(Object token, boolean success) {
+      PhaseEvent event = (PhaseEvent) token;
+      event.end();
+      if (!event.shouldCommit()) {
+        return;
+      }
+
+      event.success = success;
+      TestMetadata testMetadata = perfStatsCollector.getMetadata(TestMetadata.class);
+      if (testMetadata != null) {
+        event.test = testMetadata.toString();
+      }
+      AndroidMetadata androidMetadata = perfStatsCollector.getMetadata(AndroidMetadata.class);
+      if (androidMetadata != null) {
+        event.sdk = parseSdk(androidMetadata.getDeviceBootProperties());
+        event.resourcesMode = androidMetadata.getResourcesMode();
+      }
+      event.commit();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof JfrEventListener
+          && ((JfrEventListener) o).perfStatsCollector == perfStatsCollector;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(perfStatsCollector);
+    }
+
+    private static int parseSdk(Map<String, String> deviceBootProperties) {
+      String sdk = deviceBootProperties.get("ro.build.version.sdk");
+      try {
+        return sdk == null ? 0 : Integer.parseInt(sdk);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+
+  @Name("org.robolectric.Phase")
+  @Label("Robolectric Phase")
+  @Category("Robolectric")
+  @Description("A phase of running a Robolectric test, as measured by PerfStatsCollector")
+  static class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Detail")
+    @Description("What the phase applies to, e.g. the class being loaded")
+    String detail;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("SDK")
+    int sdk;
+
+    @Label("Resources Mode")
+    String resourcesMode;
+
+    @Label("Test")
+    String test;
+  }
+}
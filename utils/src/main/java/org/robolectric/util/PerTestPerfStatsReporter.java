@@ -0,0 +1,282 @@
+package org.robolectric.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.robolectric.AndroidMetadata;
+import org.robolectric.TestMetadata;
+import org.robolectric.pluginapi.perf.Metadata;
+import org.robolectric.pluginapi.perf.Metric;
+import org.robolectric.pluginapi.perf.PerfStatsReporter;
+
+/**
+ * Implementation of PerfStatsReporter that records how long each test spent in each phase
+ * (acquiring its sandbox, setting up the application, running the test, idling loopers, resetting
+ * state, etc.) and, when the JVM exits, writes a report ranking the slowest tests and phases.
+ *
+ * <p>Phases nest: e.g. "get sandbox" is part of "initialization", and "load sandboxed class" may be
+ * part of either. So phase times don't add up, other than those of the {@link #TOP_LEVEL_PHASES},
+ * which the report lists first; the nested phases follow, slowest first.
+ *
+ * <p>The report is written as CSV if the output file name ends with {@code .csv}, and as JSON
+ * otherwise. To use, register a subclass as a service, e.g.:
+ *
+ * <pre>
+ * &#064;AutoService(PerfStatsReporter.class)
+ * public class MyPerfStatsReporter extends PerTestPerfStatsReporter {
+ *   public MyPerfStatsReporter() {
+ *     super(Paths.get("build/robolectric-perf.json"));
+ *     register();
+ *   }
+ * }
+ * </pre>
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+public class PerTestPerfStatsReporter implements PerfStatsReporter {
+
+  /** Phases that don't overlap, which together make up the total time taken by a test. */
+  static final ImmutableList<String> TOP_LEVEL_PHASES =
+      ImmutableList.of("initialization", "run test", "reset Android state (after test)");
+
+  /**
+   * Top-level phases that mostly consist of nested phases. They'd nearly always be the slowest, so
+   * a test's slowest phase is chosen from the others.
+   */
+  static final ImmutableSet<String> GROUPING_PHASES = ImmutableSet.of("initialization", "run test");
+
+  private final Path outputFile;
+  private final List<TestStats> testStats = new ArrayList<>();
+
+  public PerTestPerfStatsReporter(Path outputFile) {
+    this.outputFile = outputFile;
+  }
+
+  @Override
+  public synchronized void report(Metadata metadata, Collection<Metric> metrics) {
+    TestMetadata testMetadata = metadata.get(TestMetadata.class);
+    AndroidMetadata androidMetadata = metadata.get(AndroidMetadata.class);
+
+    Map<String, Long> phaseNs = new HashMap<>();
+    for (Metric metric : metrics) {
+      // Only timed events are phases; counters have no histogram.
+      if (metric.getHistogram() != null) {
+        phaseNs.merge(metric.getName(), metric.getElapsedNs(), Long::sum);
+      }
+    }
+
+    testStats.add(
+        new TestStats(
+            testMetadata == null ? "unknown" : testMetadata.toString(),
+            androidMetadata == null
+                ? ""
+                : androidMetadata.getDeviceBootProperties().get("ro.build.version.sdk"),
+            androidMetadata == null ? "" : androidMetadata.getResourcesMode(),
+            phaseNs));
+  }
+
+  public void register() {
+    Runtime.getRuntime().addShutdownHook(new Thread(this::writeReport));
+  }
+
+  private void writeReport() {
+    try (Writer writer = Files.newBufferedWriter(outputFile, UTF_8)) {
+      writeReport(writer);
+    } catch (IOException e) {
+      Logger.error("failed to write perf report to " + outputFile, e);
+    }
+  }
+
+  synchronized void writeReport(Writer writer) throws IOException {
+    List<TestStats> slowestTests = new ArrayList<>(testStats);
+    slowestTests.sort(Comparator.comparingLong(TestStats::totalNs).reversed());
+
+    Map<String, PhaseStats> phasesByName = new HashMap<>();
+    for (TestStats test : testStats) {
+      for (Map.Entry<String, Long> entry : test.phaseNs.entrySet()) {
+        phasesByName.computeIfAbsent(entry.getKey(), PhaseStats::new).add(entry.getValue());
+      }
+    }
+    List<PhaseStats> phases = new ArrayList<>(phasesByName.values());
+    phases.sort(phaseOrder(p -> p.name, p -> p.totalNs));
+
+    if (outputFile.getFileName().toString().endsWith(".csv")) {
+      writeCsv(writer, slowestTests, phases);
+    } else {
+      writeJson(writer, slowestTests, phases);
+    }
+  }
+
+  private static void writeCsv(Writer writer, List<TestStats> slowestTests, List<PhaseStats> phases)
+      throws IOException {
+    writer.write("Test,SDK,Resources,Total ms,Slowest phase");
+    for (PhaseStats phase : phases) {
+      writer.write(",");
+      writer.write(csvEscape(phase.name + " ms"));
+    }
+    writer.write("\n");
+
+    for (TestStats test : slowestTests) {
+      writer.write(csvEscape(test.name));
+      writer.write("," + test.sdk + "," + test.resourcesMode + "," + toMs(test.totalNs()) + ",");
+      writer.write(csvEscape(test.slowestPhase()));
+      for (PhaseStats phase : phases) {
+        Long ns = test.phaseNs.get(phase.name);
+        writer.write("," + (ns == null ? "" : toMs(ns)));
+      }
+      writer.write("\n");
+    }
+  }
+
+  private static void writeJson(
+      Writer writer, List<TestStats> slowestTests, List<PhaseStats> phases) throws IOException {
+    writer.write("{\n  \"tests\": [");
+    for (int i = 0; i < slowestTests.size(); i++) {
+      TestStats test = slowestTests.get(i);
+      writer.write(i == 0 ? "\n" : ",\n");
+      writer.write("    {\"test\": " + jsonString(test.name));
+      writer.write(", \"sdk\": " + jsonString(test.sdk));
+      writer.write(", \"resourcesMode\": " + jsonString(test.resourcesMode));
+      writer.write(", \"totalNs\": " + test.totalNs());
+      writer.write(", \"slowestPhase\": " + jsonString(test.slowestPhase()));
+      writer.write(", \"phasesNs\": {");
+      String separator = "";
+      for (Map.Entry<String, Long> entry : test.sortedPhases().entrySet()) {
+        writer.write(separator + jsonString(entry.getKey()) + ": " + entry.getValue());
+        separator = ", ";
+      }
+      writer.write("}}");
+    }
+    writer.write("\n  ],\n  \"phases\": [");
+    for (int i = 0; i < phases.size(); i++) {
+      PhaseStats phase = phases.get(i);
+      writer.write(i == 0 ? "\n" : ",\n");
+      writer.write("    {\"phase\": " + jsonString(phase.name));
+      writer.write(", \"tests\": " + phase.testCount);
+      writer.write(", \"totalNs\": " + phase.totalNs);
+      writer.write(", \"maxNs\": " + phase.maxNs + "}");
+    }
+    writer.write("\n  ]\n}\n");
+  }
+
+  /** Orders the top-level phases first, in order, then the others by decreasing time. */
+  private static <T> Comparator<T> phaseOrder(Function<T, String> name, ToLongFunction<T> ns) {
+    return Comparator.comparingInt((T phase) -> topLevelIndex(name.apply(phase)))
+        .thenComparing(Comparator.comparingLong(ns).reversed());
+  }
+
+  private static int topLevelIndex(String phase) {
+    int index = TOP_LEVEL_PHASES.indexOf(phase);
+    return index == -1 ? TOP_LEVEL_PHASES.size() : index;
+  }
+
+  private static String toMs(long ns) {
+    return String.format(Locale.ROOT, "%.3f", ns / 1_000_000.0);
+  }
+
+  private static String csvEscape(String value) {
+    if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+
+  private static String jsonString(String value) {
+    StringBuilder buf = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          buf.append("\\\"");
+          break;
+        case '\\':
+          buf.append("\\\\");
+          break;
+        case '\n':
+          buf.append("\\n");
+          break;
+        default:
+          if (c < 0x20) {
+            buf.append(String.format("\\u%04x", (int) c));
+          } else {
+            buf.append(c);
+          }
+      }
+    }
+    return buf.append('"').toString();
+  }
+
+  private static class TestStats {
+    private final String name;
+    private final String sdk;
+    private final String resourcesMode;
+    private final Map<String, Long> phaseNs;
+
+    TestStats(String name, String sdk, String resourcesMode, Map<String, Long> phaseNs) {
+      this.name = name;
+      this.sdk = sdk == null ? "" : sdk;
+      this.resourcesMode = resourcesMode == null ? "" : resourcesMode;
+      this.phaseNs = phaseNs;
+    }
+
+    long totalNs() {
+      long total = 0;
+      for (String phase : TOP_LEVEL_PHASES) {
+        total += phaseNs.getOrDefault(phase, 0L);
+      }
+      return total;
+    }
+
+    /** The slowest phase, other than the {@link #GROUPING_PHASES}, or "" if there's none. */
+    String slowestPhase() {
+      String slowest = "";
+      long slowestNs = -1;
+      for (Map.Entry<String, Long> entry : phaseNs.entrySet()) {
+        if (!GROUPING_PHASES.contains(entry.getKey()) && entry.getValue() > slowestNs) {
+          slowest = entry.getKey();
+          slowestNs = entry.getValue();
+        }
+      }
+      return slowest;
+    }
+
+    Map<String, Long> sortedPhases() {
+      Map<String, Long> sorted = new LinkedHashMap<>();
+      phaseNs.entrySet().stream()
+          .sorted(phaseOrder(Map.Entry::getKey, Map.Entry::getValue))
+          .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+      return sorted;
+    }
+  }
+
+  private static class PhaseStats {
+    private final String name;
+    private int testCount;
+    private long totalNs;
+    private long maxNs;
+
+    PhaseStats(String name) {
+      this.name = name;
+    }
+
+    void add(long ns) {
+      testCount++;
+      totalNs += ns;
+      maxNs = Math.max(maxNs, ns);
+    }
+  }
+}
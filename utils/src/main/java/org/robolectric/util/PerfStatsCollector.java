@@ -3,7 +3,14 @@ package org.robolectric.util;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.robolectric.pluginapi.perf.Histogram;
 import org.robolectric.pluginapi.perf.Metadata;
 import org.robolectric.pluginapi.perf.Metric;
 import org.robolectric.pluginapi.perf.PerfStatsReporter;
@@ -11,16 +18,27 @@ import org.robolectric.pluginapi.perf.PerfStatsReporter;
 /**
  * Collects performance statistics for later reporting via {@link PerfStatsReporter}.
  *
+ * <p>Recording is lock-free: each metric name is interned to a set of striped accumulators the
+ * first time it's seen, and the accumulated values are only merged into {@link Metric}s when
+ * {@link #getMetrics()} is called.
+ *
  * @since 3.6
  */
+@SuppressWarnings("AndroidJdkLibsChecker")
 public class PerfStatsCollector {
 
   private static final PerfStatsCollector INSTANCE = new PerfStatsCollector();
 
   private final Clock clock;
   private final Map<Class<?>, Object> metadata = new HashMap<>();
-  private final Map<MetricKey, Metric> metricMap = new HashMap<>();
-  private boolean enabled = true;
+  private final ConcurrentHashMap<String, Accumulator> successAccumulators =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Accumulator> failureAccumulators =
+      new ConcurrentHashMap<>();
+  private volatile boolean enabled = true;
+  private final List<EventListener> eventListeners = new ArrayList<>();
+  // A snapshot of eventListeners, so recording an event doesn't need a lock.
+  @Nullable private volatile EventListener eventListener;
 
   public PerfStatsCollector() {
     this(System::nanoTime);
@@ -35,39 +53,96 @@ public class PerfStatsCollector {
   }
 
   /**
-   * If not enabled, don't bother retaining perf stats, saving some memory and CPU cycles.
+   * If not enabled, don't bother retaining perf stats, saving some memory and CPU cycles. Event
+   * counts from {@link #incrementCount(String)} are still kept.
    */
   public void setEnabled(boolean isEnabled) {
     this.enabled = isEnabled;
   }
 
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Adds a listener to be notified of each individual event as it happens. Events are only reported
+   * while the collector is enabled. Adding a listener that's already registered has no effect.
+   */
+  public void addEventListener(EventListener eventListener) {
+    synchronized (eventListeners) {
+      if (!eventListeners.contains(eventListener)) {
+        eventListeners.add(eventListener);
+        updateEventListener();
+      }
+    }
+  }
+
+  /** Removes a listener added with {@link #addEventListener(EventListener)}. */
+  public void removeEventListener(EventListener eventListener) {
+    synchronized (eventListeners) {
+      if (eventListeners.remove(eventListener)) {
+        updateEventListener();
+      }
+    }
+  }
+
+  private void updateEventListener() {
+    switch (eventListeners.size()) {
+      case 0:
+        eventListener = null;
+        break;
+      case 1:
+        eventListener = eventListeners.get(0);
+        break;
+      default:
+        eventListener = new CompositeEventListener(eventListeners.toArray(new EventListener[0]));
+        break;
+    }
+  }
+
   public Event startEvent(String eventName) {
     return new Event(eventName);
   }
 
   public <T, E extends Exception> T measure(String eventName, ThrowingSupplier<T, E> supplier)
       throws E {
+    return measure(eventName, null, supplier);
+  }
+
+  /**
+   * Measures an event.
+   *
+   * @param eventName the name of the event, used as the name of its {@link Metric}.
+   * @param detail what the event applies to, e.g. a class name, passed along to the {@link
+   *     EventListener} but not included in metrics.
+   * @param supplier the code to measure.
+   */
+  public <T, E extends Exception> T measure(
+      String eventName, @Nullable String detail, ThrowingSupplier<T, E> supplier) throws E {
+    if (!enabled) {
+      return supplier.get();
+    }
+
     boolean success = true;
-    Event event = startEvent(eventName);
+    EventListener listener = eventListener;
+    Object token = listener == null ? null : listener.eventStarted(eventName, detail);
+    long startTimeNs = clock.nanoTime();
     try {
       return supplier.get();
     } catch (Exception e) {
       success = false;
       throw e;
     } finally {
-      event.finished(success);
+      record(eventName, success, clock.nanoTime() - startTimeNs);
+      if (token != null) {
+        listener.eventFinished(token, success);
+      }
     }
   }
 
+  /** Increments the count of an event. Counts are kept even while the collector is disabled. */
   public void incrementCount(String eventName) {
-    synchronized (PerfStatsCollector.this) {
-      MetricKey key = new MetricKey(eventName, true);
-      Metric metric = metricMap.get(key);
-      if (metric == null) {
-        metricMap.put(key, metric = new Metric(key.name, key.success));
-      }
-      metric.incrementCount();
-    }
+    getAccumulator(eventName, true, false).count.increment();
   }
 
   /**
@@ -80,15 +155,35 @@ public class PerfStatsCollector {
 
   public <E extends Exception> void measure(String eventName, ThrowingRunnable<E> runnable)
       throws E {
+    measure(eventName, null, runnable);
+  }
+
+  /**
+   * Measures an event.
+   *
+   * @see #measure(String, String, ThrowingSupplier)
+   */
+  public <E extends Exception> void measure(
+      String eventName, @Nullable String detail, ThrowingRunnable<E> runnable) throws E {
+    if (!enabled) {
+      runnable.run();
+      return;
+    }
+
     boolean success = true;
-    Event event = startEvent(eventName);
+    EventListener listener = eventListener;
+    Object token = listener == null ? null : listener.eventStarted(eventName, detail);
+    long startTimeNs = clock.nanoTime();
     try {
       runnable.run();
     } catch (Exception e) {
       success = false;
       throw e;
     } finally {
-      event.finished(success);
+      record(eventName, success, clock.nanoTime() - startTimeNs);
+      if (token != null) {
+        listener.eventFinished(token, success);
+      }
     }
   }
 
@@ -100,8 +195,15 @@ public class PerfStatsCollector {
     void run() throws F;
   }
 
-  public synchronized Collection<Metric> getMetrics() {
-    return new ArrayList<>(metricMap.values());
+  public Collection<Metric> getMetrics() {
+    ArrayList<Metric> metrics = new ArrayList<>();
+    for (Accumulator accumulator : successAccumulators.values()) {
+      metrics.add(accumulator.toMetric());
+    }
+    for (Accumulator accumulator : failureAccumulators.values()) {
+      metrics.add(accumulator.toMetric());
+    }
+    return metrics;
   }
 
   public synchronized <T> void putMetadata(Class<T> metadataClass, T metadata) {
@@ -116,9 +218,90 @@ public class PerfStatsCollector {
     return new Metadata(metadata);
   }
 
+  /** Returns a single piece of metadata, without copying all of it. */
+  @Nullable
+  public synchronized <T> T getMetadata(Class<T> metadataClass) {
+    return metadataClass.cast(metadata.get(metadataClass));
+  }
+
   public void reset() {
-    metadata.clear();
-    metricMap.clear();
+    synchronized (this) {
+      metadata.clear();
+    }
+    successAccumulators.clear();
+    failureAccumulators.clear();
+  }
+
+  private void record(String name, boolean success, long elapsedNs) {
+    getAccumulator(name, success, true).record(elapsedNs);
+  }
+
+  private Accumulator getAccumulator(String name, boolean success, boolean timed) {
+    ConcurrentHashMap<String, Accumulator> accumulators =
+        success ? successAccumulators : failureAccumulators;
+    // Avoid computeIfAbsent()'s locking in the common case where the metric already exists.
+    Accumulator accumulator = accumulators.get(name);
+    if (accumulator == null) {
+      accumulator = accumulators.computeIfAbsent(name, n -> new Accumulator(n, success));
+    }
+    if (timed) {
+      accumulator.ensureHistogram();
+    }
+    return accumulator;
+  }
+
+  /**
+   * Listener for individual events, e.g. to forward them to a profiler.
+   */
+  public interface EventListener {
+    /**
+     * Called when an event starts.
+     *
+     * @param eventName the name of the event.
+     * @param detail what the event applies to, if known.
+     * @return a token passed to {@link #eventFinished(Object, boolean)}, or null if the listener
+     *     isn't interested in the event.
+     */
+    @Nullable
+    Object eventStarted(String eventName, @Nullable String detail);
+
+    /** Called when an event for which {@link #eventStarted} returned a token finishes. */
+    void eventFinished(Object token, boolean success);
+  }
+
+  /** Forwards events to several listeners, keeping each listener's token. */
+  private static class CompositeEventListener implements EventListener {
+    private final EventListener[] listeners;
+
+    CompositeEventListener(EventListener[] listeners) {
+      this.listeners = listeners;
+    }
+
+    @Nullable
+    @Override
+    public Object eventStarted(String eventName, @Nullable String detail) {
+      Object[] tokens = null;
+      for (int i = 0; i < listeners.length; i++) {
+        Object token = listeners[i].eventStarted(eventName, detail);
+        if (token != null) {
+          if (tokens == null) {
+            tokens = new Object[listeners.length];
+          }
+          tokens[i] = token;
+        }
+      }
+      return tokens;
+    }
+
+    @Override
+    public void eventFinished(Object token, boolean success) {
+      Object[] tokens = (Object[]) token;
+      for (int i = 0; i < listeners.length; i++) {
+        if (tokens[i] != null) {
+          listeners[i].eventFinished(tokens[i], success);
+        }
+      }
+    }
   }
 
   /**
@@ -127,9 +310,14 @@ public class PerfStatsCollector {
   public class Event {
     private final String name;
     private final long startTimeNs;
+    @Nullable private final EventListener listener;
+    @Nullable private final Object token;
 
     Event(String name) {
       this.name = name;
+      EventListener listener = enabled ? eventListener : null;
+      this.listener = listener;
+      this.token = listener == null ? null : listener.eventStarted(name, null);
       this.startTimeNs = clock.nanoTime();
     }
 
@@ -142,51 +330,67 @@ public class PerfStatsCollector {
         return;
       }
 
-      synchronized (PerfStatsCollector.this) {
-        MetricKey key = new MetricKey(name, success);
-        Metric metric = metricMap.get(key);
-        if (metric == null) {
-          metricMap.put(key, metric = new Metric(key.name, key.success));
-        }
-        metric.record(clock.nanoTime() - startTimeNs);
+      record(name, success, clock.nanoTime() - startTimeNs);
+      if (token != null) {
+        listener.eventFinished(token, success);
       }
     }
   }
 
-  /**
-   * Metric key for perf stats collection.
-   */
-  private static class MetricKey {
+  /** Striped accumulators for a single metric. */
+  private static class Accumulator {
     private final String name;
     private final boolean success;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder elapsedNs = new LongAdder();
+    private final LongAccumulator minNs = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxNs = new LongAccumulator(Math::max, 0);
+    // Only allocated for timed events; counters don't need a distribution.
+    private volatile AtomicLongArray histogram;
 
-    MetricKey(String name, boolean success) {
+    Accumulator(String name, boolean success) {
       this.name = name;
       this.success = success;
     }
 
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (!(o instanceof MetricKey)) {
-        return false;
+    void ensureHistogram() {
+      if (histogram == null) {
+        synchronized (this) {
+          if (histogram == null) {
+            histogram = new AtomicLongArray(Histogram.BUCKET_COUNT);
+          }
+        }
       }
+    }
 
-      MetricKey metricKey = (MetricKey) o;
+    void record(long elapsed) {
+      count.increment();
+      elapsedNs.add(elapsed);
+      minNs.accumulate(elapsed);
+      maxNs.accumulate(elapsed);
+      histogram.incrementAndGet(Histogram.bucketIndex(elapsed));
+    }
 
-      if (success != metricKey.success) {
-        return false;
+    Metric toMetric() {
+      int count = this.count.intValue();
+      AtomicLongArray histogram = this.histogram;
+      if (histogram == null) {
+        return new Metric(name, count, 0, 0, 0, null, success);
       }
-      return name != null ? name.equals(metricKey.name) : metricKey.name == null;
-    }
 
-    @Override
-    public int hashCode() {
-      int result = name != null ? name.hashCode() : 0;
-      result = 31 * result + (success ? 1 : 0);
-      return result;
+      long[] bucketCounts = new long[histogram.length()];
+      for (int i = 0; i < bucketCounts.length; i++) {
+        bucketCounts[i] = histogram.get(i);
+      }
+      long min = minNs.get();
+      return new Metric(
+          name,
+          count,
+          elapsedNs.sum(),
+          min == Long.MAX_VALUE ? 0 : min,
+          maxNs.get(),
+          new Histogram(bucketCounts),
+          success);
     }
   }
 }
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import org.robolectric.AndroidMetadata;
+import org.robolectric.pluginapi.perf.Histogram;
 import org.robolectric.pluginapi.perf.Metadata;
 import org.robolectric.pluginapi.perf.Metric;
 import org.robolectric.pluginapi.perf.PerfStatsReporter;
@@ -28,7 +29,7 @@ public class SimplePerfStatsReporter implements PerfStatsReporter {
 
   @SuppressWarnings("AndroidJdkLibsChecker)")
   private synchronized void finalReport() {
-    Map<MetricKey, MetricValue> mergedMetrics = new TreeMap<>();
+    Map<MetricKey, Metric> mergedMetrics = new TreeMap<>();
     for (Data perfStatsData : perfStatsData) {
       AndroidMetadata metadata = perfStatsData.metadata.get(AndroidMetadata.class);
       Map<String, String> deviceBootProperties = metadata.getDeviceBootProperties();
@@ -37,35 +38,45 @@ public class SimplePerfStatsReporter implements PerfStatsReporter {
 
       for (Metric metric : perfStatsData.metrics) {
         MetricKey key = new MetricKey(metric.getName(), metric.isSuccess(), sdkInt, resourcesMode);
-        MetricValue mergedMetric = mergedMetrics.get(key);
+        Metric mergedMetric = mergedMetrics.get(key);
         if (mergedMetric == null) {
-          mergedMetric = new MetricValue();
+          mergedMetric = new Metric(metric.getName(), metric.isSuccess());
           mergedMetrics.put(key, mergedMetric);
         }
-        mergedMetric.report(metric);
+        mergedMetric.merge(metric);
       }
     }
 
-    System.out.println("Name\tSDK\tResources\tSuccess\tCount\tMin ms\tMax ms\tAvg ms\tTotal ms");
-    for (Entry<MetricKey, MetricValue> entry : mergedMetrics.entrySet()) {
+    System.out.println(
+        "Name\tSDK\tResources\tSuccess\tCount\tMin ms\tMax ms\tAvg ms\tTotal ms"
+            + "\tP50 ms\tP90 ms\tP99 ms");
+    for (Entry<MetricKey, Metric> entry : mergedMetrics.entrySet()) {
       MetricKey key = entry.getKey();
-      MetricValue value = entry.getValue();
+      Metric value = entry.getValue();
 
       System.out.println(
           MessageFormat
-              .format("{0}\t{1}\t{2}\t{3}\t{4}\t{5}\t{6}\t{7}\t{8}",
+              .format("{0}\t{1}\t{2}\t{3}\t{4}\t{5}\t{6}\t{7}\t{8}\t{9}\t{10}\t{11}",
                   key.name,
                   key.sdkLevel,
                   key.resourcesMode,
                   key.success,
-                  value.count,
-                  (int) (value.minNs / 1000000),
-                  (int) (value.maxNs / 1000000),
-                  (int) (value.elapsedNs / 1000000 / value.count),
-                  (int) (value.elapsedNs / 1000000)));
+                  value.getCount(),
+                  (int) (value.getMinNs() / 1000000),
+                  (int) (value.getMaxNs() / 1000000),
+                  (int) (value.getElapsedNs() / 1000000 / value.getCount()),
+                  (int) (value.getElapsedNs() / 1000000),
+                  percentileMs(value, 50),
+                  percentileMs(value, 90),
+                  percentileMs(value, 99)));
     }
   }
 
+  private static String percentileMs(Metric metric, double percentile) {
+    Histogram histogram = metric.getHistogram();
+    return histogram == null ? "-" : "" + (int) (histogram.getPercentileNs(percentile) / 1000000);
+  }
+
   private static class Data {
     private final Metadata metadata;
     private final Collection<Metric> metrics;
@@ -143,25 +154,4 @@ public class SimplePerfStatsReporter implements PerfStatsReporter {
       return Boolean.compare(success, o.success);
     }
   }
-
-  private static class MetricValue {
-    private int count;
-    private long minNs;
-    private long maxNs;
-    private long elapsedNs;
-
-    public void report(Metric metric) {
-      if (count == 0) {
-        count = metric.getCount();
-        minNs = metric.getMinNs();
-        maxNs = metric.getMaxNs();
-        elapsedNs = metric.getElapsedNs();
-      } else {
-        count += metric.getCount();
-        minNs = Math.min(minNs, metric.getMinNs());
-        maxNs = Math.max(maxNs, metric.getMaxNs());
-        elapsedNs += metric.getElapsedNs();
-      }
-    }
-  }
 }
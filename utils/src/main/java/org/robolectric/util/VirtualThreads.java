@@ -0,0 +1,54 @@
+package org.robolectric.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Support for running short-lived background work (e.g. {@code AsyncTask} executors) on virtual
+ * threads, which are much cheaper to create than platform threads.
+ *
+ * <p>Virtual threads are opt-in: they are only used if the {@code robolectric.useVirtualThreads}
+ * system property is {@code true} and the JVM supports them (JDK 21+). Otherwise, the fallback
+ * {@link ThreadFactory} is used.
+ */
+public class VirtualThreads {
+
+  public static final String USE_VIRTUAL_THREADS = "robolectric.useVirtualThreads";
+
+  @Nullable private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+  private VirtualThreads() {}
+
+  /** Returns true if virtual threads were requested and are supported by this JVM. */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(USE_VIRTUAL_THREADS) && VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * Returns a factory for virtual threads if they are enabled, or {@code fallback} otherwise.
+   *
+   * @see #isEnabled()
+   */
+  public static ThreadFactory threadFactory(ThreadFactory fallback) {
+    return isEnabled() ? VIRTUAL_THREAD_FACTORY : fallback;
+  }
+
+  @Nullable
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      // Thread.ofVirtual().name("Robolectric Virtual Thread ", 0).factory(); built reflectively
+      // since Robolectric is compiled for Java 8.
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          builderClass
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, "Robolectric Virtual Thread ", 0L);
+      Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package org.robolectric.util
+
+import com.google.common.collect.ImmutableMap
+import com.google.common.truth.Truth.assertThat
+import java.nio.file.Files
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import org.robolectric.AndroidMetadata
+import org.robolectric.TestMetadata
+
+@RunWith(JUnit4::class)
+class JfrPerfStatsReporterTest {
+  private lateinit var collector: PerfStatsCollector
+
+  @Before
+  fun setUp() {
+    collector = PerfStatsCollector()
+    JfrPerfStatsReporter(collector)
+  }
+
+  @Test
+  fun shouldEmitJfrEventsForMeasuredEvents() {
+    val recording = Recording()
+    recording.enable("org.robolectric.Phase")
+    recording.start()
+
+    collector.putMetadata(TestMetadata::class.java, TestMetadata("FooTest", "testBar[28]"))
+    collector.putMetadata(
+      AndroidMetadata::class.java,
+      AndroidMetadata(ImmutableMap.of("ro.build.version.sdk", "28"), "BINARY")
+    )
+    collector.measure<RuntimeException>("load sandboxed class", "android.view.View") {}
+    collector.startEvent("initialization").finished(false)
+
+    recording.stop()
+    val file = Files.createTempFile("robolectric", ".jfr")
+    recording.dump(file)
+    recording.close()
+
+    val events =
+      RecordingFile.readAllEvents(file).filter { it.eventType.name == "org.robolectric.Phase" }
+    Files.delete(file)
+    assertThat(events.map { it.getString("phase") })
+      .containsExactly("load sandboxed class", "initialization")
+    val classLoadEvent = events.first { it.getString("phase") == "load sandboxed class" }
+    assertThat(classLoadEvent.getString("detail")).isEqualTo("android.view.View")
+    assertThat(classLoadEvent.getString("test")).isEqualTo("FooTest.testBar[28]")
+    assertThat(classLoadEvent.getInt("sdk")).isEqualTo(28)
+    assertThat(classLoadEvent.getBoolean("success")).isTrue()
+    val initializationEvent = events.first { it.getString("phase") == "initialization" }
+    assertThat(initializationEvent.getBoolean("success")).isFalse()
+  }
+
+  @Test
+  fun shouldEmitEachEventOnceAlongsideOtherListeners() {
+    val otherEvents = mutableListOf<String>()
+    collector.addEventListener(
+      object : PerfStatsCollector.EventListener {
+        override fun eventStarted(eventName: String, detail: String?): Any = eventName
+
+        override fun eventFinished(token: Any, success: Boolean) {
+          otherEvents.add(token as String)
+        }
+      }
+    )
+    JfrPerfStatsReporter(collector)
+    val recording = Recording()
+    recording.enable("org.robolectric.Phase")
+    recording.start()
+
+    collector.measure<RuntimeException>("load sandboxed class", "android.view.View") {}
+
+    recording.stop()
+    val file = Files.createTempFile("robolectric", ".jfr")
+    recording.dump(file)
+    recording.close()
+
+    val events =
+      RecordingFile.readAllEvents(file).filter { it.eventType.name == "org.robolectric.Phase" }
+    Files.delete(file)
+    assertThat(events.map { it.getString("phase") }).containsExactly("load sandboxed class")
+    assertThat(otherEvents).containsExactly("load sandboxed class")
+  }
+
+  @Test
+  fun shouldStillCollectMetricsWithoutRecording() {
+    collector.measure<RuntimeException>("load sandboxed class", "android.view.View") {}
+
+    assertThat(collector.metrics.map { it.name }).containsExactly("load sandboxed class")
+  }
+}
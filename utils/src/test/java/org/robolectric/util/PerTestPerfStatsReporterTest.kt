@@ -0,0 +1,123 @@
+package org.robolectric.util
+
+import com.google.common.collect.ImmutableMap
+import com.google.common.truth.Truth.assertThat
+import java.io.StringWriter
+import java.nio.file.Paths
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import org.robolectric.AndroidMetadata
+import org.robolectric.TestMetadata
+import org.robolectric.pluginapi.perf.Histogram
+import org.robolectric.pluginapi.perf.Metadata
+import org.robolectric.pluginapi.perf.Metric
+
+@RunWith(JUnit4::class)
+class PerTestPerfStatsReporterTest {
+
+  @Test
+  fun shouldWriteCsvRankingSlowestTests() {
+    val reporter = PerTestPerfStatsReporter(Paths.get("report.csv"))
+    reporter.report(
+      metadata("FooTest", "fast"),
+      listOf(phase("initialization", 2_000_000), phase("run test", 1_000_000))
+    )
+    reporter.report(
+      metadata("FooTest", "slow"),
+      listOf(
+        phase("initialization", 3_000_000),
+        phase("get sandbox", 2_500_000),
+        phase("run test", 5_000_000),
+        Metric("instrument package android", 12, 0, true)
+      )
+    )
+
+    val writer = StringWriter()
+    reporter.writeReport(writer)
+
+    assertThat(writer.toString().lines())
+      .containsExactly(
+        "Test,SDK,Resources,Total ms,Slowest phase,initialization ms,run test ms,get sandbox ms",
+        "FooTest.slow,28,BINARY,8.000,get sandbox,3.000,5.000,2.500",
+        "FooTest.fast,28,BINARY,3.000,,2.000,1.000,",
+        ""
+      )
+      .inOrder()
+  }
+
+  @Test
+  fun shouldWriteJson() {
+    val reporter = PerTestPerfStatsReporter(Paths.get("report.json"))
+    reporter.report(
+      metadata("FooTest", "test\"quoted\""),
+      listOf(phase("run test", 10), phase("looper idle", 4))
+    )
+
+    val writer = StringWriter()
+    reporter.writeReport(writer)
+
+    assertThat(writer.toString().trim())
+      .isEqualTo(
+        """
+        {
+          "tests": [
+            {"test": "FooTest.test\"quoted\"", "sdk": "28", "resourcesMode": "BINARY", "totalNs": 10, "slowestPhase": "looper idle", "phasesNs": {"run test": 10, "looper idle": 4}}
+          ],
+          "phases": [
+            {"phase": "run test", "tests": 1, "totalNs": 10, "maxNs": 10},
+            {"phase": "looper idle", "tests": 1, "totalNs": 4, "maxNs": 4}
+          ]
+        }
+        """
+          .trimIndent()
+      )
+  }
+
+  @Test
+  fun shouldRankNestedPhasesAfterTopLevelPhases() {
+    val reporter = PerTestPerfStatsReporter(Paths.get("report.csv"))
+    reporter.report(
+      metadata("FooTest", "nested"),
+      listOf(
+        phase("initialization", 10_000_000),
+        phase("get sandbox", 6_000_000),
+        phase("run test", 20_000_000),
+        phase("looper idle", 8_000_000),
+        phase("load sandboxed class", 9_000_000),
+        phase("reset Android state (after test)", 3_000_000)
+      )
+    )
+
+    val writer = StringWriter()
+    reporter.writeReport(writer)
+
+    // "initialization" and "run test" only group the other phases, so they're never the slowest.
+    assertThat(writer.toString().lines())
+      .containsExactly(
+        "Test,SDK,Resources,Total ms,Slowest phase,initialization ms,run test ms," +
+          "reset Android state (after test) ms,load sandboxed class ms,looper idle ms," +
+          "get sandbox ms",
+        "FooTest.nested,28,BINARY,33.000,load sandboxed class,10.000,20.000,3.000,9.000,8.000," +
+          "6.000",
+        ""
+      )
+      .inOrder()
+  }
+
+  private fun metadata(testClass: String, testMethod: String): Metadata {
+    return Metadata(
+      mapOf(
+        TestMetadata::class.java to TestMetadata(testClass, testMethod),
+        AndroidMetadata::class.java to
+          AndroidMetadata(ImmutableMap.of("ro.build.version.sdk", "28"), "BINARY")
+      )
+    )
+  }
+
+  private fun phase(name: String, elapsedNs: Long): Metric {
+    val histogram = LongArray(Histogram.BUCKET_COUNT)
+    histogram[Histogram.bucketIndex(elapsedNs)] = 1
+    return Metric(name, 1, elapsedNs, elapsedNs, elapsedNs, Histogram(histogram), true)
+  }
+}
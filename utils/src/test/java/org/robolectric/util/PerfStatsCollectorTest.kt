@@ -1,5 +1,6 @@
 package org.robolectric.util
 
+import com.google.common.collect.Range
 import com.google.common.truth.Truth.assertThat
 import java.io.IOException
 import org.junit.Assert
@@ -97,6 +98,53 @@ class PerfStatsCollectorTest {
     assertThat(metrics).contains(Metric("event", 1, 5, false))
   }
 
+  @Test
+  @Throws(Exception::class)
+  fun shouldRecordHistogramForEvents() {
+    for (i in 1..100) {
+      val event = collector.startEvent("event")
+      fakeClock.delay(i)
+      event.finished()
+    }
+    val metric = collector.metrics.single()
+    assertThat(metric.minNs).isEqualTo(1)
+    assertThat(metric.maxNs).isEqualTo(100)
+    assertThat(metric.histogram!!.count).isEqualTo(100)
+    assertThat(metric.histogram!!.getPercentileNs(50.0)).isIn(Range.closed(50L, 63L))
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun shouldCountIncrementsFromManyThreads() {
+    val threads =
+      (1..4).map { Thread { repeat(1000) { collector.incrementCount("counter") } } }
+    threads.forEach { it.start() }
+    threads.forEach { it.join() }
+    val metric = collector.metrics.single()
+    assertThat(metric.count).isEqualTo(4000)
+    assertThat(metric.histogram).isNull()
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun shouldNotRecordEventsWhenDisabled() {
+    collector.setEnabled(false)
+    collector.measure<RuntimeException>("event") { fakeClock.delay(10) }
+    collector.startEvent("other event").finished()
+    assertThat(collector.metrics).isEmpty()
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun shouldCountEventsWhenDisabled() {
+    collector.setEnabled(false)
+    collector.incrementCount("counter")
+    collector.incrementCount("counter")
+    val metric = collector.metrics.single()
+    assertThat(metric.name).isEqualTo("counter")
+    assertThat(metric.count).isEqualTo(2)
+  }
+
   @Test
   @Throws(Exception::class)
   fun reset_shouldClearAllMetadataAndMetrics() {
@@ -107,6 +155,53 @@ class PerfStatsCollectorTest {
     assertThat(collector.metrics).isEmpty()
   }
 
+  @Test
+  @Throws(Exception::class)
+  fun shouldNotifyEveryEventListener() {
+    val first = RecordingEventListener()
+    val second = RecordingEventListener(interested = false)
+    val third = RecordingEventListener()
+    collector.addEventListener(first)
+    collector.addEventListener(second)
+    collector.addEventListener(third)
+    collector.addEventListener(first)
+
+    collector.measure<RuntimeException>("event", "detail") {}
+    collector.startEvent("other event").finished(false)
+
+    assertThat(first.events).containsExactly("event(detail):true", "other event(null):false")
+    assertThat(second.events).isEmpty()
+    assertThat(third.events).containsExactly("event(detail):true", "other event(null):false")
+  }
+
+  @Test
+  @Throws(Exception::class)
+  fun shouldNotNotifyRemovedEventListener() {
+    val first = RecordingEventListener()
+    val second = RecordingEventListener()
+    collector.addEventListener(first)
+    collector.addEventListener(second)
+    collector.removeEventListener(first)
+
+    collector.measure<RuntimeException>("event") {}
+
+    assertThat(first.events).isEmpty()
+    assertThat(second.events).containsExactly("event(null):true")
+  }
+
+  private class RecordingEventListener(private val interested: Boolean = true) :
+    PerfStatsCollector.EventListener {
+    val events = mutableListOf<String>()
+
+    override fun eventStarted(eventName: String, detail: String?): Any? {
+      return if (interested) "$eventName($detail)" else null
+    }
+
+    override fun eventFinished(token: Any, success: Boolean) {
+      events.add("$token:$success")
+    }
+  }
+
   private class FakeClock : Clock {
     private var timeNs = 0
     override fun nanoTime(): Long {
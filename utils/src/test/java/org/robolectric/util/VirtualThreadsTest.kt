@@ -0,0 +1,35 @@
+package org.robolectric.util
+
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.ThreadFactory
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class VirtualThreadsTest {
+  private val fallback = ThreadFactory { Thread(it) }
+
+  @After
+  fun tearDown() {
+    System.clearProperty(VirtualThreads.USE_VIRTUAL_THREADS)
+  }
+
+  @Test
+  fun whenNotRequested_usesFallback() {
+    assertThat(VirtualThreads.isEnabled()).isFalse()
+    assertThat(VirtualThreads.threadFactory(fallback)).isSameInstanceAs(fallback)
+  }
+
+  @Test
+  fun whenRequested_createsVirtualThreads() {
+    System.setProperty(VirtualThreads.USE_VIRTUAL_THREADS, "true")
+    assumeTrue(VirtualThreads.isEnabled())
+
+    val thread = VirtualThreads.threadFactory(fallback).newThread {}
+
+    assertThat(Thread::class.java.getMethod("isVirtual").invoke(thread)).isEqualTo(true)
+  }
+}